@@ -0,0 +1,33 @@
+package Semaphore;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH suite once per thread count, since JMH cannot parameterize threads itself.
+ *
+ * Usage: java -cp target/benchmarks.jar Semaphore.BenchmarkRunner [threadCounts] [includeRegex]
+ *   e.g. java -cp target/benchmarks.jar Semaphore.BenchmarkRunner 1,4,16 Semaphore
+ */
+public class BenchmarkRunner
+{
+    public static void main(String[] args) throws RunnerException
+    {
+        String[] threadCounts = (args.length > 0 ? args[0] : "1,4,16").split(",");
+        String include        = args.length > 1 ? args[1] : "Semaphore\\..*";
+
+        for (final String threads : threadCounts)
+        {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .result("jmh_results_" + threads.trim() + "_threads.csv")
+                    .resultFormat(ResultFormatType.CSV)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package Semaphore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of recording events into MetricsCollector, the path every container hits once per access.
+ * A fresh collector is created for each iteration so the log does not grow across the run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsRecordingJmh
+{
+    private static final MethodHandle newMetricsCollector =
+            UnnamedPackageAccess.constructor("MetricsCollector");
+    private static final MethodHandle recordAccess =
+            UnnamedPackageAccess.method("MetricsCollector", "recordAccess", int.class, String.class, long.class, int.class, long.class);
+    private static final MethodHandle recordConflict =
+            UnnamedPackageAccess.method("MetricsCollector", "recordConflict", int.class, String.class);
+
+    private static final AtomicInteger nextContainerId = new AtomicInteger();
+
+    private Object metrics;
+
+    @State(Scope.Thread)
+    public static class ThreadState
+    {
+        final int containerId = nextContainerId.getAndIncrement();
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() throws Throwable
+    {
+        metrics = (Object)newMetricsCollector.invokeExact();
+    }
+
+    @Benchmark
+    public void recordAccess(final ThreadState state) throws Throwable
+    {
+        recordAccess.invokeExact(metrics, state.containerId, "resource_0", 15L, 50, 80L);
+    }
+
+    @Benchmark
+    public void recordConflict(final ThreadState state) throws Throwable
+    {
+        recordConflict.invokeExact(metrics, state.containerId, "resource_0");
+    }
+}
@@ -0,0 +1,93 @@
+package Semaphore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquire/release throughput of the permit primitives used by the simulations.
+ *
+ * DistributedSemaphore runs with network latency simulation disabled and
+ * SharedCloudResource with a zero operation time, so only the synchronization
+ * cost is measured. Vary contention with -t (or BenchmarkRunner) and permits with -p.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SemaphoreBenchmark
+{
+    private static final MethodHandle newDistributedSemaphore =
+            UnnamedPackageAccess.constructor("DistributedSemaphore", int.class, String.class);
+    private static final MethodHandle acquire =
+            UnnamedPackageAccess.method("DistributedSemaphore", "acquire", Random.class, int.class, int.class, long.class);
+    private static final MethodHandle release =
+            UnnamedPackageAccess.method("DistributedSemaphore", "release", Random.class, int.class, int.class);
+
+    @Param({"1", "3", "16"})
+    public int permits;
+
+    private Object distributedSemaphore;
+    private SharedCloudResource sharedResource;
+    private java.util.concurrent.Semaphore fairSemaphore;
+    private java.util.concurrent.Semaphore unfairSemaphore;
+
+    @State(Scope.Thread)
+    public static class ThreadState
+    {
+        final Random random = new Random();
+    }
+
+    @Setup
+    public void setup() throws Throwable
+    {
+        distributedSemaphore = (Object)newDistributedSemaphore.invokeExact(permits, "sem_benchmark");
+        sharedResource       = new SharedCloudResource(permits);
+        fairSemaphore        = new java.util.concurrent.Semaphore(permits, true);
+        unfairSemaphore      = new java.util.concurrent.Semaphore(permits, false);
+    }
+
+    @Benchmark
+    public boolean distributedSemaphore(final ThreadState state) throws Throwable
+    {
+        boolean acquired = (boolean)acquire.invokeExact(distributedSemaphore, state.random, 0, 0, -1L);
+        release.invokeExact(distributedSemaphore, state.random, 0, 0);
+        return acquired;
+    }
+
+    @Benchmark
+    public boolean sharedCloudResourceWithSync()
+    {
+        return sharedResource.accessWithSync(0);
+    }
+
+    @Benchmark
+    public void jdkSemaphoreFair() throws InterruptedException
+    {
+        fairSemaphore.acquire();
+        fairSemaphore.release();
+    }
+
+    @Benchmark
+    public void jdkSemaphoreUnfair() throws InterruptedException
+    {
+        unfairSemaphore.acquire();
+        unfairSemaphore.release();
+    }
+}
@@ -0,0 +1,60 @@
+package Semaphore;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Method handles for the simulation classes that live in the unnamed package.
+ *
+ * JMH refuses benchmarks in the unnamed package and named packages cannot import from it,
+ * so the benchmarks reach those classes reflectively. Each handle is resolved once and
+ * stored in a static final field, where the JIT treats it as a constant and inlines the
+ * call like a direct one.
+ */
+final class UnnamedPackageAccess
+{
+    private UnnamedPackageAccess()
+    {
+    }
+
+    /**
+     * Get a constructor handle typed to return Object
+     */
+    static MethodHandle constructor(final String className,
+                                    final Class<?>... parameterTypes)
+    {
+        try
+        {
+            Constructor<?> constructor = Class.forName(className).getDeclaredConstructor(parameterTypes);
+            constructor.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflectConstructor(constructor);
+            return handle.asType(handle.type().changeReturnType(Object.class));
+        }
+        catch (final ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot access constructor of " + className, e);
+        }
+    }
+
+    /**
+     * Get an instance method handle whose receiver is typed as Object
+     */
+    static MethodHandle method(final String className,
+                               final String methodName,
+                               final Class<?>... parameterTypes)
+    {
+        try
+        {
+            Method method = Class.forName(className).getDeclaredMethod(methodName, parameterTypes);
+            method.setAccessible(true);
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        }
+        catch (final ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot access " + className + "." + methodName, e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+import java.util.Arrays;
+
+/**
+ * Columnar (struct-of-arrays) store of access events.
+ *
+ * Each field lives in its own primitive column, split into fixed-size chunks so the
+ * store grows without copying rows. Appending a row only writes into the current chunk;
+ * memory is allocated once per chunk, never per row. Resource ids are stored as indexes
+ * into a {@link ResourceIdTable}.
+ *
+ * Not thread-safe: callers serialize appends and reads.
+ */
+class AccessLogStore
+{
+    private static final int chunkBits = 13;
+    private static final int chunkSize = 1 << chunkBits;   // 8192 rows per chunk
+    private static final int chunkMask = chunkSize - 1;
+
+    private int[][] containerIds    = new int[4][];
+    private int[][] resourceIndexes = new int[4][];
+    private long[][] acquireTimes   = new long[4][];
+    private int[][] processingTimes = new int[4][];
+    private long[][] totalTimes     = new long[4][];
+    private long[][] startTimes     = new long[4][];
+
+    private int chunks = 0;
+    private int size   = 0;
+
+    public void append(final int containerId,
+                       final int resourceIndex,
+                       final long acquireTime,
+                       final int processingTime,
+                       final long totalTime,
+                       final long startTime)
+    {
+        int chunk  = size >>> chunkBits;
+        int offset = size & chunkMask;
+        if (chunk == chunks)
+        {
+            addChunk();
+        }
+
+        containerIds[chunk][offset]    = containerId;
+        resourceIndexes[chunk][offset] = resourceIndex;
+        acquireTimes[chunk][offset]    = acquireTime;
+        processingTimes[chunk][offset] = processingTime;
+        totalTimes[chunk][offset]      = totalTime;
+        startTimes[chunk][offset]      = startTime;
+        size++;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Forget all rows but keep the allocated capacity for reuse
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int containerId(final int row)
+    {
+        return containerIds[row >>> chunkBits][row & chunkMask];
+    }
+
+    public int resourceIndex(final int row)
+    {
+        return resourceIndexes[row >>> chunkBits][row & chunkMask];
+    }
+
+    public long acquireTime(final int row)
+    {
+        return acquireTimes[row >>> chunkBits][row & chunkMask];
+    }
+
+    public int processingTime(final int row)
+    {
+        return processingTimes[row >>> chunkBits][row & chunkMask];
+    }
+
+    public long totalTime(final int row)
+    {
+        return totalTimes[row >>> chunkBits][row & chunkMask];
+    }
+
+    /**
+     * Get when the access started, in ms since the run started, or -1 if unknown
+     */
+    public long startTime(final int row)
+    {
+        return startTimes[row >>> chunkBits][row & chunkMask];
+    }
+
+    private void addChunk()
+    {
+        if (chunks == containerIds.length)
+        {
+            int capacity    = chunks * 2;
+            containerIds    = Arrays.copyOf(containerIds, capacity);
+            resourceIndexes = Arrays.copyOf(resourceIndexes, capacity);
+            acquireTimes    = Arrays.copyOf(acquireTimes, capacity);
+            processingTimes = Arrays.copyOf(processingTimes, capacity);
+            totalTimes      = Arrays.copyOf(totalTimes, capacity);
+            startTimes      = Arrays.copyOf(startTimes, capacity);
+        }
+
+        containerIds[chunks]    = new int[chunkSize];
+        resourceIndexes[chunks] = new int[chunkSize];
+        acquireTimes[chunks]    = new long[chunkSize];
+        processingTimes[chunks] = new int[chunkSize];
+        totalTimes[chunks]      = new long[chunkSize];
+        startTimes[chunks]      = new long[chunkSize];
+        chunks++;
+    }
+}
@@ -0,0 +1,23 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for an access that gave up waiting for its permit
+ */
+@Name("CloudSync.AccessTimeout")
+@Label("Access Timeout")
+@Category({"CloudSync", "Resource"})
+@Description("A container gave up waiting for a permit")
+@StackTrace(false)
+class AccessTimeoutEvent extends Event
+{
+    @Label("Container Id")
+    int containerId;
+
+    @Label("Resource Id")
+    String resourceId;
+}
@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Access requests read back from the "# Access Logs" section of a metrics file, from
+ * any CSV with the same columns, or from a binary metrics log, ordered by the time they
+ * were issued.
+ *
+ * A StartTimeMs column gives each request's arrival time directly. Logs written before
+ * start times were captured, and traces without them, are rebuilt per container: rows
+ * of one container are in the order it issued them, every container starts at time zero,
+ * and each request follows the previous one's total time plus a think time, as
+ * {@link Container} does.
+ */
+class AccessTrace
+{
+    final int[] containerIds;
+    final String[] resourceIds;
+    final int[] processingTimes;
+    final long[] startTimes;
+    final int maxConcurrentAccess;   // From the file's configuration section, 0 if it has none
+    final boolean rebuilt;           // True if start times were rebuilt rather than read
+
+    private AccessTrace(final int[] containerIds,
+                        final String[] resourceIds,
+                        final int[] processingTimes,
+                        final long[] startTimes,
+                        final int maxConcurrentAccess,
+                        final boolean rebuilt)
+    {
+        this.containerIds        = containerIds;
+        this.resourceIds         = resourceIds;
+        this.processingTimes     = processingTimes;
+        this.startTimes          = startTimes;
+        this.maxConcurrentAccess = maxConcurrentAccess;
+        this.rebuilt             = rebuilt;
+    }
+
+    /**
+     * Load a trace
+     * @param thinkTimeMs gap between a container's requests when start times have to be rebuilt
+     */
+    static AccessTrace load(final String filename,
+                            final int thinkTimeMs) throws IOException
+    {
+        if (BinaryMetricsReader.isBinary(filename))
+        {
+            return loadBinary(filename, thinkTimeMs);
+        }
+
+        List<String[]> rows          = new ArrayList<>();
+        Map<String, Integer> columns = null;
+        int maxConcurrentAccess      = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filename)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                // Spreadsheet exports pad every row with ';' cells
+                int padding = line.indexOf(';');
+                if (padding >= 0)
+                {
+                    line = line.substring(0, padding);
+                }
+                line = line.trim();
+
+                if (columns == null)
+                {
+                    if (line.startsWith("MaxConcurrentAccess,"))
+                    {
+                        maxConcurrentAccess = Integer.parseInt(line.substring(line.indexOf(',') + 1).trim());
+                    }
+                    else if (line.startsWith("ContainerId,"))
+                    {
+                        columns = new HashMap<>();
+                        String[] names = line.split(",");
+                        for (int i = 0; i < names.length; i++)
+                        {
+                            columns.put(names[i].trim(), i);
+                        }
+                    }
+                    continue;
+                }
+
+                // The section ends at the first blank line or the next section
+                if (line.isEmpty() || line.startsWith("#"))
+                {
+                    break;
+                }
+                rows.add(line.split(","));
+            }
+        }
+
+        if (columns == null)
+        {
+            throw new IOException("No access log header (ContainerId,ResourceId,...) in " + filename);
+        }
+        int containerColumn  = column(columns, "ContainerId", filename);
+        int resourceColumn   = column(columns, "ResourceId", filename);
+        int processingColumn = column(columns, "ProcessingTimeMs", filename);
+        int totalColumn      = column(columns, "TotalTimeMs", filename);
+        Integer startColumn  = columns.get("StartTimeMs");
+
+        int count             = rows.size();
+        int[] containerIds    = new int[count];
+        String[] resourceIds  = new String[count];
+        int[] processingTimes = new int[count];
+        long[] totalTimes     = new long[count];
+        long[] startTimes     = new long[count];
+        boolean rebuild       = startColumn == null;
+        for (int i = 0; i < count; i++)
+        {
+            String[] row       = rows.get(i);
+            containerIds[i]    = Integer.parseInt(row[containerColumn].trim());
+            resourceIds[i]     = row[resourceColumn].trim();
+            processingTimes[i] = Integer.parseInt(row[processingColumn].trim());
+            totalTimes[i]      = Long.parseLong(row[totalColumn].trim());
+            if (!rebuild)
+            {
+                startTimes[i] = Long.parseLong(row[startColumn].trim());
+                rebuild       = startTimes[i] < 0;
+            }
+        }
+        return build(containerIds, resourceIds, processingTimes, totalTimes, startTimes,
+                maxConcurrentAccess, rebuild, thinkTimeMs);
+    }
+
+    /**
+     * Load the access records of a binary metrics log; version 1 logs have no start times
+     */
+    private static AccessTrace loadBinary(final String filename,
+                                          final int thinkTimeMs) throws IOException
+    {
+        try (BinaryMetricsReader reader = new BinaryMetricsReader(filename))
+        {
+            int records           = (int)reader.getRecordCount();
+            int[] containerIds    = new int[records];
+            String[] resourceIds  = new String[records];
+            int[] processingTimes = new int[records];
+            long[] totalTimes     = new long[records];
+            long[] startTimes     = new long[records];
+            int[] count           = new int[1];
+            boolean[] rebuild     = new boolean[1];
+
+            reader.forEachRecord((type, containerId, resourceIndex, acquireTimeMs, processingTimeMs, totalTimeMs,
+                                  startTimeMs) ->
+            {
+                if (type != BinaryMetricsFormat.typeAccess)
+                {
+                    return;
+                }
+                int i              = count[0]++;
+                containerIds[i]    = containerId;
+                resourceIds[i]     = reader.getResourceId(resourceIndex);
+                processingTimes[i] = processingTimeMs;
+                totalTimes[i]      = totalTimeMs;
+                startTimes[i]      = startTimeMs;
+                rebuild[0]        |= startTimeMs < 0;
+            });
+
+            int n = count[0];
+            return build(Arrays.copyOf(containerIds, n), Arrays.copyOf(resourceIds, n),
+                    Arrays.copyOf(processingTimes, n), Arrays.copyOf(totalTimes, n), Arrays.copyOf(startTimes, n),
+                    reader.getConfig().maxConcurrentAccess, rebuild[0], thinkTimeMs);
+        }
+    }
+
+    /**
+     * Rebuild missing start times if needed and put the requests in issue order
+     */
+    private static AccessTrace build(final int[] containerIds,
+                                     final String[] resourceIds,
+                                     final int[] processingTimes,
+                                     final long[] totalTimes,
+                                     final long[] startTimes,
+                                     final int maxConcurrentAccess,
+                                     final boolean rebuild,
+                                     final int thinkTimeMs)
+    {
+        int count = containerIds.length;
+        if (rebuild)
+        {
+            // Each container issues its next request a think time after the last one finished
+            Map<Integer, Long> nextStart = new HashMap<>();
+            for (int i = 0; i < count; i++)
+            {
+                long start    = nextStart.getOrDefault(containerIds[i], 0L);
+                startTimes[i] = start;
+                nextStart.put(containerIds[i], start + totalTimes[i] + thinkTimeMs);
+            }
+        }
+
+        // Issue order; ties keep file order
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> startTimes[i]));
+
+        int[] sortedContainers   = new int[count];
+        String[] sortedResources = new String[count];
+        int[] sortedProcessing   = new int[count];
+        long[] sortedStarts      = new long[count];
+        for (int i = 0; i < count; i++)
+        {
+            sortedContainers[i] = containerIds[order[i]];
+            sortedResources[i]  = resourceIds[order[i]];
+            sortedProcessing[i] = processingTimes[order[i]];
+            sortedStarts[i]     = startTimes[order[i]];
+        }
+        return new AccessTrace(sortedContainers, sortedResources, sortedProcessing, sortedStarts,
+                maxConcurrentAccess, rebuild);
+    }
+
+    int size()
+    {
+        return containerIds.length;
+    }
+
+    /**
+     * Time from the first request to the last one being issued, at recorded speed
+     */
+    long spanMs()
+    {
+        return startTimes.length == 0 ? 0 : startTimes[startTimes.length - 1] - startTimes[0];
+    }
+
+    private static int column(final Map<String, Integer> columns,
+                              final String name,
+                              final String filename) throws IOException
+    {
+        Integer index = columns.get(name);
+        if (index == null)
+        {
+            throw new IOException("Access log in " + filename + " has no " + name + " column");
+        }
+        return index;
+    }
+}
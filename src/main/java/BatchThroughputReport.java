@@ -0,0 +1,56 @@
+import Semaphore.PermitStats;
+import Semaphore.ReportRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares synchronized throughput for batch sizes from 1 up to the semaphore's permit count.
+ *
+ * A batch of n operations costs one acquire and one release round trip instead of n of each,
+ * so operations per second should rise with the batch size until permits run out.
+ * Round trips per operation are the acquire and release calls the semaphores actually saw,
+ * timed-out acquires included, divided by the operations completed.
+ *
+ * Usage: java BatchThroughputReport [secondsPerRun]
+ */
+public class BatchThroughputReport
+{
+    public static void main(String[] args)
+    {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int permits = new SimulationConfig().maxConcurrentAccess;
+
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (int batchSize = 1; batchSize <= permits; batchSize++)
+        {
+            SimulationConfig config      = new SimulationConfig();
+            config.simulationTimeSeconds = seconds;
+            config.enableSynchronization = true;
+            config.batchSize             = batchSize;
+            config.metricsOutputFile     = "batch_" + batchSize + "_simulation_metrics.csv";
+            configs.add(config);
+        }
+
+        ReportRunner.run("Batched Access Throughput",
+                "BatchSize,Operations,OperationsPerSecond,RoundTripsPerOperation,Timeouts,P99TotalTimeMs",
+                configs,
+                CloudSimulation::simulate,
+                (table, config, metrics) ->
+                {
+                    long roundTrips = 0;
+                    for (final PermitStats stats : metrics.getSemaphoreStats().values())
+                    {
+                        roundTrips += stats.getAcquireCalls() + stats.getReleaseCalls();
+                    }
+                    long operations = metrics.getSuccessfulRequests();
+
+                    table.row(config.batchSize,
+                            operations,
+                            String.format("%.1f", operations / (double)seconds),
+                            String.format("%.2f", operations == 0 ? 0 : roundTrips / (double)operations),
+                            metrics.getTimeoutCount(),
+                            metrics.getOverallLatency().totalTime.valueAtPercentile(99));
+                });
+    }
+}
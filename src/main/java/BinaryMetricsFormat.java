@@ -0,0 +1,58 @@
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the compact binary metrics log.
+ *
+ * <pre>
+ * Header (64 bytes, little-endian)
+ *   0  int   magic "CSML"          32 int  networkLatencyMeanMs
+ *   4  int   version               36 int  processingTimeMeanMs
+ *   8  int   recordSize            40 long durationMs
+ *  12  int   numContainers         48 long recordCount
+ *  16  int   numResources          56 long resourceTableOffset
+ *  20  int   simulationTimeSeconds
+ *  24  int   maxConcurrentAccess
+ *  28  int   enableSynchronization (0 or 1)
+ *
+ * Records (24 bytes each, directly after the header)
+ *   int type (top 8 bits) | resourceIndex (low 24 bits), int containerId,
+ *   int acquireTimeMs, int processingTimeMs, int totalTimeMs,
+ *   int startTimeMs (ms since the run started, -1 if unknown or not an access)
+ *
+ * Version 1 records are 20 bytes, without startTimeMs; readers still accept them.
+ *
+ * Resource table (at resourceTableOffset)
+ *   int count, then per resource: short length, ASCII bytes
+ * </pre>
+ */
+final class BinaryMetricsFormat
+{
+    static final int magic        = 0x4C4D5343;   // "CSML" read little-endian
+    static final int version      = 2;
+    static final int headerSize   = 64;
+    static final int recordSize   = 24;
+    static final int v1RecordSize = 20;           // Version 1 records, without a start time
+    static final ByteOrder order  = ByteOrder.LITTLE_ENDIAN;
+
+    static final int typeAccess   = 0;
+    static final int typeConflict = 1;
+    static final int typeTimeout  = 2;
+    static final int typeShift    = 24;
+    static final int resourceMask = (1 << typeShift) - 1;
+
+    // Header field offsets
+    static final int numContainersOffset      = 12;
+    static final int numResourcesOffset       = 16;
+    static final int simulationTimeOffset     = 20;
+    static final int maxConcurrentOffset      = 24;
+    static final int syncEnabledOffset        = 28;
+    static final int networkLatencyMeanOffset = 32;
+    static final int processingTimeMeanOffset = 36;
+    static final int durationOffset           = 40;
+    static final int recordCountOffset        = 48;
+    static final int resourceTableOffset      = 56;
+
+    private BinaryMetricsFormat()
+    {
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped reader for the binary metrics log ({@link BinaryMetricsFormat}).
+ *
+ * Records are scanned straight out of the page cache in mapped windows of up to 1 GB,
+ * so files with hundreds of millions of records are read without copying or allocating
+ * per record.
+ */
+class BinaryMetricsReader implements Closeable
+{
+    /**
+     * Receives one record at a time; the arguments are only valid for the duration of the call
+     */
+    interface RecordVisitor
+    {
+        void visit(int type,
+                   int containerId,
+                   int resourceIndex,
+                   int acquireTimeMs,
+                   int processingTimeMs,
+                   int totalTimeMs,
+                   int startTimeMs);
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer header;
+    private final int recordSize;   // Version 1 records have no start time
+    private final String[] resourceIds;
+
+    public BinaryMetricsReader(final String filename) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        header  = channel.map(FileChannel.MapMode.READ_ONLY, 0, BinaryMetricsFormat.headerSize)
+                .order(BinaryMetricsFormat.order);
+
+        if (header.getInt(0) != BinaryMetricsFormat.magic)
+        {
+            channel.close();
+            throw new IOException(filename + " is not a binary metrics log");
+        }
+        int version = header.getInt(4);
+        if (version != 1 && version != BinaryMetricsFormat.version)
+        {
+            channel.close();
+            throw new IOException("Unsupported binary metrics version " + version);
+        }
+        recordSize = version == 1 ? BinaryMetricsFormat.v1RecordSize : BinaryMetricsFormat.recordSize;
+
+        // Resource table sits after the records
+        long tableOffset = header.getLong(BinaryMetricsFormat.resourceTableOffset);
+        ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, channel.size() - tableOffset)
+                .order(BinaryMetricsFormat.order);
+        resourceIds      = new String[table.getInt()];
+        for (int i = 0; i < resourceIds.length; i++)
+        {
+            byte[] name = new byte[table.getShort()];
+            table.get(name);
+            resourceIds[i] = new String(name, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Scan every record in file order
+     */
+    public void forEachRecord(final RecordVisitor visitor) throws IOException
+    {
+        long windowRecords = (1L << 30) / recordSize;
+        long remaining     = getRecordCount();
+        long position      = BinaryMetricsFormat.headerSize;
+        boolean hasStart   = recordSize > BinaryMetricsFormat.v1RecordSize;
+
+        while (remaining > 0)
+        {
+            long records            = Math.min(remaining, windowRecords);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, records * recordSize);
+            mapped.order(BinaryMetricsFormat.order);
+
+            int end = (int)(records * recordSize);
+            for (int offset = 0; offset < end; offset += recordSize)
+            {
+                int typeAndResource = mapped.getInt(offset);
+                visitor.visit(typeAndResource >>> BinaryMetricsFormat.typeShift,
+                        mapped.getInt(offset + 4),
+                        typeAndResource & BinaryMetricsFormat.resourceMask,
+                        mapped.getInt(offset + 8),
+                        mapped.getInt(offset + 12),
+                        mapped.getInt(offset + 16),
+                        hasStart ? mapped.getInt(offset + 20) : -1);
+            }
+
+            position  += records * recordSize;
+            remaining -= records;
+        }
+    }
+
+    /**
+     * Check whether a file starts with the binary metrics magic number
+     */
+    static boolean isBinary(final String filename) throws IOException
+    {
+        try (FileChannel file = FileChannel.open(Paths.get(filename), StandardOpenOption.READ))
+        {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(BinaryMetricsFormat.order);
+            return file.read(magic) == 4 && magic.getInt(0) == BinaryMetricsFormat.magic;
+        }
+    }
+
+    public long getRecordCount()
+    {
+        return header.getLong(BinaryMetricsFormat.recordCountOffset);
+    }
+
+    public long getDurationMs()
+    {
+        return header.getLong(BinaryMetricsFormat.durationOffset);
+    }
+
+    public String getResourceId(final int index)
+    {
+        return resourceIds[index];
+    }
+
+    /**
+     * Rebuild the configuration fields stored in the header
+     */
+    public SimulationConfig getConfig()
+    {
+        SimulationConfig config      = new SimulationConfig();
+        config.numContainers         = header.getInt(BinaryMetricsFormat.numContainersOffset);
+        config.numResources          = header.getInt(BinaryMetricsFormat.numResourcesOffset);
+        config.simulationTimeSeconds = header.getInt(BinaryMetricsFormat.simulationTimeOffset);
+        config.maxConcurrentAccess   = header.getInt(BinaryMetricsFormat.maxConcurrentOffset);
+        config.enableSynchronization = header.getInt(BinaryMetricsFormat.syncEnabledOffset) != 0;
+        config.networkLatencyMeanMs  = header.getInt(BinaryMetricsFormat.networkLatencyMeanOffset);
+        config.processingTimeMeanMs  = header.getInt(BinaryMetricsFormat.processingTimeMeanOffset);
+        return config;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
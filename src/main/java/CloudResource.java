@@ -1,17 +1,21 @@
+import Semaphore.WaitQueue;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
-class CloudResource
+class CloudResource implements CloudResourceMBean
 {
-    private static final int timeOutMs = 1000;
+    static final int timeOutMs = 1000;
     private final String resourceId;
     private final DistributedSemaphore semaphore;
 
     private final AtomicInteger currentUsers  = new AtomicInteger(0);
     private final AtomicInteger totalAccesses = new AtomicInteger(0);
     private final AtomicInteger conflictCount = new AtomicInteger(0);
+    private final AtomicInteger activeReaders = new AtomicInteger(0);
+    private final AtomicInteger activeWriters = new AtomicInteger(0);
 
     public CloudResource(final String id,
                          final int maxConcurrentAccess)
@@ -20,6 +24,37 @@ class CloudResource
         this.semaphore  = new DistributedSemaphore(maxConcurrentAccess, "sem_" + id);
     }
 
+    /**
+     * Resource whose queued containers are served in the order the given queue decides
+     */
+    public CloudResource(final String id,
+                         final int maxConcurrentAccess,
+                         final WaitQueue waiters)
+    {
+        this(id, new DistributedSemaphore(maxConcurrentAccess, "sem_" + id, waiters));
+    }
+
+    /**
+     * Resource guarded by a semaphore kept on a coordinator
+     */
+    public CloudResource(final String id,
+                         final int maxConcurrentAccess,
+                         final CoordinatorClient coordinator)
+    {
+        this(id, new DistributedSemaphore(maxConcurrentAccess, "sem_" + id,
+                new RemotePermitBackend(coordinator, "sem_" + id, maxConcurrentAccess)));
+    }
+
+    /**
+     * Resource guarded by a semaphore created elsewhere, such as on a coordinator shard
+     */
+    public CloudResource(final String id,
+                         final DistributedSemaphore semaphore)
+    {
+        this.resourceId = id;
+        this.semaphore  = semaphore;
+    }
+
     /**
      * Access the resource with synchronization
      */
@@ -28,18 +63,36 @@ class CloudResource
                                final SimulationConfig config,
                                final MetricsCollector metrics)
     {
+        accessWithSync(containerId, Instant.now(), random, config, metrics);
+    }
 
-        Instant startTime = Instant.now();
+    /**
+     * Access the resource with synchronization, timed from when the request was meant to be
+     * sent, so an open-loop request that started late is charged for the delay
+     */
+    public void accessWithSync(final int containerId,
+                               final Instant startTime,
+                               final Random random,
+                               final SimulationConfig config,
+                               final MetricsCollector metrics)
+    {
+        int priority = containerPriority(containerId, config);
 
         // Try to acquire the semaphore with timeout
         boolean acquired = semaphore.acquire
-                (random,
+                (containerTenant(containerId),
+                priority,
+                random,
                 config.networkLatencyMeanMs,
                 config.networkLatencyStdDevMs,
                 timeOutMs);  // 5-second timeout
 
         Instant acquireTime = Instant.now();
         long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+        if (config.highPriorityContainers > 0)
+        {
+            metrics.recordPriorityWait(priority, acquireDuration);
+        }
 
         if (!acquired)
         {
@@ -68,14 +121,15 @@ class CloudResource
         // Check for potential conflicts (should never happen with proper synchronization)
         if (users > semaphore.getMaxValue())
         {
-            conflictCount.incrementAndGet();
+            conflict(containerId, "capacity", users);
             metrics.recordConflict(containerId, resourceId);
         }
 
         currentUsers.decrementAndGet();
 
         // Release the semaphore
-        semaphore.release(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+        semaphore.release(containerTenant(containerId), random,
+                config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
 
         Instant endTime    = Instant.now();
         long totalDuration = Duration.between(startTime, endTime).toMillis();
@@ -84,6 +138,106 @@ class CloudResource
         metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
     }
 
+    /**
+     * Access the resource with synchronization, keeping the permit as a lease afterwards.
+     * A lease still parked on this resource is reused without an acquire round trip,
+     * and the permit is only released over the network when other containers are queued.
+     * @param lease the lease the container holds from its last access, or null
+     * @return the lease the container holds now, or null if it holds none
+     */
+    public PermitLease accessWithLease(final int containerId,
+                                       final PermitLease lease,
+                                       final LeaseManager leases,
+                                       final Random random,
+                                       final SimulationConfig config,
+                                       final MetricsCollector metrics)
+    {
+        Instant startTime = Instant.now();
+        int saved         = 0;
+
+        boolean reused = lease != null && lease.tryReuse(semaphore);
+        if (reused)
+        {
+            saved++;
+        }
+        else if (lease != null && lease.giveBack(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs))
+        {
+            // The release deferred by the last access is paid now
+            saved--;
+        }
+
+        PermitLease held = lease;
+        if (!reused)
+        {
+            boolean acquired = semaphore.acquire
+                    (containerTenant(containerId),
+                    containerPriority(containerId, config),
+                    random,
+                    config.networkLatencyMeanMs,
+                    config.networkLatencyStdDevMs,
+                    timeOutMs);
+
+            if (!acquired)
+            {
+                metrics.recordTimeout(containerId, resourceId);
+                metrics.recordRoundTripsSaved(saved);
+                return null;
+            }
+            held = leases.grant(semaphore, containerTenant(containerId));
+        }
+
+        Instant acquireTime = Instant.now();
+        long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+
+        int users = currentUsers.incrementAndGet();
+        totalAccesses.incrementAndGet();
+
+        // Simulate processing time for using the resource
+        int processingTime = Math.max(1, (int)(random.nextGaussian() *
+                config.processingTimeStdDevMs +
+                config.processingTimeMeanMs));
+        try
+        {
+            Thread.sleep(processingTime);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // Check for potential conflicts (should never happen with proper synchronization)
+        if (users > semaphore.getMaxValue())
+        {
+            conflict(containerId, "capacity", users);
+            metrics.recordConflict(containerId, resourceId);
+        }
+
+        currentUsers.decrementAndGet();
+
+        // Hand the permit straight back if someone is waiting for it, otherwise keep it
+        if (semaphore.isRemote())
+        {
+            metrics.recordLeaseProbe();
+        }
+        if (semaphore.hasQueuedWaiters())
+        {
+            held.giveBack(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+            held = null;
+        }
+        else
+        {
+            held.park();
+            saved++;
+        }
+
+        Instant endTime    = Instant.now();
+        long totalDuration = Duration.between(startTime, endTime).toMillis();
+
+        metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
+        metrics.recordLeaseAccess(reused, saved, totalDuration);
+        return held;
+    }
+
     /**
      * Access the resource without synchronization (for comparison)
      */
@@ -92,9 +246,18 @@ class CloudResource
                                   final SimulationConfig config,
                                   final MetricsCollector metrics)
     {
+        accessWithoutSync(containerId, Instant.now(), random, config, metrics);
+    }
 
-        Instant startTime = Instant.now();
-
+    /**
+     * Access the resource without synchronization, timed from when the request was meant to be sent
+     */
+    public void accessWithoutSync(final int containerId,
+                                  final Instant startTime,
+                                  final Random random,
+                                  final SimulationConfig config,
+                                  final MetricsCollector metrics)
+    {
         // Simulate network latency (but no semaphore acquisition)
         simulateNetworkLatency(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
 
@@ -121,7 +284,7 @@ class CloudResource
         // Check for conflicts (will happen without synchronization)
         if (users > semaphore.getMaxValue())
         {
-            conflictCount.incrementAndGet();
+            conflict(containerId, "capacity", users);
             metrics.recordConflict(containerId, resourceId);
         }
 
@@ -137,6 +300,333 @@ class CloudResource
         metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
     }
 
+    /**
+     * Run one read or one write.
+     * A read takes a single permit and shares the resource with other reads; a write takes
+     * {@code writePermits} permits, all of them by default, so it runs alone. Permits are
+     * granted in queue order and a queued write keeps later reads from overtaking it, so
+     * a steady stream of reads cannot starve writers. Overlapping reads are never a
+     * conflict; a write overlapping a read (when writes are exclusive) or more writes
+     * than the permits allow are.
+     */
+    public void accessReadWrite(final int containerId,
+                                final boolean write,
+                                final boolean useSync,
+                                final Random random,
+                                final SimulationConfig config,
+                                final MetricsCollector metrics)
+    {
+        Instant startTime = Instant.now();
+        int writePermits  = config.writePermits > 0 ? config.writePermits : semaphore.getMaxValue();
+        int permits       = write ? writePermits : 1;
+
+        if (useSync)
+        {
+            if (!semaphore.tryAcquire(containerTenant(containerId),
+                    containerPriority(containerId, config),
+                    permits,
+                    timeOutMs,
+                    random,
+                    config.networkLatencyMeanMs,
+                    config.networkLatencyStdDevMs))
+            {
+                metrics.recordTimeout(containerId, resourceId);
+                return;
+            }
+        }
+        else
+        {
+            simulateNetworkLatency(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+        }
+
+        Instant acquireTime = Instant.now();
+        long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+
+        currentUsers.incrementAndGet();
+        totalAccesses.incrementAndGet();
+        boolean exclusiveWrites = writePermits == semaphore.getMaxValue();
+        if (write)
+        {
+            int writers = activeWriters.incrementAndGet();
+            if (writers > semaphore.getMaxValue() / writePermits)
+            {
+                conflict(containerId, "write-write", writers);
+                metrics.recordWriteWriteConflict(containerId, resourceId);
+            }
+            else if (exclusiveWrites && activeReaders.get() > 0)
+            {
+                conflict(containerId, "read-write", writers + activeReaders.get());
+                metrics.recordReadWriteConflict(containerId, resourceId);
+            }
+        }
+        else
+        {
+            int readers = activeReaders.incrementAndGet();
+            if (exclusiveWrites && activeWriters.get() > 0)
+            {
+                conflict(containerId, "read-write", readers + activeWriters.get());
+                metrics.recordReadWriteConflict(containerId, resourceId);
+            }
+        }
+
+        // Simulate processing time for using the resource
+        int processingTime = Math.max(1, (int)(random.nextGaussian() *
+                config.processingTimeStdDevMs +
+                config.processingTimeMeanMs));
+        try
+        {
+            Thread.sleep(processingTime);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        (write ? activeWriters : activeReaders).decrementAndGet();
+        currentUsers.decrementAndGet();
+
+        if (useSync)
+        {
+            semaphore.release(containerTenant(containerId), permits, random,
+                    config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+        }
+        else
+        {
+            simulateNetworkLatency(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+        }
+
+        Instant endTime    = Instant.now();
+        long totalDuration = Duration.between(startTime, endTime).toMillis();
+
+        metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
+        metrics.recordReadWrite(write, totalDuration);
+    }
+
+    /**
+     * Replay one recorded access: the processing time comes from the trace instead of
+     * being drawn, and only the network latency and the semaphore wait are simulated
+     */
+    public void replayAccess(final int containerId,
+                             final int processingTime,
+                             final boolean useSync,
+                             final Random random,
+                             final SimulationConfig config,
+                             final MetricsCollector metrics)
+    {
+        Instant startTime = Instant.now();
+
+        if (useSync)
+        {
+            if (!acquirePermit(containerId, timeOutMs, random, config))
+            {
+                metrics.recordTimeout(containerId, resourceId);
+                return;
+            }
+        }
+        else
+        {
+            simulateRoundTrip(random, config);
+        }
+
+        Instant acquireTime = Instant.now();
+        long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+
+        beginUse(containerId, metrics);
+        try
+        {
+            Thread.sleep(processingTime);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        endUse();
+
+        if (useSync)
+        {
+            releasePermit(containerId, random, config);
+        }
+        else
+        {
+            simulateRoundTrip(random, config);
+        }
+
+        Instant endTime    = Instant.now();
+        long totalDuration = Duration.between(startTime, endTime).toMillis();
+
+        metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
+    }
+
+    /**
+     * Take one permit for a container as part of a multi-resource transaction
+     * @param timeoutMs 0 tries once without queueing
+     */
+    boolean acquirePermit(final int containerId,
+                          final long timeoutMs,
+                          final Random random,
+                          final SimulationConfig config)
+    {
+        return semaphore.tryAcquire(containerTenant(containerId), containerPriority(containerId, config), 1,
+                timeoutMs, random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+    }
+
+    /**
+     * Give back a permit taken with {@link #acquirePermit}
+     */
+    void releasePermit(final int containerId,
+                       final Random random,
+                       final SimulationConfig config)
+    {
+        semaphore.release(containerTenant(containerId), random,
+                config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+    }
+
+    /**
+     * Pay the network round trip an unsynchronized access makes instead of a semaphore call
+     */
+    void simulateRoundTrip(final Random random,
+                           final SimulationConfig config)
+    {
+        simulateNetworkLatency(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+    }
+
+    /**
+     * Start using the resource inside a transaction, checking for too many users
+     */
+    void beginUse(final int containerId,
+                  final MetricsCollector metrics)
+    {
+        int users = currentUsers.incrementAndGet();
+        totalAccesses.incrementAndGet();
+        if (users > semaphore.getMaxValue())
+        {
+            conflict(containerId, "capacity", users);
+            metrics.recordConflict(containerId, resourceId);
+        }
+    }
+
+    void endUse()
+    {
+        currentUsers.decrementAndGet();
+    }
+
+    /**
+     * Run a batch of operations with synchronization.
+     * All permits are taken in one semaphore round trip and given back in another,
+     * and the operations run side by side while the permits are held.
+     */
+    public void accessBatchWithSync(final int containerId,
+                                    final int batchSize,
+                                    final Random random,
+                                    final SimulationConfig config,
+                                    final MetricsCollector metrics)
+    {
+        Instant startTime = Instant.now();
+
+        // One round trip for the whole batch
+        boolean acquired = semaphore.tryAcquire(containerTenant(containerId),
+                containerPriority(containerId, config),
+                batchSize,
+                timeOutMs,
+                random,
+                config.networkLatencyMeanMs,
+                config.networkLatencyStdDevMs);
+
+        Instant acquireTime = Instant.now();
+        long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+
+        if (!acquired)
+        {
+            metrics.recordTimeout(containerId, resourceId);
+            return;
+        }
+
+        int[] processingTimes = runBatch(containerId, batchSize, random, config, metrics);
+
+        semaphore.release(containerTenant(containerId), batchSize, random,
+                config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+
+        Instant endTime    = Instant.now();
+        long totalDuration = Duration.between(startTime, endTime).toMillis();
+
+        // One log entry per operation in the batch
+        for (final int processingTime : processingTimes)
+        {
+            metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
+        }
+    }
+
+    /**
+     * Run a batch of operations without synchronization (for comparison)
+     */
+    public void accessBatchWithoutSync(final int containerId,
+                                       final int batchSize,
+                                       final Random random,
+                                       final SimulationConfig config,
+                                       final MetricsCollector metrics)
+    {
+        Instant startTime = Instant.now();
+
+        simulateNetworkLatency(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+
+        Instant acquireTime = Instant.now();
+        long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+
+        int[] processingTimes = runBatch(containerId, batchSize, random, config, metrics);
+
+        simulateNetworkLatency(random, config.networkLatencyMeanMs, config.networkLatencyStdDevMs);
+
+        Instant endTime    = Instant.now();
+        long totalDuration = Duration.between(startTime, endTime).toMillis();
+
+        for (final int processingTime : processingTimes)
+        {
+            metrics.recordAccess(containerId, resourceId, acquireDuration, processingTime, totalDuration);
+        }
+    }
+
+    /**
+     * Use the resource for a batch of parallel operations; the batch takes as long as its slowest one
+     * @return the processing time of each operation
+     */
+    private int[] runBatch(final int containerId,
+                           final int batchSize,
+                           final Random random,
+                           final SimulationConfig config,
+                           final MetricsCollector metrics)
+    {
+        int users = currentUsers.addAndGet(batchSize);
+        totalAccesses.addAndGet(batchSize);
+
+        int[] processingTimes = new int[batchSize];
+        int longest           = 0;
+        for (int i = 0; i < batchSize; i++)
+        {
+            processingTimes[i] = Math.max(1, (int)(random.nextGaussian() *
+                    config.processingTimeStdDevMs +
+                    config.processingTimeMeanMs));
+            longest = Math.max(longest, processingTimes[i]);
+        }
+
+        try
+        {
+            Thread.sleep(longest);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        if (users > semaphore.getMaxValue())
+        {
+            conflict(containerId, "capacity", users);
+            metrics.recordConflict(containerId, resourceId);
+        }
+
+        currentUsers.addAndGet(-batchSize);
+        return processingTimes;
+    }
+
     private void simulateNetworkLatency(final Random random,
                                         final int meanMs,
                                         final int stdDevMs)
@@ -152,22 +642,74 @@ class CloudResource
         }
     }
 
+    /**
+     * Tenant id a container queues under, as used for fair-queueing weights
+     */
+    static String containerTenant(final int containerId)
+    {
+        return "container_" + containerId;
+    }
+
+    /**
+     * Priority class a container queues in; the first {@code highPriorityContainers} are served first
+     */
+    static int containerPriority(final int containerId,
+                                 final SimulationConfig config)
+    {
+        return containerId < config.highPriorityContainers ? 1 : 0;
+    }
+
+    /**
+     * Count a conflict and report it to Flight Recorder
+     * @param users containers using the resource when the conflict was seen
+     */
+    private void conflict(final int containerId,
+                          final String kind,
+                          final int users)
+    {
+        conflictCount.incrementAndGet();
+
+        ResourceConflictEvent event = new ResourceConflictEvent();
+        if (event.shouldCommit())
+        {
+            event.containerId      = containerId;
+            event.resourceId       = resourceId;
+            event.kind             = kind;
+            event.users            = users;
+            event.maxUsers         = semaphore.getMaxValue();
+            event.availablePermits = semaphore.localAvailablePermits();
+            event.commit();
+        }
+    }
+
+    /**
+     * Get the semaphore guarding the resource, for monitoring
+     */
+    DistributedSemaphore getSemaphore()
+    {
+        return semaphore;
+    }
+
     // Getters for metrics
+    @Override
     public int getTotalAccesses()
     {
         return totalAccesses.get();
     }
 
+    @Override
     public int getConflictCount()
     {
         return conflictCount.get();
     }
 
+    @Override
     public int getCurrentUsers()
     {
         return currentUsers.get();
     }
 
+    @Override
     public String getId()
     {
         return resourceId;
@@ -0,0 +1,13 @@
+/**
+ * Live view of a resource, published over JMX by {@link LiveMetrics}
+ */
+public interface CloudResourceMBean
+{
+    String getId();
+
+    int getCurrentUsers();
+
+    int getTotalAccesses();
+
+    int getConflictCount();
+}
@@ -1,5 +1,22 @@
+import Semaphore.OpenLoopGenerator;
+import Semaphore.PermitBackend;
+import Semaphore.PermitStats;
+import Semaphore.QueuePolicy;
+import Semaphore.SyncStrategy;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main simulation controller
@@ -9,11 +26,19 @@ class CloudSimulation
     private final SimulationConfig config;
     private final List<CloudResource> resources = new ArrayList<>();
     private final List<Container> containers = new ArrayList<>();
-    private final MetricsCollector metrics = new MetricsCollector();
+    private final MetricsCollector metrics;
+    private LeaseManager leases;
+    private CoordinatorProcess coordinatorProcess;
+    private CoordinatorClient coordinator;
+    private ShardedSemaphores shards;
+    private LiveMetrics liveMetrics;
+    private SyncStrategy strategy;
 
     public CloudSimulation(final SimulationConfig config)
     {
-        this.config = config;
+        this.config  = config;
+        this.metrics = new MetricsCollector(Clock.systemUTC(), config.timeSeriesWindowMs, config.timeSeriesWindows,
+                config.perContainerLatency);
     }
 
     public void setup()
@@ -21,61 +46,374 @@ class CloudSimulation
         System.out.println("Setting up simulation with " + config.numContainers +
                 " containers and " + config.numResources + " resources...");
 
+        if (config.batchSize < 1 || config.batchSize > config.maxConcurrentAccess)
+        {
+            throw new IllegalArgumentException("batchSize must be between 1 and maxConcurrentAccess (" +
+                    config.maxConcurrentAccess + "), was " + config.batchSize);
+        }
+
+        if (config.readRatio < 0 || config.readRatio > 1)
+        {
+            throw new IllegalArgumentException("readRatio must be between 0 and 1, was " + config.readRatio);
+        }
+
+        if (config.readRatio > 0 && (config.enableLeases || config.batchSize > 1))
+        {
+            throw new IllegalArgumentException("Read/write access cannot be combined with leases or batches");
+        }
+
+        if (config.writePermits < 0 || config.writePermits > config.maxConcurrentReads)
+        {
+            throw new IllegalArgumentException("writePermits must be between 0 and maxConcurrentReads (" +
+                    config.maxConcurrentReads + "), was " + config.writePermits);
+        }
+
+        if (config.transactionSize < 1 || config.transactionSize > config.numResources)
+        {
+            throw new IllegalArgumentException("transactionSize must be between 1 and numResources (" +
+                    config.numResources + "), was " + config.transactionSize);
+        }
+
+        if (config.transactionSize > 1 && (config.enableLeases || config.batchSize > 1 || config.readRatio > 0))
+        {
+            throw new IllegalArgumentException("Transactions cannot be combined with leases, batches or read/write access");
+        }
+
+        if (config.enableLeases && config.batchSize > 1)
+        {
+            throw new IllegalArgumentException("Leases hold single permits and cannot be combined with batchSize " +
+                    config.batchSize);
+        }
+
+        if (config.queuePolicy != QueuePolicy.FIFO && (config.remoteCoordinator || config.coordinatorShards > 1))
+        {
+            throw new IllegalArgumentException("Queueing policy " + config.queuePolicy +
+                    " only applies to in-process semaphores, not to coordinators");
+        }
+
+        strategy = SyncStrategy.forName(config.syncStrategy);
+        if (!config.syncStrategy.equals(DistributedSemaphoreStrategy.strategyName) &&
+                (config.remoteCoordinator || config.coordinatorShards > 1 || config.queuePolicy != QueuePolicy.FIFO))
+        {
+            throw new IllegalArgumentException("Synchronization strategy " + config.syncStrategy +
+                    " keeps its own permits and cannot be combined with coordinators or queueing policies");
+        }
+
+        if (config.arrivalProcess.isOpenLoop() && config.targetOpsPerSecond <= 0)
+        {
+            throw new IllegalArgumentException("Open-loop arrivals need a positive targetOpsPerSecond, was " +
+                    config.targetOpsPerSecond);
+        }
+
+        if (config.arrivalProcess.isOpenLoop() &&
+                (config.enableLeases || config.batchSize > 1 || config.readRatio > 0 || config.transactionSize > 1))
+        {
+            throw new IllegalArgumentException("Open-loop arrivals make single accesses and cannot be combined " +
+                    "with leases, batches, read/write access or transactions");
+        }
+
+        // Leases only make sense when there is a semaphore to skip
+        if (config.enableLeases && config.enableSynchronization)
+        {
+            leases = new LeaseManager(config.leaseTtlMs, config.leaseCheckIntervalMs, metrics);
+        }
+
+        if (config.coordinatorShards > 1)
+        {
+            createShards();
+        }
+        else if (config.remoteCoordinator)
+        {
+            connectCoordinator();
+        }
+
+        // Reads share the resource, so it gets more permits when they are told apart from writes
+        int permits = config.readRatio > 0 ? config.maxConcurrentReads : config.maxConcurrentAccess;
+
         // Create resources
         for (int i = 0; i < config.numResources; i++)
         {
             String resourceId = "resource_" + i;
-            resources.add(new CloudResource(resourceId, config.maxConcurrentAccess));
+            if (shards != null)
+            {
+                resources.add(new CloudResource(resourceId, shards.semaphore(resourceId, permits)));
+            }
+            else if (coordinator != null)
+            {
+                resources.add(new CloudResource(resourceId, permits, coordinator));
+            }
+            else
+            {
+                String name           = "sem_" + resourceId;
+                PermitBackend backend = strategy.newPermits(name, permits, config.queuePolicy.newQueue(tenantWeights()));
+
+                // Other strategies pay the same simulated round trips as the distributed semaphore
+                DistributedSemaphore semaphore = backend instanceof DistributedSemaphore
+                        ? (DistributedSemaphore)backend
+                        : new DistributedSemaphore(permits, name, backend, true);
+                resources.add(new CloudResource(resourceId, semaphore));
+            }
         }
 
         // Create containers/ Clients
         for (int i = 0; i < config.numContainers; i++)
         {
-            containers.add(new Container(i, resources, config.enableSynchronization, config, metrics));
+            containers.add(new Container(i, resources, config.enableSynchronization, config, metrics, leases));
         }
     }
 
+    /**
+     * Fair-queueing weights: latency-sensitive containers get the larger share
+     */
+    private Map<String, Integer> tenantWeights()
+    {
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < config.highPriorityContainers; i++)
+        {
+            weights.put(CloudResource.containerTenant(i), config.highPriorityWeight);
+        }
+        return weights;
+    }
+
     public void run()
     {
+        if (config.streamMetrics && !config.binaryMetrics)
+        {
+            metrics.startStreaming(config.metricsOutputFile, config.metricsFlushIntervalMs);
+        }
+
         System.out.println("Starting simulation " +
                 (config.enableSynchronization ? "with" : "without") +
-                " synchronization...");
+                " synchronization on " + config.executionMode + " threads...");
 
-        // Start all containers
-        for (Container container : containers)
+        startLiveMetrics();
+        Recording recording = startFlightRecording();
+        ExecutorService executor = config.executionMode.newExecutor(config.carrierThreads);
+        if (leases != null)
         {
-            container.start();
+            leases.start();
         }
-
-        // Run for the specified duration
         try
         {
-            Thread.sleep(config.simulationTimeSeconds * 1000L);
+            if (config.arrivalProcess.isOpenLoop())
+            {
+                runOpenLoop(executor);
+            }
+            else
+            {
+                // Start all containers
+                for (Container container : containers)
+                {
+                    container.start(executor);
+                }
+
+                // Run for the specified duration
+                Thread.sleep(config.simulationTimeSeconds * 1000L);
+            }
         }
         catch (InterruptedException e)
         {
             Thread.currentThread().interrupt();
         }
-
-        // Stop all containers
-        for (Container container : containers)
+        finally
         {
-            container.stop();
+            // Stop all containers
+            for (Container container : containers)
+            {
+                container.stop();
+            }
+            executor.shutdown();
         }
 
         // Wait a bit for threads to finish
         try
         {
-            Thread.sleep(1000);
+            executor.awaitTermination(1, TimeUnit.SECONDS);
         }
         catch (final InterruptedException e)
         {
             Thread.currentThread().interrupt();
         }
+        if (leases != null)
+        {
+            leases.stop();
+        }
+        disconnectCoordinator();
+
+        // Queue statistics of in-process semaphores, to tell queueing apart from network time
+        for (final CloudResource resource : resources)
+        {
+            PermitStats stats = resource.getSemaphore().getStats();
+            if (stats != null && config.enableSynchronization)
+            {
+                metrics.recordSemaphoreStats(resource.getId(), stats);
+            }
+        }
 
         // Print and save results
         printResults();
-        metrics.saveToFile(config.metricsOutputFile, config);
+        if (config.binaryMetrics)
+        {
+            metrics.saveBinary(config.metricsOutputFile, config);
+        }
+        else
+        {
+            metrics.saveToFile(config.metricsOutputFile, config);
+        }
+        if (liveMetrics != null)
+        {
+            liveMetrics.close();
+        }
+        if (recording != null)
+        {
+            // Stopping writes the recording to its destination
+            recording.stop();
+            recording.close();
+            System.out.println("Flight recording saved to " + config.flightRecording);
+        }
+    }
+
+    /**
+     * Record the run with Flight Recorder's low-overhead default settings plus the CloudSync
+     * events, so semaphore waits and conflicts line up with GC and thread parks in one timeline
+     */
+    private Recording startFlightRecording()
+    {
+        if (config.flightRecording == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            Recording recording = new Recording(Configuration.getConfiguration("default"));
+            recording.setName("CloudSync " + config.metricsOutputFile);
+            recording.enable(SemaphoreAcquireEvent.class);
+            recording.enable(SemaphoreReleaseEvent.class);
+            recording.enable(ResourceConflictEvent.class);
+            recording.enable(AccessTimeoutEvent.class);
+            recording.setDestination(Paths.get(config.flightRecording));
+            recording.start();
+            return recording;
+        }
+        catch (final IOException | ParseException e)
+        {
+            System.err.println("Error starting flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Publish live counters over JMX and, if a port is configured, over HTTP
+     */
+    private void startLiveMetrics()
+    {
+        if (!config.exposeMBeans && config.metricsHttpPort < 0)
+        {
+            return;
+        }
+
+        liveMetrics = new LiveMetrics(metrics, resources);
+        if (config.exposeMBeans)
+        {
+            liveMetrics.registerMBeans(config.metricsOutputFile);
+        }
+        if (config.metricsHttpPort >= 0)
+        {
+            try
+            {
+                int port = liveMetrics.startHttp(config.metricsHttpPort);
+                System.out.println("Serving live metrics on http://127.0.0.1:" + port + "/metrics");
+            }
+            catch (final IOException e)
+            {
+                System.err.println("Error starting live metrics endpoint: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Send requests at the target rate for the whole run, handing them to the containers in turn
+     */
+    private void runOpenLoop(final ExecutorService executor)
+    {
+        OpenLoopGenerator generator = new OpenLoopGenerator(config.arrivalProcess, config.targetOpsPerSecond,
+                config.randomSeed != 0 ? config.randomSeed : System.currentTimeMillis());
+        long sent = generator.run(0, TimeUnit.SECONDS.toNanos(config.simulationTimeSeconds), executor,
+                (sequence, intendedNanos) -> containers.get((int)(sequence % containers.size())).arrive(intendedNanos));
+        System.out.println("Sent " + sent + " " + config.arrivalProcess + " arrivals at " + config.targetOpsPerSecond +
+                " ops/s, at most " + TimeUnit.NANOSECONDS.toMillis(generator.getMaxLagNanos()) + " ms behind schedule");
+    }
+
+    /**
+     * Connect to the configured coordinator, launching a local one first if no port is set
+     */
+    private void connectCoordinator()
+    {
+        try
+        {
+            int port = config.coordinatorPort;
+            if (port == 0)
+            {
+                coordinatorProcess = CoordinatorProcess.launch();
+                port               = coordinatorProcess.getPort();
+            }
+            coordinator = CoordinatorClient.connect(port);
+            System.out.println("Using semaphore coordinator on loopback port " + port);
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error connecting to semaphore coordinator, using in-process semaphores: " + e.getMessage());
+            disconnectCoordinator();
+        }
+    }
+
+    /**
+     * Spread semaphores over several shards, each a coordinator process when remote
+     */
+    private void createShards()
+    {
+        List<SemaphoreShard> created = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < config.coordinatorShards; i++)
+            {
+                String name = "shard_" + i;
+                created.add(config.remoteCoordinator
+                        ? CoordinatorSemaphoreShard.launch(name)
+                        : new LocalSemaphoreShard(name));
+            }
+            shards = new ShardedSemaphores(created);
+            System.out.println("Using " + created.size() + (config.remoteCoordinator ? " coordinator" : " in-process") +
+                    " semaphore shards");
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error launching coordinator shards, using in-process semaphores: " + e.getMessage());
+            for (final SemaphoreShard shard : created)
+            {
+                shard.close();
+            }
+        }
+    }
+
+    private void disconnectCoordinator()
+    {
+        if (shards != null)
+        {
+            shards.close();
+            shards = null;
+        }
+        if (coordinator != null)
+        {
+            coordinator.close();
+            coordinator = null;
+        }
+        if (coordinatorProcess != null)
+        {
+            coordinatorProcess.close();
+            coordinatorProcess = null;
+        }
     }
 
     public void printResults()
@@ -84,7 +422,9 @@ class CloudSimulation
         System.out.println("Configuration:");
         System.out.println("- Containers: " + config.numContainers);
         System.out.println("- Resources: " + config.numResources);
-        System.out.println("- Synchronization: " + (config.enableSynchronization ? "Enabled" : "Disabled"));
+        System.out.println("- Synchronization: " + (config.enableSynchronization ? "Enabled" : "Disabled") +
+                (config.enableSynchronization ? " (" + config.syncStrategy + ")" : "") +
+                (leases != null ? " with " + config.leaseTtlMs + " ms leases" : ""));
         System.out.println("- Duration: " + config.simulationTimeSeconds + " seconds");
 
         // Print resource statistics
@@ -95,9 +435,35 @@ class CloudSimulation
             System.out.println("- Resource " + i + " (ID: " + resource.getId() + "):");
             System.out.println("  - Total accesses: " + resource.getTotalAccesses());
             System.out.println("  - Conflicts: " + resource.getConflictCount());
+
+            PermitStats stats = resource.getSemaphore().getStats();
+            if (stats != null && config.enableSynchronization)
+            {
+                System.out.println("  - Queued: " + stats.getQueuedAcquires() + " of " + stats.getAcquires() +
+                        " acquires, peak queue " + stats.getPeakQueueLength() +
+                        ", p99 time in queue " + stats.getQueueTimeUs().valueAtPercentile(99) / 1000.0 + " ms" +
+                        ", timeouts " + stats.getTimeouts() +
+                        String.format(", %.1f%% of permits in use", stats.getUtilization() * 100));
+            }
         }
 
         // Print overall metrics
         metrics.printSummary();
     }
+
+    public MetricsCollector getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Set up and run one simulation, for reports that compare configurations
+     */
+    static MetricsCollector simulate(final SimulationConfig config)
+    {
+        CloudSimulation simulation = new CloudSimulation(config);
+        simulation.setup();
+        simulation.run();
+        return simulation.getMetrics();
+    }
 }
\ No newline at end of file
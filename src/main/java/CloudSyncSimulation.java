@@ -14,8 +14,17 @@ public class CloudSyncSimulation
         SimulationConfig config = new SimulationConfig();
 
         // Create and run the simulation
-        CloudSimulation simulation = new CloudSimulation(config);
-        simulation.setup();
-        simulation.run();
+        if (config.discreteEvent)
+        {
+            DiscreteEventSimulation simulation = new DiscreteEventSimulation(config);
+            simulation.setup();
+            simulation.run();
+        }
+        else
+        {
+            CloudSimulation simulation = new CloudSimulation(config);
+            simulation.setup();
+            simulation.run();
+        }
     }
 }
\ No newline at end of file
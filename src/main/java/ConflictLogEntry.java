@@ -1,15 +0,0 @@
-/**
- * Class representing one conflict event in the log
- */
-class ConflictLogEntry
-{
-    final int containerId;
-    final String resourceId;
-
-    public ConflictLogEntry(final int containerId,
-                            final String resourceId)
-    {
-        this.containerId = containerId;
-        this.resourceId  = resourceId;
-    }
-}
\ No newline at end of file
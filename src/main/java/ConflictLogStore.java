@@ -0,0 +1,48 @@
+import java.util.Arrays;
+
+/**
+ * Columnar store of conflict or timeout events (container id and interned resource id).
+ * Not thread-safe: callers serialize appends and reads.
+ */
+class ConflictLogStore
+{
+    private int[] containerIds    = new int[1024];
+    private int[] resourceIndexes = new int[1024];
+    private int size              = 0;
+
+    public void append(final int containerId,
+                       final int resourceIndex)
+    {
+        if (size == containerIds.length)
+        {
+            containerIds    = Arrays.copyOf(containerIds, size * 2);
+            resourceIndexes = Arrays.copyOf(resourceIndexes, size * 2);
+        }
+        containerIds[size]    = containerId;
+        resourceIndexes[size] = resourceIndex;
+        size++;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Forget all rows but keep the allocated capacity for reuse
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    public int containerId(final int row)
+    {
+        return containerIds[row];
+    }
+
+    public int resourceIndex(final int row)
+    {
+        return resourceIndexes[row];
+    }
+}
@@ -0,0 +1,153 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consistent-hash ring that maps keys to shards.
+ *
+ * Each shard is placed on the ring at many virtual points so keys spread evenly, and
+ * adding or removing a shard only moves the keys that land next to its points, about
+ * 1/n of them. Lookups binary-search an immutable snapshot of the ring, so routing never
+ * locks; changes build a new snapshot.
+ */
+class ConsistentHashRing<T>
+{
+    private static final int defaultVirtualNodes = 128;
+
+    private final int virtualNodes;
+    private final Map<String, T> shards = new LinkedHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(new long[0], new Object[0]);
+
+    public ConsistentHashRing()
+    {
+        this(defaultVirtualNodes);
+    }
+
+    public ConsistentHashRing(final int virtualNodes)
+    {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public synchronized void add(final String name,
+                                 final T shard)
+    {
+        if (shards.putIfAbsent(name, shard) != null)
+        {
+            throw new IllegalArgumentException("Shard " + name + " is already on the ring");
+        }
+        rebuild();
+    }
+
+    public synchronized T remove(final String name)
+    {
+        T removed = shards.remove(name);
+        if (removed != null)
+        {
+            rebuild();
+        }
+        return removed;
+    }
+
+    /**
+     * Get the shard owning a key: the first virtual point at or after the key's hash
+     */
+    @SuppressWarnings("unchecked")
+    public T route(final String key)
+    {
+        Snapshot ring = snapshot;
+        if (ring.points.length == 0)
+        {
+            throw new IllegalStateException("No shards on the ring");
+        }
+        int index = Arrays.binarySearch(ring.points, hash(key));
+        if (index < 0)
+        {
+            index = -index - 1;
+        }
+        return (T)ring.owners[index == ring.points.length ? 0 : index];
+    }
+
+    public synchronized List<T> shards()
+    {
+        return new ArrayList<>(shards.values());
+    }
+
+    public synchronized int size()
+    {
+        return shards.size();
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with a mixing step so that
+     * similar keys such as resource_1 and resource_2 land far apart
+     */
+    static long hash(final String key)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : key.getBytes(StandardCharsets.UTF_8))
+        {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private void rebuild()
+    {
+        int count       = shards.size() * virtualNodes;
+        long[] keys     = new long[count];
+        Object[] values = new Object[count];
+        int i           = 0;
+        for (final Map.Entry<String, T> shard : shards.entrySet())
+        {
+            for (int v = 0; v < virtualNodes; v++)
+            {
+                keys[i]   = hash(shard.getKey() + "#" + v);
+                values[i] = shard.getValue();
+                i++;
+            }
+        }
+
+        // Sort the points and carry their owners along
+        Integer[] order = new Integer[count];
+        for (int j = 0; j < count; j++)
+        {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        long[] sortedPoints   = new long[count];
+        Object[] sortedOwners = new Object[count];
+        for (int j = 0; j < count; j++)
+        {
+            sortedPoints[j] = keys[order[j]];
+            sortedOwners[j] = values[order[j]];
+        }
+        snapshot = new Snapshot(sortedPoints, sortedOwners);
+    }
+
+    /**
+     * Sorted virtual points and the shard at each one
+     */
+    private static final class Snapshot
+    {
+        final long[] points;
+        final Object[] owners;
+
+        Snapshot(final long[] points,
+                 final Object[] owners)
+        {
+            this.points = points;
+            this.owners = owners;
+        }
+    }
+}
@@ -1,5 +1,8 @@
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Executor;
 
 /**
  * Represents a container in the cloud environment
@@ -12,30 +15,35 @@ class Container implements Runnable
     private final SimulationConfig config;
     private final Random random;
     private final MetricsCollector metrics;
+    private final LeaseManager leases;
 
     private volatile boolean running = false;
+    private int lastResourceIndex    = -1;
+    private PermitLease lease;
 
     public Container(final int id,
                      final List<CloudResource> resources,
                      final boolean enableSync,
                      final SimulationConfig config,
-                     final MetricsCollector metrics)
+                     final MetricsCollector metrics,
+                     final LeaseManager leases)
     {
         this.containerId = id;
         this.resources   = resources;
         this.enableSync  = enableSync;
         this.config      = config;
         this.metrics     = metrics;
+        this.leases      = leases;
         random           = new Random();
 
         // Seed the random number generator with container ID for reproducibility
-        random.setSeed(System.currentTimeMillis() + id);
+        random.setSeed((config.randomSeed != 0 ? config.randomSeed : System.currentTimeMillis()) + id);
     }
 
-    public void start()
+    public void start(final Executor executor)
     {
         running = true;
-        new Thread(this).start();
+        executor.execute(this);
     }
 
     public void stop()
@@ -48,12 +56,41 @@ class Container implements Runnable
     {
         while (running)
         {
-            // Select a random resource to access
-            int resourceIndex      = random.nextInt(resources.size());
+            // Select a random resource to access, or stay on the last one
+            int resourceIndex = lastResourceIndex >= 0 && config.resourceAffinity > 0 &&
+                    random.nextDouble() < config.resourceAffinity
+                    ? lastResourceIndex
+                    : random.nextInt(resources.size());
             CloudResource resource = resources.get(resourceIndex);
+            lastResourceIndex      = resourceIndex;
 
             // Access the resource with or without synchronization
-            if (enableSync)
+            if (config.transactionSize > 1)
+            {
+                new ResourceTransaction(containerId, pickResources(resource))
+                        .execute(enableSync, random, config, metrics);
+            }
+            else if (config.batchSize > 1)
+            {
+                if (enableSync)
+                {
+                    resource.accessBatchWithSync(containerId, config.batchSize, random, config, metrics);
+                }
+                else
+                {
+                    resource.accessBatchWithoutSync(containerId, config.batchSize, random, config, metrics);
+                }
+            }
+            else if (config.readRatio > 0)
+            {
+                boolean write = random.nextDouble() >= config.readRatio;
+                resource.accessReadWrite(containerId, write, enableSync, random, config, metrics);
+            }
+            else if (enableSync && leases != null)
+            {
+                lease = resource.accessWithLease(containerId, lease, leases, random, config, metrics);
+            }
+            else if (enableSync)
             {
                 resource.accessWithSync(containerId, random, config, metrics);
             }
@@ -77,4 +114,40 @@ class Container implements Runnable
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Make one access for an open-loop arrival, timed from when it was due to be sent.
+     * Arrivals for the same container may overlap, so no per-access state is kept.
+     */
+    public void arrive(final long intendedNanos)
+    {
+        CloudResource resource = resources.get(random.nextInt(resources.size()));
+        Instant intendedStart  = Instant.now().minusNanos(System.nanoTime() - intendedNanos);
+        if (enableSync)
+        {
+            resource.accessWithSync(containerId, intendedStart, random, config, metrics);
+        }
+        else
+        {
+            resource.accessWithoutSync(containerId, intendedStart, random, config, metrics);
+        }
+    }
+
+    /**
+     * Pick the resources of one transaction: the chosen one plus distinct others at random
+     */
+    private List<CloudResource> pickResources(final CloudResource first)
+    {
+        List<CloudResource> picked = new ArrayList<>(config.transactionSize);
+        picked.add(first);
+        while (picked.size() < config.transactionSize)
+        {
+            CloudResource next = resources.get(random.nextInt(resources.size()));
+            if (!picked.contains(next))
+            {
+                picked.add(next);
+            }
+        }
+        return picked;
+    }
+}
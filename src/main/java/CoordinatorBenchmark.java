@@ -0,0 +1,171 @@
+import Semaphore.LatencyHistogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares acquire/release round trips on the in-process semaphore with a coordinator
+ * process reached over loopback TCP.
+ *
+ * The in-process rows show the cost of the permit engine alone; the coordinator rows add
+ * real serialization, system calls and the coordinator's queueing. Blocking rows use one
+ * caller thread per in-flight request; pipelined rows keep a window of requests in flight
+ * from a single thread on the same connection.
+ *
+ * Usage: java CoordinatorBenchmark [threadCounts] [seconds] [window]
+ */
+public class CoordinatorBenchmark
+{
+    private static final int permits = 1_000_000;   // Plenty, so the numbers show transport cost only
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        String[] threadCounts = (args.length > 0 ? args[0] : "1,4,16").split(",");
+        int seconds           = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int window            = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        System.out.println("Backend,Mode,InFlight,OpsPerSecond,P50Us,P99Us,P999Us");
+        try (CoordinatorProcess process = CoordinatorProcess.launch();
+             CoordinatorClient client   = CoordinatorClient.connect(process.getPort()))
+        {
+            DistributedSemaphore local  = new DistributedSemaphore(permits, "sem_benchmark");
+            DistributedSemaphore remote = new DistributedSemaphore(permits, "sem_benchmark",
+                    new RemotePermitBackend(client, "sem_benchmark", permits));
+
+            for (final String count : threadCounts)
+            {
+                int threads = Integer.parseInt(count.trim());
+                report("in-process", "blocking", threads, runBlocking(local, threads, seconds));
+                report("coordinator", "blocking", threads, runBlocking(remote, threads, seconds));
+            }
+            report("coordinator", "pipelined", window, runPipelined(client, window, seconds));
+        }
+    }
+
+    private static void report(final String backend,
+                               final String mode,
+                               final int inFlight,
+                               final Result result)
+    {
+        System.out.println(backend + "," + mode + "," + inFlight + "," +
+                String.format("%.0f", result.opsPerSecond) + "," +
+                String.format("%.1f", result.latency.valueAtPercentile(50) / 1000.0) + "," +
+                String.format("%.1f", result.latency.valueAtPercentile(99) / 1000.0) + "," +
+                String.format("%.1f", result.latency.valueAtPercentile(99.9) / 1000.0));
+    }
+
+    /**
+     * Each thread acquires and releases in a loop, timing the pair
+     */
+    private static Result runBlocking(final DistributedSemaphore semaphore,
+                                      final int threads,
+                                      final int seconds) throws InterruptedException
+    {
+        LatencyHistogram latency   = new LatencyHistogram();
+        AtomicLong operations      = new AtomicLong();
+        CountDownLatch startLatch  = new CountDownLatch(1);
+        CountDownLatch finishLatch = new CountDownLatch(threads);
+        long[] deadline            = new long[1];
+        List<Thread> workers       = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++)
+        {
+            Thread thread = new Thread(() ->
+            {
+                Random random = new Random();
+                long ops      = 0;
+                try
+                {
+                    startLatch.await();
+                    long now = System.nanoTime();
+                    while (now < deadline[0])
+                    {
+                        if (semaphore.acquire(random, 0, 0, 1000))
+                        {
+                            semaphore.release(random, 0, 0);
+                            ops++;
+                        }
+                        long end = System.nanoTime();
+                        latency.record(end - now);
+                        now = end;
+                    }
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                finally
+                {
+                    operations.addAndGet(ops);
+                    finishLatch.countDown();
+                }
+            });
+            workers.add(thread);
+            thread.start();
+        }
+
+        long startTime = System.nanoTime();
+        deadline[0]    = startTime + TimeUnit.SECONDS.toNanos(seconds);
+        startLatch.countDown();
+        finishLatch.await();
+        long elapsed = System.nanoTime() - startTime;
+
+        return new Result(operations.get() * 1_000_000_000.0 / elapsed, latency);
+    }
+
+    /**
+     * One thread keeps a window of acquire/release pairs in flight on the connection
+     */
+    private static Result runPipelined(final CoordinatorClient client,
+                                       final int window,
+                                       final int seconds) throws InterruptedException
+    {
+        int id                   = client.declare("sem_pipelined", permits);
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong operations    = new AtomicLong();
+        java.util.concurrent.Semaphore slots = new java.util.concurrent.Semaphore(window);
+
+        long startTime = System.nanoTime();
+        long deadline  = startTime + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline)
+        {
+            slots.acquire();
+            long sent = System.nanoTime();
+            CompletableFuture<Integer> acquired = client.acquireAsync(id, 1, 1000);
+            acquired.thenCompose(granted -> granted == 1
+                            ? client.releaseAsync(id, 1)
+                            : CompletableFuture.completedFuture(0))
+                    .whenComplete((ignored, error) ->
+                    {
+                        latency.record(System.nanoTime() - sent);
+                        operations.incrementAndGet();
+                        slots.release();
+                    });
+        }
+
+        // Let the last window drain
+        slots.acquire(window);
+        long elapsed = System.nanoTime() - startTime;
+
+        return new Result(operations.get() * 1_000_000_000.0 / elapsed, latency);
+    }
+
+    private static final class Result
+    {
+        final double opsPerSecond;
+        final LatencyHistogram latency;
+
+        Result(final double opsPerSecond,
+               final LatencyHistogram latency)
+        {
+            this.opsPerSecond = opsPerSecond;
+            this.latency      = latency;
+        }
+    }
+}
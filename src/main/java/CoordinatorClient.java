@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One pipelined connection to a {@link SemaphoreCoordinator}.
+ *
+ * Any number of threads can send requests at the same time; each request gets an id
+ * and a future, and a reader thread completes the futures as responses come back, in
+ * whatever order the coordinator answers. A blocked acquire therefore never holds up
+ * the requests behind it on the same connection.
+ */
+class CoordinatorClient implements AutoCloseable
+{
+    private static final int bufferSize = 64 * 1024;
+
+    private final SocketChannel channel;
+    private final ReentrantLock writeLock  = new ReentrantLock();
+    private final ByteBuffer writeBuffer   = ByteBuffer.allocateDirect(CoordinatorProtocol.maxFrameSize);
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private final ConcurrentHashMap<Long, CompletableFuture<Integer>> inFlight = new ConcurrentHashMap<>();
+    private final Thread reader;
+
+    private volatile IOException failure;
+
+    private CoordinatorClient(final SocketChannel channel)
+    {
+        this.channel = channel;
+
+        reader = new Thread(this::readResponses, "coordinator-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Connect to a coordinator listening on the loopback interface
+     */
+    public static CoordinatorClient connect(final int port) throws IOException
+    {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return new CoordinatorClient(channel);
+    }
+
+    /**
+     * Get the id of a named semaphore, creating it with the given permits if it is new
+     */
+    public int declare(final String name,
+                       final int permits)
+    {
+        long requestId = nextRequestId.incrementAndGet();
+        return await(send(requestId, buffer -> CoordinatorProtocol.putDeclare(buffer, requestId, name, permits)));
+    }
+
+    /**
+     * Queue an acquire without waiting for it
+     * @return completes with 1 when granted, 0 when the coordinator timed it out
+     */
+    public CompletableFuture<Integer> acquireAsync(final int id,
+                                                   final int count,
+                                                   final long timeoutMs)
+    {
+        long requestId = nextRequestId.incrementAndGet();
+        return send(requestId, buffer -> CoordinatorProtocol.putAcquire(buffer, requestId, id, count, timeoutMs));
+    }
+
+    public CompletableFuture<Integer> releaseAsync(final int id,
+                                                   final int count)
+    {
+        long requestId = nextRequestId.incrementAndGet();
+        return send(requestId, buffer -> CoordinatorProtocol.putRelease(buffer, requestId, id, count));
+    }
+
+    public int available(final int id)
+    {
+        return query(CoordinatorProtocol.opAvailable, id);
+    }
+
+    public int queued(final int id)
+    {
+        return query(CoordinatorProtocol.opQueued, id);
+    }
+
+    /**
+     * Wait for a response, turning a coordinator or connection error into an exception
+     */
+    static int await(final CompletableFuture<Integer> response)
+    {
+        try
+        {
+            return response.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for the coordinator", e);
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IllegalStateException("Coordinator request failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error closing coordinator connection: " + e.getMessage());
+        }
+        try
+        {
+            reader.join(1000);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int query(final byte op,
+                      final int id)
+    {
+        long requestId = nextRequestId.incrementAndGet();
+        return await(send(requestId, buffer -> CoordinatorProtocol.putQuery(buffer, op, requestId, id)));
+    }
+
+    private CompletableFuture<Integer> send(final long requestId,
+                                            final FrameWriter frame)
+    {
+        CompletableFuture<Integer> response = new CompletableFuture<>();
+        inFlight.put(requestId, response);
+
+        writeLock.lock();
+        try
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+            writeBuffer.clear();
+            frame.write(writeBuffer);
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining())
+            {
+                channel.write(writeBuffer);
+            }
+        }
+        catch (final IOException e)
+        {
+            inFlight.remove(requestId);
+            response.completeExceptionally(e);
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+        return response;
+    }
+
+    private void readResponses()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        try
+        {
+            while (channel.read(buffer) >= 0)
+            {
+                buffer.flip();
+                while (buffer.remaining() >= CoordinatorProtocol.responseSize)
+                {
+                    long requestId = buffer.getLong();
+                    byte status    = buffer.get();
+                    int value      = buffer.getInt();
+
+                    CompletableFuture<Integer> response = inFlight.remove(requestId);
+                    if (response == null)
+                    {
+                        continue;
+                    }
+                    if (status == CoordinatorProtocol.statusOk)
+                    {
+                        response.complete(value);
+                    }
+                    else
+                    {
+                        response.completeExceptionally(new IllegalArgumentException("Coordinator rejected request " + requestId));
+                    }
+                }
+                buffer.compact();
+            }
+            failure = new IOException("Coordinator closed the connection");
+        }
+        catch (final IOException e)
+        {
+            failure = e;
+        }
+
+        // Nothing more will arrive, so fail whatever is still waiting
+        for (final Long requestId : inFlight.keySet())
+        {
+            CompletableFuture<Integer> response = inFlight.remove(requestId);
+            if (response != null)
+            {
+                response.completeExceptionally(new UncheckedIOException(failure));
+            }
+        }
+    }
+
+    /**
+     * Encodes one request frame into the shared write buffer
+     */
+    private interface FrameWriter
+    {
+        void write(ByteBuffer buffer);
+    }
+}
@@ -0,0 +1,67 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SemaphoreCoordinator} running as a separate local JVM.
+ * The child uses the same class path as this process and is stopped on close.
+ */
+class CoordinatorProcess implements AutoCloseable
+{
+    private final Process process;
+    private final int port;
+
+    private CoordinatorProcess(final Process process,
+                               final int port)
+    {
+        this.process = process;
+        this.port    = port;
+    }
+
+    /**
+     * Start a coordinator on a free loopback port and wait until it accepts connections
+     */
+    public static CoordinatorProcess launch() throws IOException
+    {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), "SemaphoreCoordinator", "0")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        // The coordinator announces its port on the first line
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+        String line           = output.readLine();
+        if (line == null || !line.startsWith("LISTENING "))
+        {
+            process.destroyForcibly();
+            throw new IOException("Coordinator did not start, it printed: " + line);
+        }
+        return new CoordinatorProcess(process, Integer.parseInt(line.substring("LISTENING ".length()).trim()));
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    @Override
+    public void close()
+    {
+        process.destroy();
+        try
+        {
+            if (!process.waitFor(2, TimeUnit.SECONDS))
+            {
+                process.destroyForcibly();
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
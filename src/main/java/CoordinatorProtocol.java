@@ -0,0 +1,110 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary wire format between {@link CoordinatorClient} and {@link SemaphoreCoordinator}.
+ *
+ * A request frame is an int length (of the rest of the frame), a one-byte op code and a
+ * long request id, followed by the op's fields. Every response is a fixed 13 bytes: the
+ * request id, a status byte and an int value. Responses carry the request id because a
+ * connection pipelines many requests and a blocked acquire may be answered after later
+ * ones. All numbers are big-endian.
+ *
+ * <pre>
+ * declare    permits:int nameLength:short name:utf8   value = semaphore id
+ * acquire    id:int count:int timeoutMs:long          value = 1 granted, 0 timed out
+ * release    id:int count:int                         value = 0
+ * available  id:int                                   value = free permits
+ * queued     id:int                                   value = queued acquires
+ * </pre>
+ */
+final class CoordinatorProtocol
+{
+    static final byte opDeclare   = 1;
+    static final byte opAcquire   = 2;
+    static final byte opRelease   = 3;
+    static final byte opAvailable = 4;
+    static final byte opQueued    = 5;
+
+    static final byte statusOk    = 0;
+    static final byte statusError = 1;
+
+    static final int headerSize   = 4 + 1 + 8;   // length, op, request id
+    static final int responseSize = 8 + 1 + 4;   // request id, status, value
+    static final int maxFrameSize = 1024;
+    static final int maxNameBytes = maxFrameSize - headerSize - 6;
+
+    private CoordinatorProtocol()
+    {
+    }
+
+    static void putDeclare(final ByteBuffer buffer,
+                           final long requestId,
+                           final String name,
+                           final int permits)
+    {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxNameBytes)
+        {
+            throw new IllegalArgumentException("Semaphore name too long: " + name);
+        }
+        putHeader(buffer, opDeclare, requestId, 4 + 2 + bytes.length);
+        buffer.putInt(permits);
+        buffer.putShort((short)bytes.length);
+        buffer.put(bytes);
+    }
+
+    static void putAcquire(final ByteBuffer buffer,
+                           final long requestId,
+                           final int id,
+                           final int count,
+                           final long timeoutMs)
+    {
+        putHeader(buffer, opAcquire, requestId, 4 + 4 + 8);
+        buffer.putInt(id);
+        buffer.putInt(count);
+        buffer.putLong(timeoutMs);
+    }
+
+    static void putRelease(final ByteBuffer buffer,
+                           final long requestId,
+                           final int id,
+                           final int count)
+    {
+        putHeader(buffer, opRelease, requestId, 4 + 4);
+        buffer.putInt(id);
+        buffer.putInt(count);
+    }
+
+    /**
+     * Encode a query that only names a semaphore ({@link #opAvailable} or {@link #opQueued})
+     */
+    static void putQuery(final ByteBuffer buffer,
+                         final byte op,
+                         final long requestId,
+                         final int id)
+    {
+        putHeader(buffer, op, requestId, 4);
+        buffer.putInt(id);
+    }
+
+    static void putResponse(final ByteBuffer buffer,
+                            final long requestId,
+                            final byte status,
+                            final int value)
+    {
+        buffer.putLong(requestId);
+        buffer.put(status);
+        buffer.putInt(value);
+    }
+
+    private static void putHeader(final ByteBuffer buffer,
+                                  final byte op,
+                                  final long requestId,
+                                  final int bodySize)
+    {
+        buffer.putInt(1 + 8 + bodySize);
+        buffer.put(op);
+        buffer.putLong(requestId);
+    }
+}
@@ -0,0 +1,59 @@
+import Semaphore.PermitBackend;
+
+import java.io.IOException;
+
+/**
+ * Shard backed by its own {@link SemaphoreCoordinator} process
+ */
+class CoordinatorSemaphoreShard implements SemaphoreShard
+{
+    private final String name;
+    private final CoordinatorProcess process;
+    private final CoordinatorClient client;
+
+    private CoordinatorSemaphoreShard(final String name,
+                                      final CoordinatorProcess process,
+                                      final CoordinatorClient client)
+    {
+        this.name    = name;
+        this.process = process;
+        this.client  = client;
+    }
+
+    /**
+     * Launch a coordinator process for the shard and connect to it
+     */
+    public static CoordinatorSemaphoreShard launch(final String name) throws IOException
+    {
+        CoordinatorProcess process = CoordinatorProcess.launch();
+        try
+        {
+            return new CoordinatorSemaphoreShard(name, process, CoordinatorClient.connect(process.getPort()));
+        }
+        catch (final IOException e)
+        {
+            process.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public PermitBackend open(final String semaphoreName,
+                              final int permits)
+    {
+        return new RemotePermitBackend(client, semaphoreName, permits);
+    }
+
+    @Override
+    public void close()
+    {
+        client.close();
+        process.close();
+    }
+}
@@ -0,0 +1,414 @@
+import Semaphore.QueuePolicy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Discrete-event version of the cloud simulation.
+ *
+ * Containers, semaphore queues and resources are modelled as events on a priority
+ * queue ordered by a virtual clock, so no thread ever sleeps. The event flow mirrors
+ * {@link Container}, {@link CloudResource} and {@link DistributedSemaphore}: network
+ * hops, processing and think time are drawn from the same distributions, and the
+ * results go through the same {@link MetricsCollector}. A run with a fixed
+ * {@code randomSeed} is fully deterministic.
+ */
+class DiscreteEventSimulation
+{
+    private final SimulationConfig config;
+    private final VirtualClock clock                    = new VirtualClock();
+    private final PriorityQueue<SimulationEvent> events = new PriorityQueue<>();
+    private final List<ResourceState> resources         = new ArrayList<>();
+    private final List<ContainerState> containers       = new ArrayList<>();
+    private final MetricsCollector metrics;
+
+    private long nextSequence = 0;
+    private long endTimeMs;
+
+    public DiscreteEventSimulation(final SimulationConfig config)
+    {
+        this.config  = config;
+        this.metrics = new MetricsCollector(clock, config.timeSeriesWindowMs, config.timeSeriesWindows,
+                config.perContainerLatency);
+    }
+
+    public void setup()
+    {
+        if (config.enableLogging)
+        {
+            System.out.println("Setting up discrete-event simulation with " + config.numContainers +
+                    " containers and " + config.numResources + " resources...");
+        }
+
+        // The event engine models single accesses only; anything else would be silently dropped
+        List<String> unsupported = new ArrayList<>();
+        if (config.batchSize > 1)
+        {
+            unsupported.add("batchSize");
+        }
+        if (config.readRatio > 0)
+        {
+            unsupported.add("readRatio");
+        }
+        if (config.enableLeases)
+        {
+            unsupported.add("enableLeases");
+        }
+        if (config.transactionSize > 1)
+        {
+            unsupported.add("transactionSize");
+        }
+        if (config.queuePolicy != QueuePolicy.FIFO)
+        {
+            unsupported.add("queuePolicy");
+        }
+        if (!config.syncStrategy.equals(DistributedSemaphoreStrategy.strategyName))
+        {
+            unsupported.add("syncStrategy");
+        }
+        if (config.arrivalProcess.isOpenLoop())
+        {
+            unsupported.add("arrivalProcess");
+        }
+        if (config.remoteCoordinator || config.coordinatorShards > 1)
+        {
+            unsupported.add("remoteCoordinator/coordinatorShards");
+        }
+        if (config.exposeMBeans || config.metricsHttpPort >= 0)
+        {
+            unsupported.add("exposeMBeans/metricsHttpPort");
+        }
+        if (config.flightRecording != null)
+        {
+            unsupported.add("flightRecording");
+        }
+        if (!unsupported.isEmpty())
+        {
+            throw new IllegalArgumentException("The discrete-event engine runs single synchronized or unsynchronized " +
+                    "accesses and does not support " + String.join(", ", unsupported) + "; use the threaded engine");
+        }
+
+        // Create resources
+        for (int i = 0; i < config.numResources; i++)
+        {
+            resources.add(new ResourceState("resource_" + i, config.maxConcurrentAccess));
+        }
+
+        // Create containers, seeded the same way as the threaded engine
+        long seed = config.randomSeed != 0 ? config.randomSeed : System.currentTimeMillis();
+        for (int i = 0; i < config.numContainers; i++)
+        {
+            containers.add(new ContainerState(new Random(seed + i)));
+        }
+    }
+
+    public void run()
+    {
+        if (config.streamMetrics && !config.binaryMetrics)
+        {
+            metrics.startStreaming(config.metricsOutputFile, config.metricsFlushIntervalMs);
+        }
+
+        System.out.println("Starting discrete-event simulation " +
+                (config.enableSynchronization ? "with" : "without") +
+                " synchronization...");
+
+        long wallStart = System.nanoTime();
+        long processed = simulate();
+
+        long wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+        System.out.println("Processed " + processed + " events covering " +
+                clock.nowMs() + " ms of simulated time in " + wallMs + " ms of wall time");
+
+        // Print and save results
+        printResults();
+        if (config.binaryMetrics)
+        {
+            metrics.saveBinary(config.metricsOutputFile, config);
+        }
+        else
+        {
+            metrics.saveToFile(config.metricsOutputFile, config);
+        }
+    }
+
+    /**
+     * Play every event up to the end of the simulated time, without printing or saving anything.
+     * Results are left in {@link #getMetrics()}.
+     * @return the number of events processed
+     */
+    public long simulate()
+    {
+        endTimeMs = config.simulationTimeSeconds * 1000L;
+
+        // Every container issues its first request at time zero
+        for (int i = 0; i < containers.size(); i++)
+        {
+            schedule(0, SimulationEvent.REQUEST, i, 0);
+        }
+
+        long processed = 0;
+        while (!events.isEmpty())
+        {
+            SimulationEvent event = events.poll();
+            clock.advanceTo(event.timeMs);
+            handle(event);
+            processed++;
+        }
+        return processed;
+    }
+
+    private void handle(final SimulationEvent event)
+    {
+        ContainerState container = containers.get(event.containerId);
+
+        switch (event.type)
+        {
+            case SimulationEvent.REQUEST:
+                // Like Container.stop(): no new requests once the run is over
+                if (event.timeMs >= endTimeMs)
+                {
+                    return;
+                }
+                startRequest(event.containerId, container);
+                break;
+
+            case SimulationEvent.SEMAPHORE_ARRIVE:
+                arriveAtSemaphore(event.containerId, container);
+                break;
+
+            case SimulationEvent.ACQUIRE_TIMEOUT:
+                // Ignore timeouts left over from attempts that were already granted
+                if (container.waiting && container.attempt == event.attempt)
+                {
+                    ResourceState resource = resources.get(container.resourceIndex);
+                    resource.waiters.remove(event.containerId);
+                    container.waiting = false;
+                    metrics.recordTimeout(event.containerId, resource.id);
+                    scheduleNextRequest(event.containerId, container);
+                }
+                break;
+
+            case SimulationEvent.PROCESSING_DONE:
+                finishProcessing(event.containerId, container);
+                break;
+
+            case SimulationEvent.RELEASE_ARRIVE:
+                releasePermit(resources.get(container.resourceIndex));
+                completeAccess(event.containerId, container);
+                break;
+
+            case SimulationEvent.RESPONSE_ARRIVE:
+                completeAccess(event.containerId, container);
+                break;
+
+            default:
+                throw new IllegalStateException("Unknown event type " + event.type);
+        }
+    }
+
+    private void startRequest(final int containerId,
+                              final ContainerState container)
+    {
+        // Select a random resource to access
+        container.resourceIndex = container.random.nextInt(resources.size());
+        container.requestTimeMs = clock.nowMs();
+        container.attempt++;
+
+        int latency = sampleLatency(container.random);
+        schedule(clock.nowMs() + latency, SimulationEvent.SEMAPHORE_ARRIVE, containerId, container.attempt);
+    }
+
+    private void arriveAtSemaphore(final int containerId,
+                                   final ContainerState container)
+    {
+        ResourceState resource = resources.get(container.resourceIndex);
+
+        // No semaphore, the resource is used as soon as the request arrives
+        if (!config.enableSynchronization)
+        {
+            grant(containerId, container);
+            return;
+        }
+
+        // FIFO: only take a permit directly when nobody is queued
+        if (resource.waiters.isEmpty() && resource.permits > 0)
+        {
+            resource.permits--;
+            grant(containerId, container);
+            return;
+        }
+
+        container.waiting = true;
+        resource.waiters.add(containerId);
+        schedule(clock.nowMs() + CloudResource.timeOutMs, SimulationEvent.ACQUIRE_TIMEOUT, containerId, container.attempt);
+    }
+
+    private void grant(final int containerId,
+                       final ContainerState container)
+    {
+        container.waiting        = false;
+        container.acquiredTimeMs = clock.nowMs();
+        beginProcessing(containerId, container);
+    }
+
+    private void beginProcessing(final int containerId,
+                                 final ContainerState container)
+    {
+        ResourceState resource = resources.get(container.resourceIndex);
+
+        int users = ++resource.currentUsers;
+        resource.totalAccesses++;
+
+        // Simulate processing time for using the resource
+        container.processingTime = Math.max(1, (int)(container.random.nextGaussian() *
+                config.processingTimeStdDevMs +
+                config.processingTimeMeanMs));
+
+        // Check for conflicts (only possible without synchronization)
+        if (users > resource.maxPermits)
+        {
+            resource.conflictCount++;
+            metrics.recordConflict(containerId, resource.id);
+        }
+
+        schedule(clock.nowMs() + container.processingTime, SimulationEvent.PROCESSING_DONE, containerId, container.attempt);
+    }
+
+    private void finishProcessing(final int containerId,
+                                  final ContainerState container)
+    {
+        ResourceState resource = resources.get(container.resourceIndex);
+        resource.currentUsers--;
+
+        // Network hop for the release (or for the response when unsynchronized)
+        int latency = sampleLatency(container.random);
+        schedule(clock.nowMs() + latency,
+                config.enableSynchronization ? SimulationEvent.RELEASE_ARRIVE : SimulationEvent.RESPONSE_ARRIVE,
+                containerId, container.attempt);
+    }
+
+    private void releasePermit(final ResourceState resource)
+    {
+        resource.permits++;
+
+        // Hand permits to queued containers in arrival order
+        while (resource.permits > 0 && !resource.waiters.isEmpty())
+        {
+            int next = resource.waiters.poll();
+            resource.permits--;
+            grant(next, containers.get(next));
+        }
+    }
+
+    private void completeAccess(final int containerId,
+                                final ContainerState container)
+    {
+        ResourceState resource = resources.get(container.resourceIndex);
+
+        metrics.recordAccess(containerId, resource.id,
+                container.acquiredTimeMs - container.requestTimeMs,
+                container.processingTime,
+                clock.nowMs() - container.requestTimeMs);
+
+        scheduleNextRequest(containerId, container);
+    }
+
+    private void scheduleNextRequest(final int containerId,
+                                     final ContainerState container)
+    {
+        // Wait before next request
+        int waitTime = Math.max(1, (int)(container.random.nextGaussian() *
+                config.requestRateStdDevMs +
+                config.requestRateMeanMs));
+        schedule(clock.nowMs() + waitTime, SimulationEvent.REQUEST, containerId, container.attempt);
+    }
+
+    private int sampleLatency(final Random random)
+    {
+        return Math.max(1, (int)(random.nextGaussian() * config.networkLatencyStdDevMs +
+                config.networkLatencyMeanMs));
+    }
+
+    private void schedule(final long timeMs,
+                          final int type,
+                          final int containerId,
+                          final int attempt)
+    {
+        events.add(new SimulationEvent(timeMs, nextSequence++, type, containerId, attempt));
+    }
+
+    public void printResults()
+    {
+        System.out.println("\n==== Simulation Results ====");
+        System.out.println("Configuration:");
+        System.out.println("- Containers: " + config.numContainers);
+        System.out.println("- Resources: " + config.numResources);
+        System.out.println("- Synchronization: " + (config.enableSynchronization ? "Enabled" : "Disabled"));
+        System.out.println("- Duration: " + config.simulationTimeSeconds + " seconds (simulated)");
+
+        // Print resource statistics
+        System.out.println("\nResource Statistics:");
+        for (int i = 0; i < resources.size(); i++)
+        {
+            ResourceState resource = resources.get(i);
+            System.out.println("- Resource " + i + " (ID: " + resource.id + "):");
+            System.out.println("  - Total accesses: " + resource.totalAccesses);
+            System.out.println("  - Conflicts: " + resource.conflictCount);
+        }
+
+        // Print overall metrics
+        metrics.printSummary();
+    }
+
+    public MetricsCollector getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * Semaphore and usage state of one simulated resource
+     */
+    private static final class ResourceState
+    {
+        final String id;
+        final int maxPermits;
+        final ArrayDeque<Integer> waiters = new ArrayDeque<>();
+
+        int permits;
+        int currentUsers;
+        int totalAccesses;
+        int conflictCount;
+
+        ResourceState(final String id,
+                      final int maxPermits)
+        {
+            this.id         = id;
+            this.maxPermits = maxPermits;
+            this.permits    = maxPermits;
+        }
+    }
+
+    /**
+     * Progress of one simulated container through its current request
+     */
+    private static final class ContainerState
+    {
+        final Random random;
+
+        int attempt;
+        int resourceIndex;
+        int processingTime;
+        long requestTimeMs;
+        long acquiredTimeMs;
+        boolean waiting;
+
+        ContainerState(final Random random)
+        {
+            this.random = random;
+        }
+    }
+}
@@ -1,32 +1,78 @@
+import Semaphore.FifoWaitQueue;
+import Semaphore.PermitBackend;
+import Semaphore.PermitEngine;
+import Semaphore.PermitStats;
+import Semaphore.SyncStrategy;
+import Semaphore.WaitQueue;
+
 import java.util.Random;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Custom implementation of distributed semaphore.
  * In a real distributed system, this would interact with a central coordination service.
+ * By default each instance owns its own lock-free {@link PermitEngine} and the network is
+ * simulated with sleeps; given a {@link RemotePermitBackend} it talks to a
+ * {@link SemaphoreCoordinator} over real sockets instead.
  */
-class DistributedSemaphore
+class DistributedSemaphore implements DistributedSemaphoreMBean, PermitBackend
 {
-    private static final Lock lock           = new ReentrantLock();
-    private static final Condition condition = lock.newCondition();
-
-    private int count;
+    private final PermitBackend backend;
     private final int maxCount;
     private final String name;
+    private final boolean simulateLatency;
+
+    // Callers inside a backend acquire, so monitoring can read the queue depth without locking
+    private final AtomicInteger waiting = new AtomicInteger(0);
 
     public DistributedSemaphore(final int count,
                                 final String name)
     {
-        this.count    = count;  // The number of available permits or resources that can be acquired.
-        this.maxCount = count;  // Stores the initial number of resources that can be acquired.
-        this.name     = name;
+        this(count, name, new FifoWaitQueue());
+    }
+
+    /**
+     * In-process semaphore whose queued containers are served in the order the given queue decides
+     */
+    public DistributedSemaphore(final int count,
+                                final String name,
+                                final WaitQueue waiters)
+    {
+        this.backend         = new PermitEngine(count, waiters);  // The number of available permits or resources that can be acquired.
+        this.maxCount        = count;  // Stores the initial number of resources that can be acquired.
+        this.name            = name;
+        this.simulateLatency = true;
+    }
+
+    /**
+     * Semaphore whose permits are kept by the given backend.
+     * Every call on a remote backend is a real round trip, so no latency is simulated.
+     */
+    public DistributedSemaphore(final int count,
+                                final String name,
+                                final PermitBackend backend)
+    {
+        this(count, name, backend, false);
+    }
+
+    /**
+     * Semaphore whose permits are kept by the given backend, such as one made by a {@link SyncStrategy}
+     * @param simulateLatency whether calls sleep for a simulated round trip, for backends kept in process
+     */
+    public DistributedSemaphore(final int count,
+                                final String name,
+                                final PermitBackend backend,
+                                final boolean simulateLatency)
+    {
+        this.backend         = backend;
+        this.maxCount        = count;
+        this.name            = name;
+        this.simulateLatency = simulateLatency;
     }
 
     /**
-     * Simulates network latency that would occur in a distributed system
+     * Simulates network latency that would occur in a distributed system.
+     * A mean and standard deviation of zero disables the simulation (used by benchmarks).
      */
     private void simulateNetworkLatency(final Random random,
                                         final int meanMs,
@@ -34,6 +80,11 @@ class DistributedSemaphore
     {
         final int latency;
 
+        if (!simulateLatency || (meanMs <= 0 && stdDevMs <= 0))
+        {
+            return;
+        }
+
         // Generate latency with normal distribution
         latency = Math.max(1, (int)(random.nextGaussian() * stdDevMs + meanMs));
         try
@@ -48,6 +99,7 @@ class DistributedSemaphore
 
     /**
      * P operation (semiWait)
+     * @param timeoutMs negative waits indefinitely
      * @return true if acquired, false on timeout
      */
     public boolean acquire(final Random random,
@@ -58,94 +110,307 @@ class DistributedSemaphore
         // Simulate network latency for an attempt lock acquisition
         simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
 
-        lock.lock(); // This ensures that only one thread can modify the semaphore's state at a time
+        return acquireFromBackend(1, timeoutMs, null, 0);
+    }
+
+    /**
+     * P operation on behalf of a container, queued by the semaphore's policy
+     * @param tenant container or tenant id, weighed by fair queueing
+     * @param priority priority class, higher classes are served first by priority queueing
+     * @param timeoutMs negative waits indefinitely
+     * @return true if acquired, false on timeout
+     */
+    public boolean acquire(final String tenant,
+                           final int priority,
+                           final Random random,
+                           final int networkLatencyMeanMs,
+                           final int networkLatencyStdDevMs,
+                           final long timeoutMs)
+    {
+        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+
+        return acquireFromBackend(1, timeoutMs, tenant, priority);
+    }
+
+    /**
+     * Batched P operation: take several permits in one round trip, waiting as long as needed
+     * @return true if acquired, false if interrupted
+     */
+    public boolean acquire(final int permits,
+                           final Random random,
+                           final int networkLatencyMeanMs,
+                           final int networkLatencyStdDevMs)
+    {
+        checkPermits(permits);
+        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+
+        return acquireFromBackend(permits, -1, null, 0);
+    }
+
+    /**
+     * Batched P operation with timeout: take several permits in one round trip on behalf of a container
+     * @param tenant container or tenant id, weighed by fair queueing
+     * @param priority priority class, higher classes are served first by priority queueing
+     * @return true if acquired, false on timeout
+     */
+    public boolean tryAcquire(final String tenant,
+                              final int priority,
+                              final int permits,
+                              final long timeoutMs,
+                              final Random random,
+                              final int networkLatencyMeanMs,
+                              final int networkLatencyStdDevMs)
+    {
+        checkPermits(permits);
+        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+
+        return acquireFromBackend(permits, Math.max(0, timeoutMs), tenant, priority);
+    }
+
+    /**
+     * Take permits without a simulated round trip, as a {@link PermitBackend} of another resource
+     */
+    @Override
+    public boolean acquire(final int count,
+                           final long timeoutMs)
+    {
+        checkPermits(count);
+        return acquireFromBackend(count, timeoutMs, null, 0);
+    }
+
+    @Override
+    public boolean acquire(final int count,
+                           final long timeoutMs,
+                           final String tenant,
+                           final int priority)
+    {
+        checkPermits(count);
+        return acquireFromBackend(count, timeoutMs, tenant, priority);
+    }
+
+    /**
+     * Ask the backend for permits, counting the caller as waiting and recording the wait for Flight Recorder
+     */
+    private boolean acquireFromBackend(final int permits,
+                                       final long timeoutMs,
+                                       final String tenant,
+                                       final int priority)
+    {
+        SemaphoreAcquireEvent event = new SemaphoreAcquireEvent();
+        event.begin();
+        long waitStart   = System.nanoTime();
+        boolean acquired = false;
+        waiting.incrementAndGet();
         try
         {
-            if (timeoutMs < 0)
-            {
-                // Wait indefinitely until a resource becomes available.
-                while (count <= 0)
-                {
-                    try
-                    {
-                        condition.await();  // Releases the lock since there are currently no resources available.
-                    }
-                    catch (final InterruptedException e)
-                    {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                }
-                count--;
-                return true;
-            }
-            else
+            acquired = tenant == null
+                    ? backend.acquire(permits, timeoutMs)
+                    : backend.acquire(permits, timeoutMs, tenant, priority);
+            return acquired;
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+            event.end();
+            if (event.shouldCommit())
             {
-                // Wait with timeout
-                long nanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
-                while (count <= 0)
-                {
-                    if (nanos <= 0)
-                        return false;
-                    try
-                    {
-                        nanos = condition.awaitNanos(nanos);
-                    }
-                    catch (final InterruptedException e)
-                    {
-                        Thread.currentThread().interrupt();
-                        return false;
-                    }
-                }
-                count--;
-                return true;
+                event.semaphore        = name;
+                event.tenant           = tenant;
+                event.permits          = permits;
+                event.acquired         = acquired;
+                event.waitNanos        = System.nanoTime() - waitStart;
+                event.availablePermits = localAvailablePermits();
+                event.commit();
             }
-        } finally
+        }
+    }
+
+    private void releaseToBackend(final int permits,
+                                  final String tenant)
+    {
+        backend.release(permits);
+
+        SemaphoreReleaseEvent event = new SemaphoreReleaseEvent();
+        if (event.shouldCommit())
         {
-            lock.unlock();
+            event.semaphore        = name;
+            event.tenant           = tenant;
+            event.permits          = permits;
+            event.availablePermits = localAvailablePermits();
+            event.commit();
         }
     }
 
+    /**
+     * Permits free as far as this process knows, or -1 if asking would be a round trip to a coordinator
+     */
+    int localAvailablePermits()
+    {
+        return backend.isRemote() ? -1 : backend.availablePermits();
+    }
+
     /**
      * V operation (signal/release)
      */
     public void release(final Random random,
                         final int networkLatencyMeanMs,
                         final int networkLatencyStdDevMs)
+    {
+        release(null, random, networkLatencyMeanMs, networkLatencyStdDevMs);
+    }
+
+    /**
+     * V operation on behalf of a container
+     * @param tenant container or tenant id the permit was taken for, or null
+     */
+    public void release(final String tenant,
+                        final Random random,
+                        final int networkLatencyMeanMs,
+                        final int networkLatencyStdDevMs)
     {
         // Simulate network latency for distributed lock release
         simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
 
-        lock.lock();
-        try
-        {
-            count++;
-            condition.signal();
-        }
-        finally
+        releaseToBackend(1, tenant);
+    }
+
+    /**
+     * Batched V operation: return several permits in one round trip on behalf of a container
+     */
+    public void release(final String tenant,
+                        final int permits,
+                        final Random random,
+                        final int networkLatencyMeanMs,
+                        final int networkLatencyStdDevMs)
+    {
+        checkPermits(permits);
+        simulateNetworkLatency(random, networkLatencyMeanMs, networkLatencyStdDevMs);
+
+        releaseToBackend(permits, tenant);
+    }
+
+    /**
+     * Return permits without a simulated round trip, as a {@link PermitBackend} of another resource
+     */
+    @Override
+    public void release(final int count)
+    {
+        checkPermits(count);
+        releaseToBackend(count, null);
+    }
+
+    /**
+     * Coordinator-side return of a leased permit that was revoked or expired.
+     * The holder is not involved, so no round trip is simulated.
+     * @param tenant container the lease was granted to
+     */
+    void reclaim(final String tenant)
+    {
+        releaseToBackend(1, tenant);
+    }
+
+    /**
+     * Check whether any container is queued for a permit
+     */
+    @Override
+    public boolean hasQueuedWaiters()
+    {
+        return backend.hasQueuedWaiters();
+    }
+
+    /**
+     * Check whether every call on the permits is a real round trip to a coordinator
+     */
+    @Override
+    public boolean isRemote()
+    {
+        return backend.isRemote();
+    }
+
+    /**
+     * A batch larger than the semaphore could never be granted
+     */
+    private void checkPermits(final int permits)
+    {
+        if (permits < 1 || permits > maxCount)
         {
-            lock.unlock();
+            throw new IllegalArgumentException("Cannot take " + permits + " permits from " +
+                    name + " with " + maxCount + " permits");
         }
     }
 
+    /**
+     * Get the number of callers waiting for permits, including any being granted right now
+     */
+    @Override
+    public int getWaiting()
+    {
+        return waiting.get();
+    }
+
+    /**
+     * Get the wait-queue statistics, or null if the queue is kept on a coordinator
+     */
+    @Override
+    public PermitStats getStats()
+    {
+        return backend.getStats();
+    }
+
+    @Override
+    public int getQueueLength()
+    {
+        PermitStats stats = backend.getStats();
+        return stats == null ? 0 : stats.getQueueLength();
+    }
+
+    @Override
+    public int getPeakQueueLength()
+    {
+        PermitStats stats = backend.getStats();
+        return stats == null ? 0 : stats.getPeakQueueLength();
+    }
+
+    @Override
+    public double getWakeupsPerAcquire()
+    {
+        PermitStats stats = backend.getStats();
+        return stats == null ? 0 : stats.getWakeupsPerAcquire();
+    }
+
+    @Override
+    public double getTimeoutRate()
+    {
+        PermitStats stats = backend.getStats();
+        return stats == null ? 0 : stats.getTimeoutRate();
+    }
+
+    @Override
+    public double getUtilization()
+    {
+        PermitStats stats = backend.getStats();
+        return stats == null ? 0 : stats.getUtilization();
+    }
+
     /**
      * Get the current semaphore value (for monitoring)
      */
+    @Override
     public int getValue()
     {
-        lock.lock();
-        try
-        {
-            return count;
-        } finally
-        {
-            lock.unlock();
-        }
+        return backend.availablePermits();
+    }
+
+    @Override
+    public int availablePermits()
+    {
+        return backend.availablePermits();
     }
 
     /**
      * Get max semaphore value
      */
+    @Override
     public int getMaxValue()
     {
         return maxCount;
@@ -154,6 +419,7 @@ class DistributedSemaphore
     /**
      * Get semaphore name
      */
+    @Override
     public String getName()
     {
         return name;
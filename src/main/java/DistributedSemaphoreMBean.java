@@ -0,0 +1,23 @@
+/**
+ * Live view of a semaphore, published over JMX by {@link LiveMetrics}
+ */
+public interface DistributedSemaphoreMBean
+{
+    String getName();
+
+    int getValue();
+
+    int getMaxValue();
+
+    int getWaiting();
+
+    int getQueueLength();
+
+    int getPeakQueueLength();
+
+    double getWakeupsPerAcquire();
+
+    double getTimeoutRate();
+
+    double getUtilization();
+}
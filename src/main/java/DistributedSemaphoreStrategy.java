@@ -0,0 +1,30 @@
+import Semaphore.PermitBackend;
+import Semaphore.SyncStrategy;
+import Semaphore.WaitQueue;
+
+/**
+ * The custom distributed semaphore as a synchronization strategy.
+ *
+ * Permits live in an in-process {@link Semaphore.PermitEngine} queued by the resource's
+ * policy, behind a {@link DistributedSemaphore}, so its waiter count, queue statistics and
+ * Flight Recorder events come along. It is listed in META-INF/services because the
+ * Semaphore package cannot name classes outside it.
+ */
+public class DistributedSemaphoreStrategy implements SyncStrategy
+{
+    static final String strategyName = "distributed";
+
+    @Override
+    public String getName()
+    {
+        return strategyName;
+    }
+
+    @Override
+    public PermitBackend newPermits(final String name,
+                                    final int permits,
+                                    final WaitQueue waiters)
+    {
+        return new DistributedSemaphore(permits, name, waiters);
+    }
+}
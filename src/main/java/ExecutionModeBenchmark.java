@@ -0,0 +1,83 @@
+import Semaphore.ExecutionMode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs one cloud simulation on the chosen execution mode and reports memory use and throughput.
+ *
+ * The virtual-thread carrier pool is created once per JVM, so each mode should be
+ * measured in its own JVM and the rows compared side by side.
+ *
+ * Usage: java ExecutionModeBenchmark [PLATFORM|VIRTUAL|VIRTUAL_BOUNDED] [containers] [seconds] [sync]
+ */
+public class ExecutionModeBenchmark
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        ExecutionMode mode = args.length > 0 ? ExecutionMode.valueOf(args[0]) : ExecutionMode.VIRTUAL;
+        int containers     = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int seconds        = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        boolean sync       = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        SimulationConfig config      = new SimulationConfig();
+        config.numContainers         = containers;
+        config.simulationTimeSeconds = seconds;
+        config.enableSynchronization = sync;
+        config.executionMode         = mode;
+        config.metricsOutputFile     = "execution_mode_" + mode.name().toLowerCase() + "_metrics.csv";
+
+        MemoryMXBean memory   = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads  = ManagementFactory.getThreadMXBean();
+        AtomicLong peakHeap   = new AtomicLong();
+
+        // Sample heap usage while the simulation runs
+        Thread sampler = new Thread(() ->
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        threads.resetPeakThreadCount();
+        CloudSimulation simulation = new CloudSimulation(config);
+        simulation.setup();
+
+        String status = "OK";
+        try
+        {
+            simulation.run();
+        }
+        catch (final OutOfMemoryError e)
+        {
+            // Platform threads usually fail here long before virtual threads do
+            status = "FAILED (" + e.getMessage() + ")";
+        }
+
+        sampler.interrupt();
+        sampler.join();
+
+        MetricsCollector metrics = simulation.getMetrics();
+        System.out.println("\nMode,Containers,Sync,PeakHeapMB,PeakPlatformThreads,SuccessfulRequests,Timeouts,ThroughputPerSecond,Status");
+        System.out.println(mode + "," + containers + "," + sync + "," +
+                (peakHeap.get() / (1024 * 1024)) + "," +
+                threads.getPeakThreadCount() + "," +
+                metrics.getSuccessfulRequests() + "," +
+                metrics.getTimeoutCount() + "," +
+                String.format("%.1f", metrics.getSuccessfulRequests() / (double)Math.max(1, seconds)) + "," +
+                status);
+    }
+}
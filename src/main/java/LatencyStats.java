@@ -0,0 +1,20 @@
+import Semaphore.LatencyHistogram;
+
+/**
+ * Acquire, processing and total time histograms for one scope (run, resource or container)
+ */
+class LatencyStats
+{
+    final LatencyHistogram acquireTime    = new LatencyHistogram();
+    final LatencyHistogram processingTime = new LatencyHistogram();
+    final LatencyHistogram totalTime      = new LatencyHistogram();
+
+    public void record(final long acquireTimeMs,
+                       final int processingTimeMs,
+                       final long totalTimeMs)
+    {
+        acquireTime.record(acquireTimeMs);
+        processingTime.record(processingTimeMs);
+        totalTime.record(totalTimeMs);
+    }
+}
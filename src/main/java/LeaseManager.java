@@ -0,0 +1,106 @@
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grants permit leases and looks after them in the background.
+ *
+ * Every check interval it renews idle leases that are still being used, takes back
+ * leases whose TTL ran out, and revokes idle leases on semaphores that have containers
+ * queued so a parked permit never keeps a waiter out for longer than one interval.
+ */
+class LeaseManager
+{
+    private final long ttlNanos;
+    private final long checkIntervalMs;
+    private final MetricsCollector metrics;
+    private final Set<PermitLease> leases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+
+    public LeaseManager(final int ttlMs,
+                        final int checkIntervalMs,
+                        final MetricsCollector metrics)
+    {
+        this.ttlNanos        = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.checkIntervalMs = Math.max(1, checkIntervalMs);
+        this.metrics         = metrics;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(task ->
+        {
+            Thread thread = new Thread(task, "lease-manager");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start()
+    {
+        scheduler.scheduleAtFixedRate(this::check, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background checks and take back every idle lease
+     */
+    public void stop()
+    {
+        scheduler.shutdownNow();
+        for (final PermitLease lease : leases)
+        {
+            lease.revoke();
+        }
+        leases.clear();
+    }
+
+    /**
+     * Wrap a permit the caller has just acquired in a lease, in use by the caller
+     * @param tenant container the permit was taken for
+     */
+    public PermitLease grant(final DistributedSemaphore semaphore,
+                             final String tenant)
+    {
+        PermitLease lease = new PermitLease(semaphore, tenant, ttlNanos);
+        leases.add(lease);
+        return lease;
+    }
+
+    private void check()
+    {
+        for (final PermitLease lease : leases)
+        {
+            if (lease.isReturned())
+            {
+                leases.remove(lease);
+                continue;
+            }
+
+            // Asking a coordinator whether anyone waits is itself a round trip
+            if (lease.isRemote())
+            {
+                metrics.recordLeaseProbe();
+            }
+
+            if (lease.hasQueuedWaiters())
+            {
+                if (lease.revoke())
+                {
+                    leases.remove(lease);
+                    metrics.recordLeaseRevocation();
+                }
+            }
+            else if (lease.isExpired())
+            {
+                if (lease.revoke())
+                {
+                    leases.remove(lease);
+                    metrics.recordLeaseExpiry();
+                }
+            }
+            else if (lease.renew(ttlNanos))
+            {
+                metrics.recordLeaseRenewal();
+            }
+        }
+    }
+}
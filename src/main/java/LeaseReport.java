@@ -0,0 +1,50 @@
+import Semaphore.ReportRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares synchronized runs with and without permit leases as resource affinity grows.
+ *
+ * Without leases every access pays an acquire and a release round trip. With leases a
+ * container that comes back to the same resource reuses its parked permit, so the saved
+ * round trips and the drop in total time should grow with the affinity.
+ *
+ * Usage: java LeaseReport [secondsPerRun]
+ */
+public class LeaseReport
+{
+    public static void main(String[] args)
+    {
+        int seconds         = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        double[] affinities = {0.0, 0.5, 0.9};
+
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (final double affinity : affinities)
+        {
+            for (final boolean leases : new boolean[] {false, true})
+            {
+                SimulationConfig config      = new SimulationConfig();
+                config.simulationTimeSeconds = seconds;
+                config.enableSynchronization = true;
+                config.enableLeases          = leases;
+                config.resourceAffinity      = affinity;
+                config.metricsOutputFile     = "lease_" + (leases ? "on" : "off") + "_" + affinity + "_simulation_metrics.csv";
+                configs.add(config);
+            }
+        }
+
+        ReportRunner.run("Permit Lease Comparison",
+                "Affinity,Leases,Accesses,LeaseHits,RoundTripsSaved,Timeouts,AvgTotalTimeMs,P99TotalTimeMs",
+                configs,
+                CloudSimulation::simulate,
+                (table, config, metrics) -> table.row(config.resourceAffinity,
+                        config.enableLeases,
+                        metrics.getSuccessfulRequests(),
+                        metrics.getLeaseHits(),
+                        metrics.getRoundTripsSaved(),
+                        metrics.getTimeoutCount(),
+                        String.format("%.1f", metrics.getOverallLatency().totalTime.getMean()),
+                        metrics.getOverallLatency().totalTime.valueAtPercentile(99)));
+    }
+}
@@ -0,0 +1,268 @@
+import Semaphore.LatencyHistogram;
+import Semaphore.PermitStats;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes a simulation's counters while it runs.
+ *
+ * The metrics collector, every resource and every semaphore are registered as MBeans in
+ * the "CloudSync" domain, so jconsole or any JMX client can watch them. An optional HTTP
+ * endpoint on the loopback interface serves the same values, plus the latency histograms,
+ * as text in the Prometheus exposition format at /metrics. Everything is read from the
+ * atomic counters and lock-free histograms the simulation already updates, so watching a
+ * run adds no locking to it.
+ */
+class LiveMetrics implements AutoCloseable
+{
+    private static final String domain     = "CloudSync";
+    private static final double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+
+    private final MetricsCollector metrics;
+    private final List<CloudResource> resources;
+    private final List<ObjectName> registered = new ArrayList<>();
+    private HttpServer server;
+
+    public LiveMetrics(final MetricsCollector metrics,
+                       final List<CloudResource> resources)
+    {
+        this.metrics   = metrics;
+        this.resources = resources;
+    }
+
+    /**
+     * Register the collector, every resource and every semaphore with the platform MBean server
+     * @param run keeps the names of simulations in the same JVM apart
+     */
+    public void registerMBeans(final String run)
+    {
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        String runKey      = ",run=" + ObjectName.quote(run);
+        try
+        {
+            register(mbeans, new StandardMBean(metrics, MetricsCollectorMBean.class),
+                    "type=Metrics" + runKey);
+            for (final CloudResource resource : resources)
+            {
+                DistributedSemaphore semaphore = resource.getSemaphore();
+                register(mbeans, new StandardMBean(resource, CloudResourceMBean.class),
+                        "type=Resource" + runKey + ",name=" + resource.getId());
+                register(mbeans, new StandardMBean(semaphore, DistributedSemaphoreMBean.class),
+                        "type=Semaphore" + runKey + ",name=" + semaphore.getName());
+            }
+        }
+        catch (final JMException e)
+        {
+            System.err.println("Error registering MBeans: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serve {@link #render()} at /metrics on the loopback interface
+     * @param port 0 picks a free port
+     * @return the port the endpoint listens on
+     */
+    public int startHttp(final int port) throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange ->
+        {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody())
+            {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Current counters, gauges and latency summaries in the Prometheus text format
+     */
+    public String render()
+    {
+        StringBuilder text = new StringBuilder();
+        metric(text, "cloudsync_requests_total", "counter", "Accesses attempted");
+        sample(text, "cloudsync_requests_total", "", metrics.getTotalRequests());
+        metric(text, "cloudsync_successful_requests_total", "counter", "Accesses that got the resource");
+        sample(text, "cloudsync_successful_requests_total", "", metrics.getSuccessfulRequests());
+        metric(text, "cloudsync_conflicts_total", "counter", "Accesses that found the resource over capacity");
+        sample(text, "cloudsync_conflicts_total", "", metrics.getConflictCount());
+        metric(text, "cloudsync_timeouts_total", "counter", "Accesses that gave up waiting for a permit");
+        sample(text, "cloudsync_timeouts_total", "", metrics.getTimeoutCount());
+        metric(text, "cloudsync_throughput_per_second", "gauge", "Successful accesses per second since the start");
+        sample(text, "cloudsync_throughput_per_second", "", metrics.getThroughputPerSecond());
+
+        metric(text, "cloudsync_resource_users", "gauge", "Containers using the resource now");
+        for (final CloudResource resource : resources)
+        {
+            sample(text, "cloudsync_resource_users", label("resource", resource.getId()), resource.getCurrentUsers());
+        }
+        metric(text, "cloudsync_resource_accesses_total", "counter", "Accesses that used the resource");
+        for (final CloudResource resource : resources)
+        {
+            sample(text, "cloudsync_resource_accesses_total", label("resource", resource.getId()),
+                    resource.getTotalAccesses());
+        }
+        metric(text, "cloudsync_resource_conflicts_total", "counter", "Conflicts seen on the resource");
+        for (final CloudResource resource : resources)
+        {
+            sample(text, "cloudsync_resource_conflicts_total", label("resource", resource.getId()),
+                    resource.getConflictCount());
+        }
+        metric(text, "cloudsync_semaphore_available_permits", "gauge", "Permits free now");
+        for (final CloudResource resource : resources)
+        {
+            DistributedSemaphore semaphore = resource.getSemaphore();
+            sample(text, "cloudsync_semaphore_available_permits", label("semaphore", semaphore.getName()),
+                    semaphore.getValue());
+        }
+        metric(text, "cloudsync_semaphore_waiting", "gauge", "Callers waiting for permits now");
+        for (final CloudResource resource : resources)
+        {
+            DistributedSemaphore semaphore = resource.getSemaphore();
+            sample(text, "cloudsync_semaphore_waiting", label("semaphore", semaphore.getName()),
+                    semaphore.getWaiting());
+        }
+
+        metric(text, "cloudsync_semaphore_queue_length", "gauge", "Callers queued inside the semaphore now");
+        semaphoreSamples(text, "cloudsync_semaphore_queue_length", PermitStats::getQueueLength);
+        metric(text, "cloudsync_semaphore_peak_queue_length", "gauge", "Most callers ever queued at once");
+        semaphoreSamples(text, "cloudsync_semaphore_peak_queue_length", PermitStats::getPeakQueueLength);
+        metric(text, "cloudsync_semaphore_queued_acquires_total", "counter", "Acquires granted after queueing");
+        semaphoreSamples(text, "cloudsync_semaphore_queued_acquires_total", PermitStats::getQueuedAcquires);
+        metric(text, "cloudsync_semaphore_wakeups_total", "counter", "Times a queued caller was unparked");
+        semaphoreSamples(text, "cloudsync_semaphore_wakeups_total", PermitStats::getWakeups);
+        metric(text, "cloudsync_semaphore_timeouts_total", "counter", "Queued callers that gave up at their timeout");
+        semaphoreSamples(text, "cloudsync_semaphore_timeouts_total", PermitStats::getTimeouts);
+        metric(text, "cloudsync_semaphore_permit_seconds_in_use_total", "counter",
+                "Permits in use integrated over time; its rate is the average number in use");
+        semaphoreSamples(text, "cloudsync_semaphore_permit_seconds_in_use_total",
+                stats -> stats.getPermitNanosInUse() / 1e9);
+
+        LatencyStats latency = metrics.getOverallLatency();
+        summary(text, "cloudsync_acquire_time_ms", "Time to get a permit", latency.acquireTime);
+        summary(text, "cloudsync_processing_time_ms", "Time spent using the resource", latency.processingTime);
+        summary(text, "cloudsync_total_time_ms", "Time from request to release", latency.totalTime);
+        return text.toString();
+    }
+
+    /**
+     * Stop the endpoint and unregister the MBeans
+     */
+    @Override
+    public void close()
+    {
+        if (server != null)
+        {
+            server.stop(0);
+            server = null;
+        }
+
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        for (final ObjectName name : registered)
+        {
+            try
+            {
+                mbeans.unregisterMBean(name);
+            }
+            catch (final JMException e)
+            {
+                System.err.println("Error unregistering MBean " + name + ": " + e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+
+    private void register(final MBeanServer mbeans,
+                          final StandardMBean mbean,
+                          final String properties) throws JMException
+    {
+        ObjectName name = new ObjectName(domain + ":" + properties);
+        mbeans.registerMBean(mbean, name);
+        registered.add(name);
+    }
+
+    /**
+     * One sample per semaphore that keeps its queue in process
+     */
+    private void semaphoreSamples(final StringBuilder text,
+                                  final String name,
+                                  final ToDoubleFunction<PermitStats> value)
+    {
+        for (final CloudResource resource : resources)
+        {
+            DistributedSemaphore semaphore = resource.getSemaphore();
+            PermitStats stats              = semaphore.getStats();
+            if (stats != null)
+            {
+                sample(text, name, label("semaphore", semaphore.getName()), value.applyAsDouble(stats));
+            }
+        }
+    }
+
+    private static void summary(final StringBuilder text,
+                                final String name,
+                                final String help,
+                                final LatencyHistogram histogram)
+    {
+        metric(text, name, "summary", help);
+        for (final double quantile : quantiles)
+        {
+            sample(text, name, label("quantile", String.valueOf(quantile)),
+                    histogram.valueAtPercentile(quantile * 100));
+        }
+        sample(text, name + "_sum", "", histogram.getSum());
+        sample(text, name + "_count", "", histogram.getCount());
+    }
+
+    private static void metric(final StringBuilder text,
+                               final String name,
+                               final String type,
+                               final String help)
+    {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(final StringBuilder text,
+                               final String name,
+                               final String labels,
+                               final double value)
+    {
+        text.append(name).append(labels).append(' ');
+        if (value == Math.rint(value))
+        {
+            text.append((long)value);
+        }
+        else
+        {
+            text.append(String.format(Locale.ROOT, "%.3f", value));
+        }
+        text.append('\n');
+    }
+
+    private static String label(final String name,
+                                final String value)
+    {
+        return "{" + name + "=\"" + value + "\"}";
+    }
+}
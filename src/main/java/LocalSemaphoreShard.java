@@ -0,0 +1,34 @@
+import Semaphore.PermitBackend;
+import Semaphore.PermitEngine;
+
+/**
+ * Shard that keeps its semaphores in this process
+ */
+class LocalSemaphoreShard implements SemaphoreShard
+{
+    private final String name;
+
+    public LocalSemaphoreShard(final String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public PermitBackend open(final String semaphoreName,
+                              final int permits)
+    {
+        return new PermitEngine(permits);
+    }
+
+    @Override
+    public void close()
+    {
+        // Nothing to release, the engines go away with their semaphores
+    }
+}
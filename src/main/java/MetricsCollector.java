@@ -1,74 +1,388 @@
-import java.io.FileWriter;
+import Semaphore.LatencyHistogram;
+import Semaphore.PermitStats;
+import Semaphore.TimeSeries;
+
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Metrics collection for performance analysis
+ * Metrics collection for performance analysis.
+ *
+ * Recording never takes a collector-wide lock: each thread appends to one of several
+ * striped buffers chosen by its thread id, and counters are {@link LongAdder}s. The
+ * stripes are merged when the summary is printed or the file is saved.
  */
-class MetricsCollector
+class MetricsCollector implements MetricsCollectorMBean
 {
-    private final Object lock;
-    private final List<AccessLogEntry> accessLogs;
-    private final List<ConflictLogEntry> conflictLogs;
-    private final List<ConflictLogEntry> timeoutLogs;
+    private static final int defaultWindowMs = 1000;
+    private static final int defaultWindows  = 600;
+
+    private final MetricsStripe[] stripes;
+    private final int stripeMask;
+    private final ResourceIdTable resourceIds;
 
     // Performance metrics
-    private final AtomicInteger totalRequests      = new AtomicInteger(0);
-    private final AtomicInteger successfulRequests = new AtomicInteger(0);
-    private final AtomicInteger conflictCount      = new AtomicInteger(0);
-    private final AtomicInteger timeoutCount       = new AtomicInteger(0);
+    private final LongAdder totalRequests      = new LongAdder();
+    private final LongAdder successfulRequests = new LongAdder();
+    private final LongAdder conflictCount      = new LongAdder();
+    private final LongAdder timeoutCount       = new LongAdder();
+
+    // Latency distributions, recorded lock-free next to the log
+    private final LatencyStats overallLatency = new LatencyStats();
+    private final ConcurrentHashMap<String, LatencyStats> resourceLatency = new ConcurrentHashMap<>();
+
+    // Per-container distributions cost about 14 KB per container, so they are only kept on request (null otherwise)
+    private final ConcurrentHashMap<Integer, LatencyStats> containerLatency;
+
+    // Permit lease activity, only recorded when leases are enabled
+    private final LongAdder leaseAccesses      = new LongAdder();
+    private final LongAdder leaseHits          = new LongAdder();
+    private final LongAdder roundTripsSaved    = new LongAdder();
+    private final LongAdder leaseRenewals      = new LongAdder();
+    private final LongAdder leaseRevocations   = new LongAdder();
+    private final LongAdder leaseExpirations   = new LongAdder();
+    private final LongAdder leaseProbes        = new LongAdder();
+    private final LatencyHistogram leaseHitTime  = new LatencyHistogram();
+    private final LatencyHistogram leaseMissTime = new LatencyHistogram();
+
+    // Read/write mix, only recorded when reads are told apart from writes
+    private final LongAdder reads               = new LongAdder();
+    private final LongAdder writes              = new LongAdder();
+    private final LongAdder readWriteConflicts  = new LongAdder();
+    private final LongAdder writeWriteConflicts = new LongAdder();
+    private final LatencyHistogram readTime     = new LatencyHistogram();
+    private final LatencyHistogram writeTime    = new LatencyHistogram();
+
+    // Multi-resource transactions, only recorded when containers take several resources at once
+    private final LongAdder transactions           = new LongAdder();
+    private final LongAdder transactionAborts      = new LongAdder();
+    private final LongAdder transactionTimeouts    = new LongAdder();
+    private final LatencyHistogram transactionHold = new LatencyHistogram();
+    private final LatencyHistogram transactionTime = new LatencyHistogram();
+
+    // Acquire time per priority class (0 normal, 1 high), only recorded when some containers are high priority
+    private final LatencyHistogram[] priorityWaitTime = {new LatencyHistogram(), new LatencyHistogram()};
+
+    // Wait-queue statistics per resource, handed over at the end of a run with in-process semaphores
+    private final ConcurrentHashMap<String, PermitStats> semaphoreStats = new ConcurrentHashMap<>();
+
+    // Throughput, conflicts, timeouts and latency per time window
+    private final TimeSeries timeSeries;
+
+    // Set while events are being streamed to disk during the run
+    private StreamingMetricsWriter streamWriter;
 
     // Time tracking
+    private final Clock clock;
     private final Instant startTime;
 
     public MetricsCollector()
     {
-        accessLogs   = new ArrayList<>();
-        conflictLogs = new ArrayList<>();
-        timeoutLogs  = new ArrayList<>();
-        lock         = new Object();
-        startTime    = Instant.now();
+        this(Clock.systemUTC());
+    }
+
+    /**
+     * @param clock source of time for durations and throughput (virtual in discrete-event runs)
+     */
+    public MetricsCollector(final Clock clock)
+    {
+        this(clock, defaultWindowMs, defaultWindows, false);
+    }
+
+    /**
+     * @param windowMs width of each time-series window
+     * @param windows number of windows kept, which bounds the memory the time series uses
+     * @param perContainerLatency whether to keep latency histograms for every container as well
+     */
+    public MetricsCollector(final Clock clock,
+                            final int windowMs,
+                            final int windows,
+                            final boolean perContainerLatency)
+    {
+        // Enough stripes that concurrent recorders rarely land on the same one
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1) << 1;
+        stripes         = new MetricsStripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+        {
+            stripes[i] = new MetricsStripe();
+        }
+        stripeMask       = stripeCount - 1;
+        resourceIds      = new ResourceIdTable();
+        this.clock       = clock;
+        startTime        = Instant.now(clock);
+        timeSeries       = new TimeSeries(windowMs, windows, clock::millis);
+        containerLatency = perContainerLatency ? new ConcurrentHashMap<>() : null;
     }
 
+    /**
+     * Record one completed access that has just finished; its start time is derived from the clock
+     */
     public void recordAccess(final int containerId,
                              final String resourceId,
                              final long acquireTime,
                              final int processingTime,
                              final long totalTime)
     {
-        synchronized (lock)
+        long startTimeMs = clock.millis() - startTime.toEpochMilli() - totalTime;
+        recordAccess(containerId, resourceId, acquireTime, processingTime, totalTime, Math.max(0, startTimeMs));
+    }
+
+    /**
+     * Record one completed access
+     * @param startTimeMs when it started, in ms since the run started, or -1 if unknown
+     */
+    public void recordAccess(final int containerId,
+                             final String resourceId,
+                             final long acquireTime,
+                             final int processingTime,
+                             final long totalTime,
+                             final long startTimeMs)
+    {
+        int resourceIndex    = resourceIds.intern(resourceId);
+        MetricsStripe stripe = currentStripe();
+
+        stripe.lock.lock();
+        try
+        {
+            stripe.accessLogs.append(containerId, resourceIndex, acquireTime, processingTime, totalTime, startTimeMs);
+        }
+        finally
+        {
+            stripe.lock.unlock();
+        }
+        overallLatency.record(acquireTime, processingTime, totalTime);
+        resourceLatency.computeIfAbsent(resourceId, id -> new LatencyStats())
+                .record(acquireTime, processingTime, totalTime);
+        if (containerLatency != null)
         {
-            accessLogs.add(new AccessLogEntry(
-                    containerId, resourceId, acquireTime, processingTime, totalTime));
+            containerLatency.computeIfAbsent(containerId, id -> new LatencyStats())
+                    .record(acquireTime, processingTime, totalTime);
         }
-        totalRequests.incrementAndGet();
-        successfulRequests.incrementAndGet();
+        totalRequests.increment();
+        successfulRequests.increment();
+        timeSeries.recordCompletion(totalTime);
     }
 
     public void recordConflict(final int containerId,
                                final String resourceId)
     {
-        synchronized (lock)
+        int resourceIndex    = resourceIds.intern(resourceId);
+        MetricsStripe stripe = currentStripe();
+
+        stripe.lock.lock();
+        try
+        {
+            stripe.conflictLogs.append(containerId, resourceIndex);
+        }
+        finally
         {
-            conflictLogs.add(new ConflictLogEntry(containerId, resourceId));
+            stripe.lock.unlock();
         }
-        conflictCount.incrementAndGet();
+        conflictCount.increment();
+        timeSeries.recordConflict();
+    }
+
+    /**
+     * Record a write that overlapped a read on a resource with exclusive writes
+     */
+    public void recordReadWriteConflict(final int containerId,
+                                        final String resourceId)
+    {
+        readWriteConflicts.increment();
+        recordConflict(containerId, resourceId);
+    }
+
+    /**
+     * Record more writes in progress on a resource than its permits allow
+     */
+    public void recordWriteWriteConflict(final int containerId,
+                                         final String resourceId)
+    {
+        writeWriteConflicts.increment();
+        recordConflict(containerId, resourceId);
     }
 
     public void recordTimeout(final int containerId,
                               final String resourceId)
     {
-        synchronized (lock)
+        int resourceIndex    = resourceIds.intern(resourceId);
+        MetricsStripe stripe = currentStripe();
+
+        stripe.lock.lock();
+        try
+        {
+            stripe.timeoutLogs.append(containerId, resourceIndex);
+        }
+        finally
+        {
+            stripe.lock.unlock();
+        }
+        totalRequests.increment();
+        timeoutCount.increment();
+        timeSeries.recordTimeout();
+
+        AccessTimeoutEvent event = new AccessTimeoutEvent();
+        if (event.shouldCommit())
+        {
+            event.containerId = containerId;
+            event.resourceId  = resourceId;
+            event.commit();
+        }
+    }
+
+    /**
+     * Record one completed multi-resource transaction
+     * @param holdTime how long the first permit was held before all were given back
+     */
+    public void recordTransaction(final long holdTime,
+                                  final long totalTime)
+    {
+        transactions.increment();
+        transactionHold.record(holdTime);
+        transactionTime.record(totalTime);
+    }
+
+    /**
+     * Record a transaction attempt that gave back its permits because one was busy
+     */
+    public void recordTransactionAbort()
+    {
+        transactionAborts.increment();
+    }
+
+    public void recordTransactionTimeout()
+    {
+        transactionTimeouts.increment();
+    }
+
+    /**
+     * Record the kind and total time of one completed read or write
+     */
+    public void recordReadWrite(final boolean write,
+                                final long totalTime)
+    {
+        if (write)
         {
-            timeoutLogs.add(new ConflictLogEntry(containerId, resourceId));
+            writes.increment();
+            writeTime.record(totalTime);
+        }
+        else
+        {
+            reads.increment();
+            readTime.record(totalTime);
+        }
+    }
+
+    /**
+     * Record how long a container of the given priority class waited for its permit
+     */
+    public void recordPriorityWait(final int priority,
+                                   final long acquireTime)
+    {
+        priorityWaitTime[priority].record(acquireTime);
+    }
+
+    /**
+     * Keep the wait-queue statistics of a resource's semaphore for the summary and the metrics file
+     */
+    public void recordSemaphoreStats(final String resourceId,
+                                     final PermitStats stats)
+    {
+        semaphoreStats.put(resourceId, stats);
+    }
+
+    /**
+     * Get the wait-queue statistics kept for each resource's semaphore, by resource id
+     */
+    public Map<String, PermitStats> getSemaphoreStats()
+    {
+        return semaphoreStats;
+    }
+
+    /**
+     * Record one completed access in lease mode
+     * @param hit whether a parked lease was reused instead of acquiring
+     * @param saved semaphore round trips saved compared to acquiring and releasing
+     */
+    public void recordLeaseAccess(final boolean hit,
+                                  final int saved,
+                                  final long totalTime)
+    {
+        leaseAccesses.increment();
+        if (hit)
+        {
+            leaseHits.increment();
+            leaseHitTime.record(totalTime);
+        }
+        else
+        {
+            leaseMissTime.record(totalTime);
+        }
+        recordRoundTripsSaved(saved);
+    }
+
+    /**
+     * Record round trips saved (or, when negative, paid back) outside a completed access
+     */
+    public void recordRoundTripsSaved(final int saved)
+    {
+        roundTripsSaved.add(saved);
+    }
+
+    /**
+     * Record a round trip paid to ask a coordinator whether a leased permit has waiters
+     */
+    public void recordLeaseProbe()
+    {
+        leaseProbes.increment();
+        roundTripsSaved.decrement();
+    }
+
+    public void recordLeaseRenewal()
+    {
+        leaseRenewals.increment();
+    }
+
+    public void recordLeaseRevocation()
+    {
+        leaseRevocations.increment();
+    }
+
+    public void recordLeaseExpiry()
+    {
+        leaseExpirations.increment();
+    }
+
+    /**
+     * Stream recorded events to part files next to the given metrics file while the run goes on.
+     * Memory then stays bounded by what is recorded between two flushes, and
+     * {@link #saveToFile} assembles the final file from the streamed parts.
+     */
+    public void startStreaming(final String filename,
+                               final int flushIntervalMs)
+    {
+        try
+        {
+            streamWriter = new StreamingMetricsWriter(filename, stripes, resourceIds, flushIntervalMs);
+            streamWriter.start();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error starting metrics stream, keeping metrics in memory: " + e.getMessage());
         }
-        totalRequests.incrementAndGet();
-        timeoutCount.incrementAndGet();
     }
 
     /**
@@ -77,7 +391,21 @@ class MetricsCollector
     public void saveToFile(final String filename,
                            final SimulationConfig config)
     {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename)))
+        if (streamWriter != null)
+        {
+            streamWriter.finish();
+            if (streamWriter.hasIncompleteParts())
+            {
+                // The streamed logs may end mid-row; a file built from them would silently lose rows
+                System.err.println("Error saving metrics to file: streamed logs are incomplete after " +
+                        streamWriter.getFailure().getMessage());
+                closeStream();
+                return;
+            }
+        }
+
+        try (FileOutputStream out = new FileOutputStream(filename);
+             PrintWriter writer   = new PrintWriter(out))
         {
             // Write simulation configuration
             writer.println("# Simulation Configuration");
@@ -86,61 +414,61 @@ class MetricsCollector
             writer.println("SimulationTime," + config.simulationTimeSeconds);
             writer.println("MaxConcurrentAccess," + config.maxConcurrentAccess);
             writer.println("SynchronizationEnabled," + config.enableSynchronization);
+            if (config.enableSynchronization && !config.syncStrategy.equals(DistributedSemaphoreStrategy.strategyName))
+            {
+                writer.println("SyncStrategy," + config.syncStrategy);
+            }
             writer.println("NetworkLatencyMean," + config.networkLatencyMeanMs);
             writer.println("ProcessingTimeMean," + config.processingTimeMeanMs);
+            if (config.arrivalProcess.isOpenLoop())
+            {
+                writer.println("ArrivalProcess," + config.arrivalProcess);
+                writer.println("TargetOpsPerSecond," + config.targetOpsPerSecond);
+            }
             writer.println();
 
             // Write summary metrics
             writer.println("# Summary Metrics");
-            writer.println("TotalRequests," + totalRequests.get());
-            writer.println("SuccessfulRequests," + successfulRequests.get());
-            writer.println("Conflicts," + conflictCount.get());
-            writer.println("Timeouts," + timeoutCount.get());
+            writer.println("TotalRequests," + totalRequests.sum());
+            writer.println("SuccessfulRequests," + successfulRequests.sum());
+            writer.println("Conflicts," + conflictCount.sum());
+            writer.println("Timeouts," + timeoutCount.sum());
 
-            Instant endTime = Instant.now();
+            Instant endTime = Instant.now(clock);
             long duration = Duration.between(startTime, endTime).getSeconds();
 
             writer.println("TotalDuration," + duration);
-            writer.println("ThroughputPerSecond," + ((float)successfulRequests.get() / Math.max(1, duration)));
+            writer.println("ThroughputPerSecond," + ((float)successfulRequests.sum() / Math.max(1, duration)));
 
             // Calculate average times
-            double avgAcquireTime = 0;
-            double avgProcessingTime = 0;
-            double avgTotalTime = 0;
+            double[] averages = averageTimes();
 
-            synchronized (lock)
-            {
-                for (final AccessLogEntry log : accessLogs)
-                {
-                    avgAcquireTime += log.acquireTime;
-                    avgProcessingTime += log.processingTime;
-                    avgTotalTime += log.totalTime;
-                }
-
-                if (!accessLogs.isEmpty())
-                {
-                    avgAcquireTime /= accessLogs.size();
-                    avgProcessingTime /= accessLogs.size();
-                    avgTotalTime /= accessLogs.size();
-                }
-            }
-
-            writer.println("AvgAcquireTimeMs," + avgAcquireTime);
-            writer.println("AvgProcessingTimeMs," + avgProcessingTime);
-            writer.println("AvgTotalTimeMs," + avgTotalTime);
+            writer.println("AvgAcquireTimeMs," + averages[0]);
+            writer.println("AvgProcessingTimeMs," + averages[1]);
+            writer.println("AvgTotalTimeMs," + averages[2]);
             writer.println();
 
             // Write detailed access logs
             writer.println("# Access Logs");
-            writer.println("ContainerId,ResourceId,AcquireTimeMs,ProcessingTimeMs,TotalTimeMs");
+            writer.println("ContainerId,ResourceId,AcquireTimeMs,ProcessingTimeMs,TotalTimeMs,StartTimeMs");
 
-            synchronized (lock)
+            if (streamWriter != null)
             {
-                for (final AccessLogEntry log : accessLogs)
+                writer.flush();
+                streamWriter.transferAccessLogs(out.getChannel());
+            }
+            for (final MetricsStripe stripe : stripes)
+            {
+                stripe.lock.lock();
+                try
+                {
+                    // Rows left over from a failed stream flush, then the ones recorded since
+                    writeAccessLog(writer, stripe.drainedAccessLogs);
+                    writeAccessLog(writer, stripe.accessLogs);
+                }
+                finally
                 {
-                    writer.println(log.containerId + "," + log.resourceId + "," +
-                            log.acquireTime + "," + log.processingTime + "," +
-                            log.totalTime);
+                    stripe.lock.unlock();
                 }
             }
 
@@ -150,11 +478,22 @@ class MetricsCollector
             writer.println("# Conflict Logs");
             writer.println("ContainerId,ResourceId");
 
-            synchronized (lock)
+            if (streamWriter != null)
+            {
+                writer.flush();
+                streamWriter.transferConflictLogs(out.getChannel());
+            }
+            for (final MetricsStripe stripe : stripes)
             {
-                for (final ConflictLogEntry log : conflictLogs)
+                stripe.lock.lock();
+                try
                 {
-                    writer.println(log.containerId + "," + log.resourceId);
+                    writeConflictLog(writer, stripe.drainedConflictLogs);
+                    writeConflictLog(writer, stripe.conflictLogs);
+                }
+                finally
+                {
+                    stripe.lock.unlock();
                 }
             }
 
@@ -164,14 +503,235 @@ class MetricsCollector
             writer.println("# Timeout Logs");
             writer.println("ContainerId,ResourceId");
 
-            synchronized (lock)
+            if (streamWriter != null)
+            {
+                writer.flush();
+                streamWriter.transferTimeoutLogs(out.getChannel());
+            }
+            for (final MetricsStripe stripe : stripes)
+            {
+                stripe.lock.lock();
+                try
+                {
+                    writeConflictLog(writer, stripe.drainedTimeoutLogs);
+                    writeConflictLog(writer, stripe.timeoutLogs);
+                }
+                finally
+                {
+                    stripe.lock.unlock();
+                }
+            }
+
+            writer.println();
+
+            // Write latency percentiles
+            writer.println("# Latency Percentiles");
+            writer.println("Scope,Id,Metric,Count,P50Ms,P90Ms,P99Ms,P999Ms,MaxMs");
+            writePercentiles(writer, "all", "all", overallLatency);
+            for (final Map.Entry<String, LatencyStats> entry : new TreeMap<>(resourceLatency).entrySet())
+            {
+                writePercentiles(writer, "resource", entry.getKey(), entry.getValue());
+            }
+            if (containerLatency != null)
+            {
+                for (final Map.Entry<Integer, LatencyStats> entry : new TreeMap<>(containerLatency).entrySet())
+                {
+                    writePercentiles(writer, "container", String.valueOf(entry.getKey()), entry.getValue());
+                }
+            }
+
+            writer.println();
+
+            // Write latency histogram buckets for the whole run
+            writer.println("# Latency Histogram");
+            writer.println("Metric,BucketUpperMs,Count");
+            writeBuckets(writer, "AcquireTime", overallLatency.acquireTime);
+            writeBuckets(writer, "ProcessingTime", overallLatency.processingTime);
+            writeBuckets(writer, "TotalTime", overallLatency.totalTime);
+
+            writer.println();
+
+            // Write how the run went over time, one row per window
+            writer.println("# Time Series");
+            writer.println("WindowMs," + timeSeries.getWindowMs());
+            writer.println(TimeSeries.csvHeader);
+            timeSeries.writeCsv(writer, "");
+
+            if (leaseAccesses.sum() > 0)
+            {
+                writer.println();
+
+                // Write permit lease activity
+                writer.println("# Lease Metrics");
+                writer.println("LeaseAccesses," + leaseAccesses.sum());
+                writer.println("LeaseHits," + leaseHits.sum());
+                writer.println("RoundTripsSaved," + roundTripsSaved.sum());
+                writer.println("WaiterProbes," + leaseProbes.sum());
+                writer.println("Renewals," + leaseRenewals.sum());
+                writer.println("Revocations," + leaseRevocations.sum());
+                writer.println("Expirations," + leaseExpirations.sum());
+                writer.println("AverageTotalTimeOnHit," + leaseHitTime.getMean());
+                writer.println("AverageTotalTimeOnMiss," + leaseMissTime.getMean());
+            }
+
+            if (reads.sum() + writes.sum() > 0)
+            {
+                writer.println();
+
+                // Write the read/write mix and how each kind fared
+                writer.println("# Read/Write Metrics");
+                writer.println("Reads," + reads.sum());
+                writer.println("Writes," + writes.sum());
+                writer.println("ReadWriteConflicts," + readWriteConflicts.sum());
+                writer.println("WriteWriteConflicts," + writeWriteConflicts.sum());
+                writer.println("Scope,Id,Metric,Count,P50Ms,P90Ms,P99Ms,P999Ms,MaxMs");
+                writePercentileRow(writer, "kind", "read", "TotalTime", readTime);
+                writePercentileRow(writer, "kind", "write", "TotalTime", writeTime);
+            }
+
+            if (transactions.sum() + transactionTimeouts.sum() > 0)
+            {
+                writer.println();
+
+                // Write multi-resource transaction outcomes and how long permits were held
+                writer.println("# Transaction Metrics");
+                writer.println("Transactions," + transactions.sum());
+                writer.println("AbortedAttempts," + transactionAborts.sum());
+                writer.println("TimedOut," + transactionTimeouts.sum());
+                writer.println("Scope,Id,Metric,Count,P50Ms,P90Ms,P99Ms,P999Ms,MaxMs");
+                writePercentileRow(writer, "transaction", "all", "HoldTime", transactionHold);
+                writePercentileRow(writer, "transaction", "all", "TotalTime", transactionTime);
+            }
+
+            if (priorityWaitTime[1].getCount() > 0)
+            {
+                writer.println();
+
+                // Write acquire time per priority class
+                writer.println("# Wait Time By Priority");
+                writer.println("Scope,Id,Metric,Count,P50Ms,P90Ms,P99Ms,P999Ms,MaxMs");
+                writePercentileRow(writer, "priority", "high", "AcquireTime", priorityWaitTime[1]);
+                writePercentileRow(writer, "priority", "normal", "AcquireTime", priorityWaitTime[0]);
+            }
+
+            if (!semaphoreStats.isEmpty())
+            {
+                writer.println();
+
+                // Write how long containers queued inside each semaphore, apart from network time
+                writer.println("# Semaphore Wait Queues");
+                writer.println("ResourceId,Acquires,QueuedAcquires,PeakQueueLength,Timeouts,TimeoutRate," +
+                        "Wakeups,FutileWakeups,WakeupsPerAcquire,P50QueueMs,P99QueueMs,MaxQueueMs,Utilization");
+                for (final Map.Entry<String, PermitStats> entry : new TreeMap<>(semaphoreStats).entrySet())
+                {
+                    PermitStats stats            = entry.getValue();
+                    LatencyHistogram queueTimeUs = stats.getQueueTimeUs();
+                    writer.println(entry.getKey() + "," +
+                            stats.getAcquires() + "," +
+                            stats.getQueuedAcquires() + "," +
+                            stats.getPeakQueueLength() + "," +
+                            stats.getTimeouts() + "," +
+                            stats.getTimeoutRate() + "," +
+                            stats.getWakeups() + "," +
+                            stats.getFutileWakeups() + "," +
+                            stats.getWakeupsPerAcquire() + "," +
+                            queueTimeUs.valueAtPercentile(50) / 1000.0 + "," +
+                            queueTimeUs.valueAtPercentile(99) / 1000.0 + "," +
+                            queueTimeUs.getMax() / 1000.0 + "," +
+                            stats.getUtilization());
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving metrics to file: " + e.getMessage());
+        }
+        finally
+        {
+            closeStream();
+        }
+    }
+
+    /**
+     * Save metrics in the compact binary format described by {@link BinaryMetricsFormat}.
+     * Reads the in-memory logs, so it is meant for runs that do not stream to CSV.
+     */
+    public void saveBinary(final String filename,
+                           final SimulationConfig config)
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(BinaryMetricsFormat.order);
+
+            // Header; duration, record count and table offset are patched in at the end
+            buffer.putInt(BinaryMetricsFormat.magic);
+            buffer.putInt(BinaryMetricsFormat.version);
+            buffer.putInt(BinaryMetricsFormat.recordSize);
+            buffer.putInt(config.numContainers);
+            buffer.putInt(config.numResources);
+            buffer.putInt(config.simulationTimeSeconds);
+            buffer.putInt(config.maxConcurrentAccess);
+            buffer.putInt(config.enableSynchronization ? 1 : 0);
+            buffer.putInt(config.networkLatencyMeanMs);
+            buffer.putInt(config.processingTimeMeanMs);
+            buffer.putLong(0);
+            buffer.putLong(0);
+            buffer.putLong(0);
+
+            long records = 0;
+            for (final MetricsStripe stripe : stripes)
             {
-                for (final ConflictLogEntry log : timeoutLogs)
+                stripe.lock.lock();
+                try
+                {
+                    AccessLogStore accessLogs = stripe.accessLogs;
+                    for (int row = 0; row < accessLogs.size(); row++)
+                    {
+                        putRecord(channel, buffer, BinaryMetricsFormat.typeAccess,
+                                accessLogs.containerId(row), accessLogs.resourceIndex(row),
+                                accessLogs.acquireTime(row), accessLogs.processingTime(row),
+                                accessLogs.totalTime(row), accessLogs.startTime(row));
+                    }
+                    for (int row = 0; row < stripe.conflictLogs.size(); row++)
+                    {
+                        putRecord(channel, buffer, BinaryMetricsFormat.typeConflict,
+                                stripe.conflictLogs.containerId(row), stripe.conflictLogs.resourceIndex(row), 0, 0, 0, -1);
+                    }
+                    for (int row = 0; row < stripe.timeoutLogs.size(); row++)
+                    {
+                        putRecord(channel, buffer, BinaryMetricsFormat.typeTimeout,
+                                stripe.timeoutLogs.containerId(row), stripe.timeoutLogs.resourceIndex(row), 0, 0, 0, -1);
+                    }
+                    records += accessLogs.size() + stripe.conflictLogs.size() + stripe.timeoutLogs.size();
+                }
+                finally
                 {
-                    writer.println(log.containerId + "," + log.resourceId);
+                    stripe.lock.unlock();
                 }
             }
 
+            // Resource table
+            long tableOffset = BinaryMetricsFormat.headerSize + records * BinaryMetricsFormat.recordSize;
+            drainIfFull(channel, buffer, 4);
+            buffer.putInt(resourceIds.size());
+            for (int i = 0; i < resourceIds.size(); i++)
+            {
+                byte[] name = resourceIds.name(i).getBytes(StandardCharsets.US_ASCII);
+                drainIfFull(channel, buffer, 2 + name.length);
+                buffer.putShort((short)name.length);
+                buffer.put(name);
+            }
+            flushBuffer(channel, buffer);
+
+            ByteBuffer patch = ByteBuffer.allocate(24).order(BinaryMetricsFormat.order);
+            patch.putLong(Duration.between(startTime, Instant.now(clock)).toMillis());
+            patch.putLong(records);
+            patch.putLong(tableOffset);
+            patch.flip();
+            channel.write(patch, BinaryMetricsFormat.durationOffset);
         }
         catch (final IOException e)
         {
@@ -179,47 +739,374 @@ class MetricsCollector
         }
     }
 
+    private static void putRecord(final FileChannel channel,
+                                  final ByteBuffer buffer,
+                                  final int type,
+                                  final int containerId,
+                                  final int resourceIndex,
+                                  final long acquireTime,
+                                  final int processingTime,
+                                  final long totalTime,
+                                  final long startTime) throws IOException
+    {
+        drainIfFull(channel, buffer, BinaryMetricsFormat.recordSize);
+        buffer.putInt(type << BinaryMetricsFormat.typeShift | resourceIndex);
+        buffer.putInt(containerId);
+        buffer.putInt((int)acquireTime);
+        buffer.putInt(processingTime);
+        buffer.putInt((int)totalTime);
+        buffer.putInt((int)startTime);
+    }
+
+    /**
+     * Write the buffer out when fewer than the needed bytes are left
+     */
+    private static void drainIfFull(final FileChannel channel,
+                                    final ByteBuffer buffer,
+                                    final int needed) throws IOException
+    {
+        if (buffer.remaining() < needed)
+        {
+            flushBuffer(channel, buffer);
+        }
+    }
+
+    private static void flushBuffer(final FileChannel channel,
+                                    final ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void closeStream()
+    {
+        if (streamWriter == null)
+        {
+            return;
+        }
+        try
+        {
+            streamWriter.close();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error removing streamed metrics parts: " + e.getMessage());
+        }
+        streamWriter = null;
+    }
+
+    private void writeAccessLog(final PrintWriter writer,
+                                final AccessLogStore logs)
+    {
+        for (int row = 0; row < logs.size(); row++)
+        {
+            writer.println(logs.containerId(row) + "," +
+                    resourceIds.name(logs.resourceIndex(row)) + "," +
+                    logs.acquireTime(row) + "," + logs.processingTime(row) + "," +
+                    logs.totalTime(row) + "," + logs.startTime(row));
+        }
+    }
+
+    private void writeConflictLog(final PrintWriter writer,
+                                  final ConflictLogStore logs)
+    {
+        for (int row = 0; row < logs.size(); row++)
+        {
+            writer.println(logs.containerId(row) + "," + resourceIds.name(logs.resourceIndex(row)));
+        }
+    }
+
+    /**
+     * Average acquire, processing and total time over all stripes
+     */
+    private double[] averageTimes()
+    {
+        double[] averages = new double[3];
+
+        // Streamed rows have left memory, but the histograms saw every one of them
+        if (streamWriter != null)
+        {
+            averages[0] = overallLatency.acquireTime.getMean();
+            averages[1] = overallLatency.processingTime.getMean();
+            averages[2] = overallLatency.totalTime.getMean();
+            return averages;
+        }
+
+        long rows         = 0;
+
+        for (final MetricsStripe stripe : stripes)
+        {
+            stripe.lock.lock();
+            try
+            {
+                AccessLogStore accessLogs = stripe.accessLogs;
+                for (int row = 0; row < accessLogs.size(); row++)
+                {
+                    averages[0] += accessLogs.acquireTime(row);
+                    averages[1] += accessLogs.processingTime(row);
+                    averages[2] += accessLogs.totalTime(row);
+                }
+                rows += accessLogs.size();
+            }
+            finally
+            {
+                stripe.lock.unlock();
+            }
+        }
+
+        if (rows > 0)
+        {
+            averages[0] /= rows;
+            averages[1] /= rows;
+            averages[2] /= rows;
+        }
+        return averages;
+    }
+
+    private MetricsStripe currentStripe()
+    {
+        // Spread thread ids so consecutive ids land on different stripes
+        long id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return stripes[(int)(id >>> 32) & stripeMask];
+    }
+
+    private static void writePercentiles(final PrintWriter writer,
+                                         final String scope,
+                                         final String id,
+                                         final LatencyStats stats)
+    {
+        writePercentileRow(writer, scope, id, "AcquireTime", stats.acquireTime);
+        writePercentileRow(writer, scope, id, "ProcessingTime", stats.processingTime);
+        writePercentileRow(writer, scope, id, "TotalTime", stats.totalTime);
+    }
+
+    private static void writePercentileRow(final PrintWriter writer,
+                                           final String scope,
+                                           final String id,
+                                           final String metric,
+                                           final LatencyHistogram histogram)
+    {
+        writer.println(scope + "," + id + "," + metric + "," + histogram.getCount() + "," +
+                histogram.valueAtPercentile(50) + "," +
+                histogram.valueAtPercentile(90) + "," +
+                histogram.valueAtPercentile(99) + "," +
+                histogram.valueAtPercentile(99.9) + "," +
+                histogram.getMax());
+    }
+
+    private static void writeBuckets(final PrintWriter writer,
+                                     final String metric,
+                                     final LatencyHistogram histogram)
+    {
+        for (int i = 0; i < histogram.bucketCount(); i++)
+        {
+            long count = histogram.countAt(i);
+            if (count > 0)
+            {
+                writer.println(metric + "," + histogram.bucketUpperBound(i) + "," + count);
+            }
+        }
+    }
+
+    @Override
+    public long getTotalRequests()
+    {
+        return totalRequests.sum();
+    }
+
+    @Override
+    public long getSuccessfulRequests()
+    {
+        return successfulRequests.sum();
+    }
+
+    @Override
+    public long getConflictCount()
+    {
+        return conflictCount.sum();
+    }
+
+    @Override
+    public long getTimeoutCount()
+    {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * Get successful requests per second since the run started
+     */
+    @Override
+    public double getThroughputPerSecond()
+    {
+        long elapsedMs = Duration.between(startTime, Instant.now(clock)).toMillis();
+        return successfulRequests.sum() * 1000.0 / Math.max(1, elapsedMs);
+    }
+
+    @Override
+    public double getAvgAcquireTimeMs()
+    {
+        return overallLatency.acquireTime.getMean();
+    }
+
+    @Override
+    public long getP99AcquireTimeMs()
+    {
+        return overallLatency.acquireTime.valueAtPercentile(99);
+    }
+
+    @Override
+    public long getP99TotalTimeMs()
+    {
+        return overallLatency.totalTime.valueAtPercentile(99);
+    }
+
+    public long getLeaseHits()
+    {
+        return leaseHits.sum();
+    }
+
+    public long getRoundTripsSaved()
+    {
+        return roundTripsSaved.sum();
+    }
+
+    public long getReads()
+    {
+        return reads.sum();
+    }
+
+    public long getWrites()
+    {
+        return writes.sum();
+    }
+
+    public long getReadWriteConflicts()
+    {
+        return readWriteConflicts.sum();
+    }
+
+    public long getWriteWriteConflicts()
+    {
+        return writeWriteConflicts.sum();
+    }
+
+    public long getTransactions()
+    {
+        return transactions.sum();
+    }
+
+    public long getTransactionAborts()
+    {
+        return transactionAborts.sum();
+    }
+
+    public long getTransactionTimeouts()
+    {
+        return transactionTimeouts.sum();
+    }
+
+    public LatencyHistogram getTransactionHold()
+    {
+        return transactionHold;
+    }
+
+    public LatencyHistogram getTransactionTime()
+    {
+        return transactionTime;
+    }
+
+    public LatencyHistogram getReadTime()
+    {
+        return readTime;
+    }
+
+    public LatencyHistogram getWriteTime()
+    {
+        return writeTime;
+    }
+
     /**
      * Print summary to console
      */
     public void printSummary()
     {
         System.out.println("\n==== Simulation Summary ====");
-        System.out.println("Total requests: " + totalRequests.get());
-        System.out.println("Successful requests: " + successfulRequests.get());
-        System.out.println("Conflicts: " + conflictCount.get());
-        System.out.println("Timeouts: " + timeoutCount.get());
+        System.out.println("Total requests: " + totalRequests.sum());
+        System.out.println("Successful requests: " + successfulRequests.sum());
+        System.out.println("Conflicts: " + conflictCount.sum());
+        System.out.println("Timeouts: " + timeoutCount.sum());
 
-        Instant endTime = Instant.now();
+        Instant endTime = Instant.now(clock);
         long duration   = Duration.between(startTime, endTime).getSeconds();
 
         System.out.println("Total duration: " + duration + " seconds");
-        System.out.println("Throughput: " + ((float)successfulRequests.get() / Math.max(1, duration)) + " requests/second");
+        System.out.println("Throughput: " + ((float)successfulRequests.sum() / Math.max(1, duration)) + " requests/second");
 
         // Calculate average times
-        double avgAcquireTime = 0;
-        double avgProcessingTime = 0;
-        double avgTotalTime = 0;
+        double[] averages = averageTimes();
+
+        System.out.println("Average acquire time: " + averages[0] + " ms");
+        System.out.println("Average processing time: " + averages[1] + " ms");
+        System.out.println("Average total time: " + averages[2] + " ms");
 
-        synchronized (lock)
+        printPercentiles("Acquire time", overallLatency.acquireTime);
+        printPercentiles("Processing time", overallLatency.processingTime);
+        printPercentiles("Total time", overallLatency.totalTime);
+
+        if (leaseAccesses.sum() > 0)
         {
-            for (final AccessLogEntry log : accessLogs)
-            {
-                avgAcquireTime += log.acquireTime;
-                avgProcessingTime += log.processingTime;
-                avgTotalTime += log.totalTime;
-            }
+            System.out.println("Lease hits: " + leaseHits.sum() + " of " + leaseAccesses.sum() + " accesses");
+            System.out.println("Round trips saved: " + roundTripsSaved.sum() +
+                    " after " + leaseProbes.sum() + " waiter probes" +
+                    " (" + leaseRenewals.sum() + " renewals, " + leaseRevocations.sum() +
+                    " revocations, " + leaseExpirations.sum() + " expirations)");
+            System.out.println("Average total time: " + leaseHitTime.getMean() + " ms on lease hit, " +
+                    leaseMissTime.getMean() + " ms on miss");
+        }
 
-            if (!accessLogs.isEmpty())
-            {
-                avgAcquireTime /= accessLogs.size();
-                avgProcessingTime /= accessLogs.size();
-                avgTotalTime /= accessLogs.size();
-            }
+        if (reads.sum() + writes.sum() > 0)
+        {
+            System.out.println("Reads: " + reads.sum() + ", writes: " + writes.sum() +
+                    " (conflicts: " + readWriteConflicts.sum() + " read-write, " +
+                    writeWriteConflicts.sum() + " write-write)");
+            printPercentiles("Read total time", readTime);
+            printPercentiles("Write total time", writeTime);
         }
 
-        System.out.println("Average acquire time: " + avgAcquireTime + " ms");
-        System.out.println("Average processing time: " + avgProcessingTime + " ms");
-        System.out.println("Average total time: " + avgTotalTime + " ms");
+        if (transactions.sum() + transactionTimeouts.sum() > 0)
+        {
+            System.out.println("Transactions: " + transactions.sum() + " (" + transactionAborts.sum() +
+                    " aborted attempts, " + transactionTimeouts.sum() + " timed out)");
+            printPercentiles("Transaction hold time", transactionHold);
+            printPercentiles("Transaction total time", transactionTime);
+        }
+
+        if (priorityWaitTime[1].getCount() > 0)
+        {
+            printPercentiles("High priority acquire time", priorityWaitTime[1]);
+            printPercentiles("Normal priority acquire time", priorityWaitTime[0]);
+        }
+    }
+
+    private static void printPercentiles(final String label,
+                                         final LatencyHistogram histogram)
+    {
+        System.out.println(label + " percentiles: p50=" + histogram.valueAtPercentile(50) +
+                " p90=" + histogram.valueAtPercentile(90) +
+                " p99=" + histogram.valueAtPercentile(99) +
+                " p99.9=" + histogram.valueAtPercentile(99.9) +
+                " max=" + histogram.getMax() + " ms");
+    }
+
+    /**
+     * Get the latency distribution of the whole run
+     */
+    public LatencyStats getOverallLatency()
+    {
+        return overallLatency;
     }
 }
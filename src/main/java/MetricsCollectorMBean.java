@@ -0,0 +1,21 @@
+/**
+ * Live run totals, published over JMX by {@link LiveMetrics}
+ */
+public interface MetricsCollectorMBean
+{
+    long getTotalRequests();
+
+    long getSuccessfulRequests();
+
+    long getConflictCount();
+
+    long getTimeoutCount();
+
+    double getThroughputPerSecond();
+
+    double getAvgAcquireTimeMs();
+
+    long getP99AcquireTimeMs();
+
+    long getP99TotalTimeMs();
+}
@@ -0,0 +1,87 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the cost of MetricsCollector.recordAccess as the number of recording containers grows.
+ *
+ * Each container is a virtual thread that records a fixed number of accesses against one of
+ * five resources and times every call. With striped recording the mean cost per call should
+ * stay roughly flat from 1 to 10,000 containers.
+ *
+ * Usage: java MetricsRecordingBenchmark [recordsPerContainer]
+ */
+public class MetricsRecordingBenchmark
+{
+    private static final int[] containerCounts = {1, 10, 100, 1_000, 10_000};
+    private static final String[] resourceIds  = {"resource_0", "resource_1", "resource_2", "resource_3", "resource_4"};
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int recordsPerContainer = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        // Warm up the recording path before measuring
+        for (int i = 0; i < 5; i++)
+        {
+            run(1_000, recordsPerContainer);
+        }
+
+        System.out.println("Containers,Records,WallMs,MeanNsPerRecord,RecordsPerSecond");
+        for (final int containers : containerCounts)
+        {
+            System.out.println(run(containers, recordsPerContainer));
+        }
+    }
+
+    private static String run(final int containers,
+                              final int recordsPerContainer) throws InterruptedException
+    {
+        MetricsCollector metrics   = new MetricsCollector();
+        LongAdder recordNanos      = new LongAdder();
+        CountDownLatch startLatch  = new CountDownLatch(1);
+        CountDownLatch finishLatch = new CountDownLatch(containers);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int c = 0; c < containers; c++)
+            {
+                final int containerId = c;
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        startLatch.await();
+                        long nanos = 0;
+                        for (int i = 0; i < recordsPerContainer; i++)
+                        {
+                            long start = System.nanoTime();
+                            metrics.recordAccess(containerId, resourceIds[i % resourceIds.length], 15, 50, 80);
+                            nanos += System.nanoTime() - start;
+                        }
+                        recordNanos.add(nanos);
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally
+                    {
+                        finishLatch.countDown();
+                    }
+                });
+            }
+
+            long startTime = System.nanoTime();
+            startLatch.countDown();
+            finishLatch.await();
+            long wallNanos = System.nanoTime() - startTime;
+
+            long records = (long)containers * recordsPerContainer;
+            return containers + "," + records + "," +
+                    (wallNanos / 1_000_000) + "," +
+                    (recordNanos.sum() / records) + "," +
+                    String.format("%.0f", records * 1_000_000_000.0 / wallNanos);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One recording buffer of a {@link MetricsCollector}.
+ * Threads are spread over several stripes so they rarely wait on each other's lock;
+ * the stripes are merged when the collector is summarised or saved.
+ */
+class MetricsStripe
+{
+    final Lock lock               = new ReentrantLock();
+    AccessLogStore accessLogs     = new AccessLogStore();
+    ConflictLogStore conflictLogs = new ConflictLogStore();
+    ConflictLogStore timeoutLogs  = new ConflictLogStore();
+
+    // Drained buffers, only touched by the streaming writer
+    AccessLogStore drainedAccessLogs     = new AccessLogStore();
+    ConflictLogStore drainedConflictLogs = new ConflictLogStore();
+    ConflictLogStore drainedTimeoutLogs  = new ConflictLogStore();
+
+    /**
+     * Exchange the active buffers with the (empty) drained ones.
+     * Must be called while holding {@link #lock}; recorders then continue into
+     * the fresh buffers while the caller writes out the drained ones.
+     */
+    void swapBuffers()
+    {
+        AccessLogStore accessLogsToDrain = accessLogs;
+        accessLogs                       = drainedAccessLogs;
+        drainedAccessLogs                = accessLogsToDrain;
+
+        ConflictLogStore conflictLogsToDrain = conflictLogs;
+        conflictLogs                         = drainedConflictLogs;
+        drainedConflictLogs                  = conflictLogsToDrain;
+
+        ConflictLogStore timeoutLogsToDrain = timeoutLogs;
+        timeoutLogs                         = drainedTimeoutLogs;
+        drainedTimeoutLogs                  = timeoutLogsToDrain;
+    }
+}
@@ -0,0 +1,74 @@
+import Semaphore.ArrivalProcess;
+import Semaphore.ExecutionMode;
+import Semaphore.ReportRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plots latency against throughput for open-loop Poisson arrivals, with and without
+ * synchronization, from light load to past saturation.
+ *
+ * Each row sends requests at a fixed target rate regardless of how many are still in
+ * flight, and times every request from when it was due to be sent. Once the rate passes
+ * what the permits can serve, queues grow for the whole run and latency climbs steeply;
+ * without synchronization latency stays flat while conflicts grow instead. The closed-loop
+ * rows run the default containers for reference: they slow down with the resource, so
+ * their latency hides the queueing the open-loop rows show.
+ *
+ * Usage: java OpenLoopReport [rates] [secondsPerRun]
+ */
+public class OpenLoopReport
+{
+    public static void main(String[] args)
+    {
+        String[] rates = (args.length > 0 ? args[0] : "50,100,150,200,250,300").split(",");
+        int seconds    = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (final boolean sync : new boolean[] {true, false})
+        {
+            configs.add(config(ArrivalProcess.CLOSED, 0, sync, seconds));
+            for (final String rate : rates)
+            {
+                configs.add(config(ArrivalProcess.POISSON, Double.parseDouble(rate.trim()), sync, seconds));
+            }
+        }
+
+        ReportRunner.run("Open-Loop Latency vs Throughput",
+                "Arrivals,Sync,TargetOps,AchievedOps,AvgTotalMs,P50TotalMs,P99TotalMs,P999TotalMs,Timeouts,Conflicts",
+                configs,
+                CloudSimulation::simulate,
+                (table, config, metrics) ->
+                {
+                    LatencyStats latency = metrics.getOverallLatency();
+                    table.row(config.arrivalProcess,
+                            config.enableSynchronization,
+                            config.arrivalProcess.isOpenLoop() ? String.format("%.0f", config.targetOpsPerSecond) : "-",
+                            String.format("%.1f", (double)metrics.getSuccessfulRequests() / seconds),
+                            String.format("%.1f", latency.totalTime.getMean()),
+                            latency.totalTime.valueAtPercentile(50),
+                            latency.totalTime.valueAtPercentile(99),
+                            latency.totalTime.valueAtPercentile(99.9),
+                            metrics.getTimeoutCount(),
+                            metrics.getConflictCount());
+                });
+    }
+
+    private static SimulationConfig config(final ArrivalProcess arrivals,
+                                           final double rate,
+                                           final boolean sync,
+                                           final int seconds)
+    {
+        SimulationConfig config      = new SimulationConfig();
+        config.simulationTimeSeconds = seconds;
+        config.enableSynchronization = sync;
+        config.arrivalProcess        = arrivals;
+        config.targetOpsPerSecond    = rate;
+        config.executionMode         = ExecutionMode.VIRTUAL;   // One thread per in-flight request past saturation
+        config.randomSeed            = 1;
+        config.metricsOutputFile     = "open_loop_" + arrivals.name().toLowerCase() + "_" + (int)rate + "_sync_" +
+                (sync ? "on" : "off") + "_metrics.csv";
+        return config;
+    }
+}
@@ -0,0 +1,244 @@
+import Semaphore.ReportRunner;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the discrete-event simulation over every combination of parameter ranges, in
+ * parallel on a fork/join pool.
+ *
+ * Each configuration is an independent run with its own virtual clock, metrics and a
+ * seed derived from the sweep seed and its position in the sweep, so a sweep gives the
+ * same rows whatever the parallelism. Nothing is printed or saved per run; instead one
+ * summary row per configuration is streamed to a single results table as soon as the run
+ * finishes, so rows appear in completion order and carry their ConfigId.
+ *
+ * Ranges are written as a list (5,10,20), an inclusive range (1:5) or a range with a
+ * step (10:50:10).
+ *
+ * Usage: java ParameterSweep [containers=..] [resources=..] [permits=..] [latency=..]
+ *        [processing=..] [sync=true,false] [seconds=600] [seed=1] [threads=n] [out=file]
+ */
+public class ParameterSweep
+{
+    public static void main(String[] args) throws IOException
+    {
+        Map<String, String> options = ReportRunner.options(args);
+
+        int[] containers  = parseRange(options.getOrDefault("containers", "10,20,40"));
+        int[] resources   = parseRange(options.getOrDefault("resources", "5"));
+        int[] permits     = parseRange(options.getOrDefault("permits", "1:5"));
+        int[] latencies   = parseRange(options.getOrDefault("latency", "15"));
+        int[] processing  = parseRange(options.getOrDefault("processing", "50"));
+        String[] syncs    = options.getOrDefault("sync", "true,false").split(",");
+        int seconds       = Integer.parseInt(options.getOrDefault("seconds", "600"));
+        long seed         = Long.parseLong(options.getOrDefault("seed", "1"));
+        int threads       = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String outputFile = options.getOrDefault("out", "sweep_results.csv");
+
+        // Cartesian product, in a fixed order so config ids and seeds are stable
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (final int containerCount : containers)
+        {
+            for (final int resourceCount : resources)
+            {
+                for (final int permitCount : permits)
+                {
+                    for (final int latency : latencies)
+                    {
+                        for (final int processingTime : processing)
+                        {
+                            for (final String sync : syncs)
+                            {
+                                SimulationConfig config      = new SimulationConfig();
+                                config.numContainers         = containerCount;
+                                config.numResources          = resourceCount;
+                                config.maxConcurrentAccess   = permitCount;
+                                config.networkLatencyMeanMs  = latency;
+                                config.processingTimeMeanMs  = processingTime;
+                                config.enableSynchronization = Boolean.parseBoolean(sync.trim());
+                                config.simulationTimeSeconds = seconds;
+                                config.discreteEvent         = true;
+                                config.enableLogging         = false;
+                                config.randomSeed            = runSeed(seed, configs.size());
+                                configs.add(config);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.println("Sweeping " + configs.size() + " configurations on " + threads + " threads into " + outputFile);
+        long wallStart = System.nanoTime();
+        try (ResultTable table = new ResultTable(outputFile, configs.size()))
+        {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try
+            {
+                pool.invoke(new SweepTask(configs, 0, configs.size(), table));
+            }
+            finally
+            {
+                pool.shutdown();
+            }
+        }
+        System.out.println("Sweep finished in " + (System.nanoTime() - wallStart) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Parse a list (a,b,c), an inclusive range (a:b) or a stepped range (a:b:step)
+     */
+    static int[] parseRange(final String range)
+    {
+        if (range.contains(":"))
+        {
+            String[] parts = range.split(":");
+            int from       = Integer.parseInt(parts[0].trim());
+            int to         = Integer.parseInt(parts[1].trim());
+            int step       = parts.length > 2 ? Integer.parseInt(parts[2].trim()) : 1;
+            if (step < 1 || to < from)
+            {
+                throw new IllegalArgumentException("Bad range " + range);
+            }
+            int[] values = new int[(to - from) / step + 1];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = from + i * step;
+            }
+            return values;
+        }
+
+        String[] parts = range.split(",");
+        int[] values   = new int[parts.length];
+        for (int i = 0; i < parts.length; i++)
+        {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Seed of one run; spaced well apart because each container adds its index to it
+     */
+    private static long runSeed(final long sweepSeed,
+                                final int configId)
+    {
+        long seed = sweepSeed + configId * 1_000_003L;
+        return seed != 0 ? seed : 1;   // 0 would mean seeding from the wall clock
+    }
+
+    /**
+     * Splits the configurations in halves until each task runs a single simulation
+     */
+    private static final class SweepTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized; fork/join tasks are Serializable only by inheritance
+        private final transient List<SimulationConfig> configs;
+        private final int from;
+        private final int to;
+        private final transient ResultTable table;
+
+        SweepTask(final List<SimulationConfig> configs,
+                  final int from,
+                  final int to,
+                  final ResultTable table)
+        {
+            this.configs = configs;
+            this.from    = from;
+            this.to      = to;
+            this.table   = table;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > 1)
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SweepTask(configs, from, middle, table),
+                        new SweepTask(configs, middle, to, table));
+                return;
+            }
+
+            SimulationConfig config = configs.get(from);
+            long wallStart          = System.nanoTime();
+
+            DiscreteEventSimulation simulation = new DiscreteEventSimulation(config);
+            simulation.setup();
+            simulation.simulate();
+
+            table.append(from, config, simulation.getMetrics(), (System.nanoTime() - wallStart) / 1_000_000);
+        }
+    }
+
+    /**
+     * The results file, written one row at a time as runs finish
+     */
+    private static final class ResultTable implements AutoCloseable
+    {
+        private final PrintWriter writer;
+        private final int total;
+        private final AtomicInteger finished = new AtomicInteger();
+
+        ResultTable(final String filename,
+                    final int total) throws IOException
+        {
+            this.writer = new PrintWriter(new FileWriter(filename));
+            this.total  = total;
+            writer.println("ConfigId,Containers,Resources,Permits,LatencyMeanMs,ProcessingMeanMs,Sync,Seed," +
+                    "Requests,Successful,Conflicts,Timeouts,ThroughputPerSecond,AvgAcquireMs,P99AcquireMs," +
+                    "AvgTotalMs,P99TotalMs,WallMs");
+            writer.flush();
+        }
+
+        synchronized void append(final int configId,
+                                 final SimulationConfig config,
+                                 final MetricsCollector metrics,
+                                 final long wallMs)
+        {
+            LatencyStats latency = metrics.getOverallLatency();
+            writer.println(ReportRunner.row(configId,
+                    config.numContainers,
+                    config.numResources,
+                    config.maxConcurrentAccess,
+                    config.networkLatencyMeanMs,
+                    config.processingTimeMeanMs,
+                    config.enableSynchronization,
+                    config.randomSeed,
+                    metrics.getTotalRequests(),
+                    metrics.getSuccessfulRequests(),
+                    metrics.getConflictCount(),
+                    metrics.getTimeoutCount(),
+                    String.format("%.2f", (double)metrics.getSuccessfulRequests() / config.simulationTimeSeconds),
+                    String.format("%.2f", latency.acquireTime.getMean()),
+                    latency.acquireTime.valueAtPercentile(99),
+                    String.format("%.2f", latency.totalTime.getMean()),
+                    latency.totalTime.valueAtPercentile(99),
+                    wallMs));
+            writer.flush();
+
+            int done = finished.incrementAndGet();
+            if (done % 10 == 0 || done == total)
+            {
+                System.out.println("  " + done + "/" + total + " configurations done");
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A semaphore permit that a container keeps after using it.
+ *
+ * The holder reuses the permit for follow-up accesses to the same resource without
+ * a round trip to the semaphore. {@link LeaseManager} renews it in the background while
+ * it is being used and takes it back when it expires or other containers are queued.
+ * The holder and the manager race on the state, so every hand-over is a single CAS.
+ */
+class PermitLease
+{
+    private static final int idle     = 0;   // Parked on the client between accesses
+    private static final int inUse    = 1;   // The holder is using the resource
+    private static final int returned = 2;   // Given back to the semaphore, never reused
+
+    private final DistributedSemaphore semaphore;
+    private final String tenant;
+    private final AtomicInteger state = new AtomicInteger(inUse);
+
+    private volatile long expiresAtNanos;
+    private volatile long lastUsedNanos;
+
+    PermitLease(final DistributedSemaphore semaphore,
+                final String tenant,
+                final long ttlNanos)
+    {
+        long now            = System.nanoTime();
+        this.semaphore      = semaphore;
+        this.tenant         = tenant;
+        this.expiresAtNanos = now + ttlNanos;
+        this.lastUsedNanos  = now;
+    }
+
+    /**
+     * Take the parked permit for another access, without a round trip
+     * @return false if the lease is for another semaphore, already taken back or expired
+     */
+    public boolean tryReuse(final DistributedSemaphore target)
+    {
+        if (target != semaphore || !state.compareAndSet(idle, inUse))
+        {
+            return false;
+        }
+
+        // The coordinator already counts an expired lease as free again
+        if (System.nanoTime() - expiresAtNanos > 0)
+        {
+            state.set(returned);
+            semaphore.reclaim(tenant);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Keep the permit on the client after an access instead of releasing it
+     */
+    public void park()
+    {
+        lastUsedNanos = System.nanoTime();
+        state.set(idle);
+    }
+
+    /**
+     * Release the permit from the holder side, paying the release round trip.
+     * @return true if the holder still had the permit and sent the release
+     */
+    public boolean giveBack(final Random random,
+                            final int networkLatencyMeanMs,
+                            final int networkLatencyStdDevMs)
+    {
+        if (state.compareAndSet(idle, returned) || state.compareAndSet(inUse, returned))
+        {
+            semaphore.release(tenant, random, networkLatencyMeanMs, networkLatencyStdDevMs);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take an idle permit back on the coordinator side
+     * @return false if the holder is using it or it was already returned
+     */
+    boolean revoke()
+    {
+        if (state.compareAndSet(idle, returned))
+        {
+            semaphore.reclaim(tenant);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Extend an idle lease that was used within the last TTL and is past half its life
+     * @return true if the lease was renewed
+     */
+    boolean renew(final long ttlNanos)
+    {
+        long now = System.nanoTime();
+        if (state.get() != idle || now - lastUsedNanos > ttlNanos || expiresAtNanos - now > ttlNanos / 2)
+        {
+            return false;
+        }
+        expiresAtNanos = now + ttlNanos;
+        return true;
+    }
+
+    boolean isExpired()
+    {
+        return System.nanoTime() - expiresAtNanos > 0;
+    }
+
+    boolean isReturned()
+    {
+        return state.get() == returned;
+    }
+
+    boolean hasQueuedWaiters()
+    {
+        return semaphore.hasQueuedWaiters();
+    }
+
+    /**
+     * Check whether asking about waiters costs a round trip to a coordinator
+     */
+    boolean isRemote()
+    {
+        return semaphore.isRemote();
+    }
+}
@@ -0,0 +1,69 @@
+import Semaphore.ReportRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the single-permit model with read/write access at 90/10 and 99/1 read ratios.
+ *
+ * The load is heavy enough that three permits per resource are the bottleneck. In
+ * read/write mode reads share the resource up to maxConcurrentReads while writes still
+ * run alone, so throughput should grow with the read ratio. Write latency shows whether
+ * the writers keep up or starve.
+ *
+ * Usage: java ReadWriteReport [secondsPerRun]
+ */
+public class ReadWriteReport
+{
+    public static void main(String[] args)
+    {
+        int seconds         = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        double[] readRatios = {0.0, 0.9, 0.99};
+
+        List<SimulationConfig> configs = new ArrayList<>();
+        for (final double readRatio : readRatios)
+        {
+            SimulationConfig config      = new SimulationConfig();
+            config.simulationTimeSeconds = seconds;
+            config.enableSynchronization = true;
+            config.numContainers         = 60;
+            config.numResources          = 2;
+            config.requestRateMeanMs     = 20;
+            config.requestRateStdDevMs   = 10;
+            config.readRatio             = readRatio;
+            config.metricsOutputFile     = "read_write_" + readRatio + "_simulation_metrics.csv";
+            configs.add(config);
+        }
+
+        // The single-permit run comes first and is the baseline for the gain column
+        double[] baseline = new double[1];
+        ReportRunner.run("Read/Write Access Comparison",
+                "Model,ReadRatio,Permits,Accesses,Reads,Writes,OpsPerSecond,Gain," +
+                        "AvgTotalTimeMs,P99ReadMs,P99WriteMs,Timeouts,ReadWriteConflicts,WriteWriteConflicts",
+                configs,
+                CloudSimulation::simulate,
+                (table, config, metrics) ->
+                {
+                    double opsPerSecond = (double)metrics.getSuccessfulRequests() / seconds;
+                    if (config.readRatio == 0)
+                    {
+                        baseline[0] = opsPerSecond;
+                    }
+
+                    table.row(config.readRatio == 0 ? "single-permit" : "read-write",
+                            config.readRatio,
+                            config.readRatio > 0 ? config.maxConcurrentReads : config.maxConcurrentAccess,
+                            metrics.getSuccessfulRequests(),
+                            metrics.getReads(),
+                            metrics.getWrites(),
+                            String.format("%.1f", opsPerSecond),
+                            String.format("%.2f", opsPerSecond / baseline[0]),
+                            String.format("%.1f", metrics.getOverallLatency().totalTime.getMean()),
+                            metrics.getReadTime().valueAtPercentile(99),
+                            metrics.getWriteTime().valueAtPercentile(99),
+                            metrics.getTimeoutCount(),
+                            metrics.getReadWriteConflicts(),
+                            metrics.getWriteWriteConflicts());
+                });
+    }
+}
@@ -0,0 +1,76 @@
+import Semaphore.PermitBackend;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Permits of one semaphore kept by a {@link SemaphoreCoordinator}.
+ * Every call is a real round trip over the shared {@link CoordinatorClient} connection;
+ * waiting and timeouts happen on the coordinator, in its FIFO queue.
+ */
+class RemotePermitBackend implements PermitBackend
+{
+    private final CoordinatorClient client;
+    private final int id;
+
+    public RemotePermitBackend(final CoordinatorClient client,
+                               final String name,
+                               final int permits)
+    {
+        this.client = client;
+        this.id     = client.declare(name, permits);
+    }
+
+    @Override
+    public boolean acquire(final int count,
+                           final long timeoutMs)
+    {
+        CompletableFuture<Integer> response = client.acquireAsync(id, count, timeoutMs);
+        try
+        {
+            return response.get() == 1;
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            // We stop waiting, but a grant may still arrive and must not be lost
+            response.thenAccept(granted ->
+            {
+                if (granted == 1)
+                {
+                    client.releaseAsync(id, count);
+                }
+            });
+            return false;
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IllegalStateException("Coordinator acquire failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void release(final int count)
+    {
+        CoordinatorClient.await(client.releaseAsync(id, count));
+    }
+
+    @Override
+    public int availablePermits()
+    {
+        return client.available(id);
+    }
+
+    @Override
+    public boolean hasQueuedWaiters()
+    {
+        return client.queued(id) > 0;
+    }
+
+    @Override
+    public boolean isRemote()
+    {
+        return true;
+    }
+}
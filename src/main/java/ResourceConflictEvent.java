@@ -0,0 +1,38 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for a resource found over its capacity
+ */
+@Name("CloudSync.ResourceConflict")
+@Label("Resource Conflict")
+@Category({"CloudSync", "Resource"})
+@Description("More containers used a resource than its semaphore allows")
+@StackTrace(false)
+class ResourceConflictEvent extends Event
+{
+    @Label("Container Id")
+    int containerId;
+
+    @Label("Resource Id")
+    String resourceId;
+
+    @Label("Kind")
+    @Description("capacity, read-write or write-write")
+    String kind;
+
+    @Label("Users")
+    @Description("Containers using the resource when the conflict was seen")
+    int users;
+
+    @Label("Max Users")
+    int maxUsers;
+
+    @Label("Available Permits")
+    @Description("Permits free when the conflict was seen, -1 if they are kept on a coordinator")
+    int availablePermits;
+}
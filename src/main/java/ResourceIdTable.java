@@ -0,0 +1,46 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns resource ids to small ints so logs can store them in primitive columns
+ */
+class ResourceIdTable
+{
+    private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[0];
+
+    /**
+     * Get the index of a resource id, assigning the next free one on first sight
+     */
+    public int intern(final String resourceId)
+    {
+        Integer index = indexes.get(resourceId);
+        if (index != null)
+        {
+            return index;
+        }
+        return indexes.computeIfAbsent(resourceId, this::append);
+    }
+
+    /**
+     * Get the resource id stored under an index
+     */
+    public String name(final int index)
+    {
+        return names[index];
+    }
+
+    public int size()
+    {
+        return names.length;
+    }
+
+    private synchronized int append(final String resourceId)
+    {
+        // Resources are few and interned once, so copy-on-write keeps reads lock-free
+        String[] grown      = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = resourceId;
+        names               = grown;
+        return grown.length - 1;
+    }
+}
@@ -0,0 +1,204 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One all-or-nothing access to several resources: the container only starts working once
+ * it holds a permit on every resource, and gives them all back together.
+ */
+class ResourceTransaction
+{
+    private final int containerId;
+    private final List<CloudResource> resources;
+
+    public ResourceTransaction(final int containerId,
+                               final List<CloudResource> resources)
+    {
+        this.containerId = containerId;
+        this.resources   = resources;
+    }
+
+    /**
+     * Run the transaction with or without synchronization.
+     * The hold time runs from the first permit of the successful attempt to the last release.
+     */
+    public void execute(final boolean useSync,
+                        final Random random,
+                        final SimulationConfig config,
+                        final MetricsCollector metrics)
+    {
+        Instant startTime = Instant.now();
+        Instant holdStart;
+
+        if (useSync)
+        {
+            holdStart = config.transactionStrategy == TransactionStrategy.ORDERED
+                    ? acquireOrdered(startTime, random, config, metrics)
+                    : acquireWithBackoff(startTime, random, config, metrics);
+            if (holdStart == null)
+            {
+                return;
+            }
+        }
+        else
+        {
+            for (final CloudResource resource : resources)
+            {
+                resource.simulateRoundTrip(random, config);
+            }
+            holdStart = Instant.now();
+        }
+
+        Instant acquireTime  = Instant.now();
+        long acquireDuration = Duration.between(startTime, acquireTime).toMillis();
+
+        for (final CloudResource resource : resources)
+        {
+            resource.beginUse(containerId, metrics);
+        }
+
+        // One piece of work spanning every resource in the transaction
+        int processingTime = Math.max(1, (int)(random.nextGaussian() *
+                config.processingTimeStdDevMs +
+                config.processingTimeMeanMs));
+        try
+        {
+            Thread.sleep(processingTime);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        for (final CloudResource resource : resources)
+        {
+            resource.endUse();
+            if (useSync)
+            {
+                resource.releasePermit(containerId, random, config);
+            }
+            else
+            {
+                resource.simulateRoundTrip(random, config);
+            }
+        }
+
+        Instant endTime    = Instant.now();
+        long totalDuration = Duration.between(startTime, endTime).toMillis();
+
+        for (final CloudResource resource : resources)
+        {
+            metrics.recordAccess(containerId, resource.getId(), acquireDuration, processingTime, totalDuration);
+        }
+        metrics.recordTransaction(Duration.between(holdStart, endTime).toMillis(), totalDuration);
+    }
+
+    /**
+     * Wait for each permit in resource id order
+     * @return when the first permit was taken, or null if the transaction timed out
+     */
+    private Instant acquireOrdered(final Instant startTime,
+                                   final Random random,
+                                   final SimulationConfig config,
+                                   final MetricsCollector metrics)
+    {
+        List<CloudResource> ordered = new ArrayList<>(resources);
+        ordered.sort(Comparator.comparing(CloudResource::getId));
+
+        Instant deadline         = startTime.plusMillis(CloudResource.timeOutMs);
+        List<CloudResource> held = new ArrayList<>();
+        Instant holdStart        = null;
+        for (final CloudResource resource : ordered)
+        {
+            long remaining = Duration.between(Instant.now(), deadline).toMillis();
+            if (remaining <= 0 || !resource.acquirePermit(containerId, remaining, random, config))
+            {
+                releaseAll(held, random, config);
+                metrics.recordTimeout(containerId, resource.getId());
+                metrics.recordTransactionTimeout();
+                return null;
+            }
+            if (holdStart == null)
+            {
+                holdStart = Instant.now();
+            }
+            held.add(resource);
+        }
+        return holdStart;
+    }
+
+    /**
+     * Try for all permits without queueing, backing off and retrying while any is busy
+     * @return when the first permit of the successful attempt was taken, or null on timeout
+     */
+    private Instant acquireWithBackoff(final Instant startTime,
+                                       final Random random,
+                                       final SimulationConfig config,
+                                       final MetricsCollector metrics)
+    {
+        Instant deadline         = startTime.plusMillis(CloudResource.timeOutMs);
+        List<CloudResource> held = new ArrayList<>();
+        int attempt              = 0;
+        while (true)
+        {
+            Instant holdStart     = null;
+            CloudResource blocked = null;
+            for (final CloudResource resource : resources)
+            {
+                if (!resource.acquirePermit(containerId, 0, random, config))
+                {
+                    blocked = resource;
+                    break;
+                }
+                if (holdStart == null)
+                {
+                    holdStart = Instant.now();
+                }
+                held.add(resource);
+            }
+            if (blocked == null)
+            {
+                return holdStart;
+            }
+
+            // All or nothing: hand back what this attempt took before waiting
+            releaseAll(held, random, config);
+            held.clear();
+            metrics.recordTransactionAbort();
+
+            long ceiling = Math.min(config.backoffMaxMs, (long)config.backoffBaseMs << Math.min(attempt, 20));
+            long backoff = 1 + (long)(random.nextDouble() * ceiling);
+            attempt++;
+            if (Instant.now().plusMillis(backoff).isAfter(deadline))
+            {
+                metrics.recordTimeout(containerId, blocked.getId());
+                metrics.recordTransactionTimeout();
+                return null;
+            }
+            try
+            {
+                Thread.sleep(backoff);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                metrics.recordTimeout(containerId, blocked.getId());
+                metrics.recordTransactionTimeout();
+                return null;
+            }
+        }
+    }
+
+    private void releaseAll(final List<CloudResource> held,
+                            final Random random,
+                            final SimulationConfig config)
+    {
+        for (final CloudResource resource : held)
+        {
+            resource.releasePermit(containerId, random, config);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package Semaphore;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that follows the latency a resource delivers, using AIMD.
+ *
+ * Operation latencies are averaged over windows of completed operations. A window whose
+ * average is more than {@code tolerance} times the best window seen means the resource
+ * has started queueing internally, so the limit is cut multiplicatively. A window that
+ * kept every permit busy without slowing down raises the limit by one. The best window
+ * serves as the no-load baseline, which stays comparable with mixed operation types as
+ * long as the mix does not change. Each change is applied to the engine straight away.
+ */
+public class AdaptiveConcurrencyLimit
+{
+    private static final int minWindowSamples = 10;
+
+    private final PermitEngine engine;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoff;
+    private final Lock lock = new ReentrantLock();
+
+    private double limit;
+    private int appliedLimit;
+    private int peakLimit;
+    private double baselineNanos = Double.MAX_VALUE;
+    private long windowSumNanos;
+    private int windowSamples;
+    private boolean windowSaturated;
+
+    /**
+     * @param engine engine created with {@code initialLimit} permits
+     */
+    public AdaptiveConcurrencyLimit(final PermitEngine engine,
+                                    final int initialLimit,
+                                    final int minLimit,
+                                    final int maxLimit)
+    {
+        this(engine, initialLimit, minLimit, maxLimit, 1.25, 0.9);
+    }
+
+    /**
+     * @param tolerance how much slower than the baseline a window may be before backing off
+     * @param backoff factor the limit is multiplied by when backing off
+     */
+    public AdaptiveConcurrencyLimit(final PermitEngine engine,
+                                    final int initialLimit,
+                                    final int minLimit,
+                                    final int maxLimit,
+                                    final double tolerance,
+                                    final double backoff)
+    {
+        if (minLimit < 1 || initialLimit < minLimit || initialLimit > maxLimit)
+        {
+            throw new IllegalArgumentException("Need 1 <= minLimit <= initialLimit <= maxLimit, got " +
+                    minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.engine       = engine;
+        this.minLimit     = minLimit;
+        this.maxLimit     = maxLimit;
+        this.tolerance    = tolerance;
+        this.backoff      = backoff;
+        this.limit        = initialLimit;
+        this.appliedLimit = initialLimit;
+        this.peakLimit    = initialLimit;
+    }
+
+    /**
+     * Record one completed operation
+     * @param inFlight operations in flight when it started, itself included
+     */
+    public void onSample(final long latencyNanos,
+                         final int inFlight)
+    {
+        lock.lock();
+        try
+        {
+            windowSumNanos += latencyNanos;
+            windowSamples++;
+            if (inFlight >= appliedLimit)
+            {
+                windowSaturated = true;
+            }
+
+            // A window covers at least one operation per permit
+            if (windowSamples < Math.max(minWindowSamples, appliedLimit))
+            {
+                return;
+            }
+
+            double average = (double)windowSumNanos / windowSamples;
+            baselineNanos  = Math.min(baselineNanos, average);
+            if (average > tolerance * baselineNanos)
+            {
+                limit = Math.max(minLimit, limit * backoff);
+            }
+            else if (windowSaturated)
+            {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+
+            windowSumNanos  = 0;
+            windowSamples   = 0;
+            windowSaturated = false;
+            apply();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of permits currently handed out by the engine
+     */
+    public int getLimit()
+    {
+        lock.lock();
+        try
+        {
+            return appliedLimit;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the highest limit reached so far
+     */
+    public int getPeakLimit()
+    {
+        lock.lock();
+        try
+        {
+            return peakLimit;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void apply()
+    {
+        int target = (int)limit;
+        if (target != appliedLimit)
+        {
+            engine.adjustPermits(target - appliedLimit);
+            appliedLimit = target;
+            peakLimit    = Math.max(peakLimit, target);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Semaphore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the fixed permit count with the latency-driven adaptive limit across the
+ * workload scenarios.
+ *
+ * The resource serves a set number of users at full speed and slows down in proportion
+ * beyond that, as a database does once its own workers are saturated. The static rows
+ * keep each scenario's permit count. The adaptive rows start from it and let
+ * {@link AdaptiveConcurrencyLimit} find a limit for that capacity.
+ *
+ * Usage: java Semaphore.AdaptiveLimitReport [capacities] [maxPermits]
+ */
+public class AdaptiveLimitReport
+{
+    public static void main(String[] args)
+    {
+        String[] capacities = (args.length > 0 ? args[0] : "2,8").split(",");
+        int maxPermits      = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+        List<WorkLoadConfig> configs = new ArrayList<>();
+        for (final String capacity : capacities)
+        {
+            for (final WorkLoadConfig scenario : WorkloadSimulation.scenarios())
+            {
+                WorkLoadConfig fixed = scenario.withResourceCapacity(Integer.parseInt(capacity.trim()));
+                configs.add(fixed);
+                configs.add(fixed.withAdaptiveLimit(maxPermits));
+            }
+        }
+
+        ReportRunner.run("Static vs Adaptive Permit Limit",
+                "Scenario,Capacity,Limit,Operations,DurationMs,OpsPerSecond," +
+                        "AvgResponseMs,P99ResponseMs,FinalPermits,PeakPermits,Conflicts",
+                configs,
+                AdaptiveLimitReport::run,
+                (table, config, results) -> table.row(config.testName,
+                        config.resourceCapacity,
+                        limit(config),
+                        results.totalOperations.get(),
+                        results.totalDurationMs,
+                        String.format("%.1f", results.totalOperations.get() * 1000.0 / results.totalDurationMs),
+                        String.format("%.1f", results.getAverageResponseTime()),
+                        results.getResponseTimePercentile(99),
+                        results.finalPermits,
+                        results.peakPermits,
+                        results.conflictCount.get()));
+    }
+
+    private static SimulationResults run(final WorkLoadConfig config)
+    {
+        System.out.println("Running " + config.testName + " (capacity " + config.resourceCapacity +
+                ") with a " + limit(config) + " limit...");
+        SimulationResults results = new SimulationResults();
+        WorkloadSimulation.runWorkload(config, true, results);
+        return results;
+    }
+
+    private static String limit(final WorkLoadConfig config)
+    {
+        return config.adaptiveLimit ? "adaptive" : "static";
+    }
+}
@@ -0,0 +1,41 @@
+package Semaphore;
+
+import java.util.Random;
+
+/**
+ * How requests are sent to a simulated resource
+ */
+public enum ArrivalProcess
+{
+    /** Each container or client sends its next request only after the last one finished */
+    CLOSED,
+
+    /** Requests arrive at exactly the target rate, whatever happens to earlier ones */
+    CONSTANT,
+
+    /** Requests arrive at the target rate on average, with exponentially distributed gaps */
+    POISSON;
+
+    public boolean isOpenLoop()
+    {
+        return this != CLOSED;
+    }
+
+    /**
+     * Draw the gap between two arrivals
+     */
+    public double nextGapNanos(final Random random,
+                               final double opsPerSecond)
+    {
+        double meanGap = 1_000_000_000.0 / opsPerSecond;
+        switch (this)
+        {
+            case CONSTANT:
+                return meanGap;
+            case POISSON:
+                return -Math.log(1 - random.nextDouble()) * meanGap;
+            default:
+                throw new IllegalStateException("Closed-loop clients have no arrival schedule");
+        }
+    }
+}
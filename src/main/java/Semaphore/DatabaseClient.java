@@ -1,6 +1,7 @@
 package Semaphore;
 
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simulates a client connecting to a cloud database
@@ -42,32 +43,7 @@ class DatabaseClient implements Runnable
 
             for (int i = 0; i < config.operationsPerClient; i++)
             {
-                // Measure operation time
-                long startTime = System.currentTimeMillis();
-
-                // Access the resource with or without synchronization
-                boolean noConflict;
-                if (useSync)
-                {
-                    noConflict = resource.accessWithSync(getOperationTime());
-                }
-                else
-                {
-                    noConflict = resource.accessWithoutSync(getOperationTime());
-                }
-
-                // Calculate response time
-                long endTime      = System.currentTimeMillis();
-                long responseTime = endTime - startTime;
-
-                // Record metrics
-                results.totalOperations.incrementAndGet();
-                results.addResponseTime(responseTime);
-
-                if (!noConflict)
-                {
-                    results.conflictCount.incrementAndGet();
-                }
+                runOperation(System.nanoTime());
 
                 // Wait between operations if delay is specified
                 if (config.delayBetweenOperationsMs > 0)
@@ -92,6 +68,40 @@ class DatabaseClient implements Runnable
         }
     }
 
+    /**
+     * Run one operation and record its response time, measured from the given start.
+     * Open-loop arrivals pass the time they were due, so waiting to be sent counts too.
+     */
+    void runOperation(final long startNanos)
+    {
+        // Access the resource with or without synchronization
+        boolean noConflict;
+        if (useSync)
+        {
+            int priority = config.priorityOf(clientId);
+            noConflict   = resource.accessWithSync(getOperationTime(), WorkLoadConfig.tenantOf(clientId),
+                    priority, results.waitTimesUs[priority]);
+        }
+        else
+        {
+            noConflict = resource.accessWithoutSync(getOperationTime());
+        }
+
+        // Calculate response time
+        long responseTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // Record metrics
+        results.totalOperations.incrementAndGet();
+        results.addResponseTime(responseTime);
+        results.timeSeries.recordCompletion(responseTime);
+
+        if (!noConflict)
+        {
+            results.conflictCount.incrementAndGet();
+            results.timeSeries.recordConflict();
+        }
+    }
+
     /**
      * Get the operation time (constant or variable based on client ID)
      */
@@ -0,0 +1,49 @@
+package Semaphore;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * How simulated containers and clients are mapped onto threads
+ */
+public enum ExecutionMode
+{
+    /** One platform (OS) thread per container or client */
+    PLATFORM,
+
+    /** One virtual thread per container or client on the default carrier pool */
+    VIRTUAL,
+
+    /**
+     * Virtual threads on a carrier pool capped at a fixed number of platform threads.
+     * The JDK reads the cap once, when the first virtual thread is created, so the
+     * cap only applies if nothing in the JVM has started a virtual thread yet.
+     */
+    VIRTUAL_BOUNDED;
+
+    /**
+     * Create an executor that starts one thread per submitted task
+     * @param carrierThreads carrier pool size, only used by VIRTUAL_BOUNDED
+     */
+    public ExecutorService newExecutor(final int carrierThreads)
+    {
+        switch (this)
+        {
+            case VIRTUAL:
+                return Executors.newVirtualThreadPerTaskExecutor();
+            case VIRTUAL_BOUNDED:
+                String carriers = String.valueOf(Math.max(1, carrierThreads));
+                if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null)
+                {
+                    System.setProperty("jdk.virtualThreadScheduler.parallelism", carriers);
+                }
+                if (System.getProperty("jdk.virtualThreadScheduler.maxPoolSize") == null)
+                {
+                    System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", carriers);
+                }
+                return Executors.newVirtualThreadPerTaskExecutor();
+            default:
+                return Executors.newThreadPerTaskExecutor(Thread.ofPlatform().factory());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package Semaphore;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Strict arrival order, whatever the tenant or priority. Lock-free.
+ */
+public class FifoWaitQueue implements WaitQueue
+{
+    private final ConcurrentLinkedQueue<PermitWaiter> waiters = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void add(final PermitWaiter waiter)
+    {
+        waiters.add(waiter);
+    }
+
+    @Override
+    public void remove(final PermitWaiter waiter,
+                       final boolean granted)
+    {
+        waiters.remove(waiter);
+    }
+
+    @Override
+    public PermitWaiter peek()
+    {
+        return waiters.peek();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return waiters.isEmpty();
+    }
+}
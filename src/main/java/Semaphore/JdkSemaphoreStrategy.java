@@ -0,0 +1,98 @@
+package Semaphore;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permits kept in a {@link java.util.concurrent.Semaphore}.
+ *
+ * The fair variant grants permits in arrival order; the unfair one lets a caller that
+ * arrives while a permit is free take it ahead of the queue, which trades tail latency
+ * for throughput. Neither knows about tenants or priorities.
+ */
+public class JdkSemaphoreStrategy implements SyncStrategy
+{
+    private final boolean fair;
+
+    protected JdkSemaphoreStrategy(final boolean fair)
+    {
+        this.fair = fair;
+    }
+
+    @Override
+    public String getName()
+    {
+        return fair ? "jdk-fair" : "jdk-unfair";
+    }
+
+    @Override
+    public PermitBackend newPermits(final String name,
+                                    final int permits,
+                                    final WaitQueue waiters)
+    {
+        return new Permits(new java.util.concurrent.Semaphore(permits, fair));
+    }
+
+    public static class Fair extends JdkSemaphoreStrategy
+    {
+        public Fair()
+        {
+            super(true);
+        }
+    }
+
+    public static class Unfair extends JdkSemaphoreStrategy
+    {
+        public Unfair()
+        {
+            super(false);
+        }
+    }
+
+    private static final class Permits implements PermitBackend
+    {
+        private final java.util.concurrent.Semaphore semaphore;
+
+        Permits(final java.util.concurrent.Semaphore semaphore)
+        {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public boolean acquire(final int count,
+                               final long timeoutMs)
+        {
+            try
+            {
+                if (timeoutMs < 0)
+                {
+                    semaphore.acquire(count);
+                    return true;
+                }
+                return semaphore.tryAcquire(count, timeoutMs, TimeUnit.MILLISECONDS);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void release(final int count)
+        {
+            semaphore.release(count);
+        }
+
+        @Override
+        public int availablePermits()
+        {
+            return semaphore.availablePermits();
+        }
+
+        @Override
+        public boolean hasQueuedWaiters()
+        {
+            return semaphore.hasQueuedThreads();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package Semaphore;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Constant-memory, high-dynamic-range latency histogram.
+ *
+ * Values below 32 are counted exactly; above that every power-of-two range is split
+ * into 16 linear sub-buckets, so any recorded value is reported within about 6% of
+ * its true size. Values up to 2^40 are tracked, enough for milliseconds or nanoseconds,
+ * in a fixed 592 buckets. Recording is lock-free and allocation-free.
+ */
+public class LatencyHistogram
+{
+    private static final int exactValues     = 32;
+    private static final int subBuckets      = 16;
+    private static final int subBucketBits   = 4;
+    private static final int firstMagnitude  = 5;   // log2(exactValues)
+    private static final int maxMagnitude    = 40;
+    private static final long highestValue   = (1L << maxMagnitude) - 1;
+    private static final int bucketCount     = exactValues + (maxMagnitude - firstMagnitude) * subBuckets;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+    private final LongAdder totalCount   = new LongAdder();
+    private final LongAdder totalSum     = new LongAdder();
+    private final LongAccumulator max    = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record one value; negative values count as zero and huge values are clamped
+     */
+    public void record(final long value)
+    {
+        long clamped = Math.min(Math.max(0, value), highestValue);
+        counts.incrementAndGet(bucketIndex(clamped));
+        totalCount.increment();
+        totalSum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    /**
+     * Add every count of another histogram into this one
+     */
+    public void add(final LatencyHistogram other)
+    {
+        for (int i = 0; i < bucketCount; i++)
+        {
+            long count = other.counts.get(i);
+            if (count > 0)
+            {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.add(other.totalCount.sum());
+        totalSum.add(other.totalSum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    public long getCount()
+    {
+        return totalCount.sum();
+    }
+
+    /**
+     * Get the sum of all recorded values
+     */
+    public long getSum()
+    {
+        return totalSum.sum();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double)totalSum.sum() / count;
+    }
+
+    /**
+     * Get the value at the given percentile (0-100), reported as the top of its bucket
+     */
+    public long valueAtPercentile(final double percentile)
+    {
+        long count = 0;
+        for (int i = 0; i < bucketCount; i++)
+        {
+            count += counts.get(i);
+        }
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long rank       = Math.max(1, (long)Math.ceil(percentile / 100.0 * count));
+        long cumulative = 0;
+        for (int i = 0; i < bucketCount; i++)
+        {
+            cumulative += counts.get(i);
+            if (cumulative >= rank)
+            {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Number of buckets, for iterating with {@link #bucketUpperBound} and {@link #countAt}
+     */
+    public int bucketCount()
+    {
+        return bucketCount;
+    }
+
+    /**
+     * Get the number of values recorded in one bucket
+     */
+    public long countAt(final int bucket)
+    {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Get the largest value that falls into one bucket
+     */
+    public long bucketUpperBound(final int bucket)
+    {
+        if (bucket < exactValues)
+        {
+            return bucket;
+        }
+        int offset    = bucket - exactValues;
+        int shift     = offset / subBuckets + firstMagnitude - subBucketBits;
+        long subIndex = subBuckets + offset % subBuckets;
+        return ((subIndex + 1) << shift) - 1;
+    }
+
+    private static int bucketIndex(final long value)
+    {
+        if (value < exactValues)
+        {
+            return (int)value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subIndex  = (int)(value >>> (magnitude - subBucketBits)) - subBuckets;
+        return exactValues + (magnitude - firstMagnitude) * subBuckets + subIndex;
+    }
+}
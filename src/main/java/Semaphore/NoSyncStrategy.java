@@ -0,0 +1,52 @@
+package Semaphore;
+
+/**
+ * No limit at all: every acquire succeeds at once.
+ *
+ * The baseline the other strategies are measured against. Resources still count their
+ * users, so every access past the permit count shows up as a conflict.
+ */
+public class NoSyncStrategy implements SyncStrategy
+{
+    @Override
+    public String getName()
+    {
+        return "none";
+    }
+
+    @Override
+    public PermitBackend newPermits(final String name,
+                                    final int permits,
+                                    final WaitQueue waiters)
+    {
+        return new PermitBackend()
+        {
+            @Override
+            public boolean acquire(final int count,
+                                   final long timeoutMs)
+            {
+                return true;
+            }
+
+            @Override
+            public void release(final int count)
+            {
+            }
+
+            /**
+             * Nothing is ever held back, so every permit always looks free
+             */
+            @Override
+            public int availablePermits()
+            {
+                return permits;
+            }
+
+            @Override
+            public boolean hasQueuedWaiters()
+            {
+                return false;
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package Semaphore;
+
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests on a fixed arrival schedule, however long earlier requests take.
+ *
+ * A closed-loop client waits for each request before sending the next, so when the
+ * resource stalls it also stops sending, and the requests it would have sent meanwhile
+ * are never measured (coordinated omission). Here every arrival time is drawn up front
+ * from the schedule and the request is handed to the executor at that time, along with
+ * it. Response times measured from the intended time then include any delay behind a
+ * late dispatcher or a saturated resource.
+ */
+public final class OpenLoopGenerator
+{
+    /**
+     * Handles one arrival on an executor thread
+     */
+    public interface Arrival
+    {
+        /**
+         * @param intendedNanos when the request was due to be sent, on the {@link System#nanoTime()} clock
+         */
+        void arrive(long sequence, long intendedNanos);
+    }
+
+    private final ArrivalProcess process;
+    private final double opsPerSecond;
+    private final Random random;
+
+    private volatile long maxLagNanos;
+
+    public OpenLoopGenerator(final ArrivalProcess process,
+                             final double opsPerSecond,
+                             final long seed)
+    {
+        if (!process.isOpenLoop() || opsPerSecond <= 0)
+        {
+            throw new IllegalArgumentException("Open-loop arrivals need CONSTANT or POISSON and a positive rate, got " +
+                    process + " at " + opsPerSecond + " ops/s");
+        }
+        this.process      = process;
+        this.opsPerSecond = opsPerSecond;
+        this.random       = new Random(seed);
+    }
+
+    /**
+     * Send arrivals from the calling thread until the count or duration is reached, or
+     * the thread is interrupted
+     * @param maxArrivals 0 for no limit
+     * @return the number of arrivals sent
+     */
+    public long run(final long maxArrivals,
+                    final long durationNanos,
+                    final Executor executor,
+                    final Arrival arrival)
+    {
+        long startTime = System.nanoTime();
+        double offset  = 0;
+        long sent      = 0;
+        while ((maxArrivals == 0 || sent < maxArrivals) && offset < durationNanos)
+        {
+            long intended = startTime + (long)offset;
+            long now      = System.nanoTime();
+            while (now < intended)
+            {
+                LockSupport.parkNanos(intended - now);
+                if (Thread.currentThread().isInterrupted())
+                {
+                    return sent;
+                }
+                now = System.nanoTime();
+            }
+            maxLagNanos = Math.max(maxLagNanos, now - intended);
+
+            long sequence = sent++;
+            executor.execute(() -> arrival.arrive(sequence, intended));
+            offset += process.nextGapNanos(random, opsPerSecond);
+        }
+        return sent;
+    }
+
+    /**
+     * Get the furthest an arrival was handed over behind its intended time
+     */
+    public long getMaxLagNanos()
+    {
+        return maxLagNanos;
+    }
+}
@@ -0,0 +1,72 @@
+package Semaphore;
+
+/**
+ * Where the permits of one semaphore are kept.
+ * {@link PermitEngine} keeps them in process; other backends may keep them behind a
+ * coordination service, in which case every call is a real round trip.
+ */
+public interface PermitBackend
+{
+    /**
+     * Take several permits atomically, waiting in queue order.
+     * @param timeoutMs negative waits indefinitely
+     * @return true if acquired, false on timeout or interrupt
+     */
+    boolean acquire(int count, long timeoutMs);
+
+    /**
+     * Take several permits on behalf of a tenant, queueing by this backend's policy.
+     * Backends without a queueing policy ignore the tenant and priority.
+     * @param timeoutMs negative waits indefinitely
+     * @return true if acquired, false on timeout or interrupt
+     */
+    default boolean acquire(final int count,
+                            final long timeoutMs,
+                            final String tenant,
+                            final int priority)
+    {
+        return acquire(count, timeoutMs);
+    }
+
+    /**
+     * Wait for permits for one slice of a longer wait. Running out of time here is not a
+     * timeout of the caller, so backends that count timeouts leave it out.
+     * @return true if acquired, false if the slice ran out or on interrupt
+     */
+    default boolean acquireSlice(final int count,
+                                 final long sliceMs)
+    {
+        return acquire(count, sliceMs);
+    }
+
+    /**
+     * Return several permits and wake the head waiter
+     */
+    void release(int count);
+
+    /**
+     * Get the number of available permits (for monitoring)
+     */
+    int availablePermits();
+
+    /**
+     * Check whether any caller is queued for a permit
+     */
+    boolean hasQueuedWaiters();
+
+    /**
+     * Check whether every call is a round trip to a coordination service
+     */
+    default boolean isRemote()
+    {
+        return false;
+    }
+
+    /**
+     * Get the wait-queue statistics, or null if the queue is kept elsewhere
+     */
+    default PermitStats getStats()
+    {
+        return null;
+    }
+}
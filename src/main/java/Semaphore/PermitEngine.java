@@ -0,0 +1,277 @@
+package Semaphore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free permit counter with its own wait queue.
+ * Each semaphore owns one engine, so unrelated semaphores never share a lock
+ * and a release only ever wakes a waiter queued on the same engine.
+ * Requests for several permits are granted atomically. Only the head of the
+ * {@link WaitQueue} may take permits, so the queue decides who is served next:
+ * FIFO by default, where later arrivals never overtake a queued request and
+ * large requests cannot be starved.
+ */
+public class PermitEngine implements PermitBackend
+{
+    private final AtomicInteger permits;
+    private final WaitQueue waiters;
+    private final PermitStats stats;
+
+    public PermitEngine(final int permits)
+    {
+        this(permits, new FifoWaitQueue());
+    }
+
+    /**
+     * Engine serving its waiters in the order the given queue decides
+     */
+    public PermitEngine(final int permits,
+                        final WaitQueue waiters)
+    {
+        this.permits = new AtomicInteger(permits);
+        this.waiters = waiters;
+        this.stats   = new PermitStats(permits, this.permits::get);
+    }
+
+    /**
+     * Try to take a permit without waiting.
+     * Arrivals only barge when nobody is queued, which keeps the queue order.
+     */
+    public boolean tryAcquire()
+    {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Try to take several permits at once without waiting
+     */
+    public boolean tryAcquire(final int count)
+    {
+        stats.requested();
+        return tryTake(count);
+    }
+
+    /**
+     * Take permits if nobody is queued, without counting a new request
+     */
+    private boolean tryTake(final int count)
+    {
+        if (waiters.isEmpty() && casDecrement(count))
+        {
+            stats.acquired(count);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take a permit, waiting in queue order.
+     * @param timeoutMs negative waits indefinitely
+     * @return true if acquired, false on timeout or interrupt
+     */
+    public boolean acquire(final long timeoutMs)
+    {
+        return acquire(1, timeoutMs);
+    }
+
+    /**
+     * Take several permits atomically, waiting in queue order.
+     * @param timeoutMs negative waits indefinitely
+     * @return true if acquired, false on timeout or interrupt
+     */
+    @Override
+    public boolean acquire(final int count,
+                           final long timeoutMs)
+    {
+        return acquire(count, timeoutMs, null, 0);
+    }
+
+    /**
+     * Take several permits atomically on behalf of a tenant.
+     * The tenant and priority only matter to queues that order by them.
+     * @param timeoutMs negative waits indefinitely
+     * @return true if acquired, false on timeout or interrupt
+     */
+    @Override
+    public boolean acquire(final int count,
+                           final long timeoutMs,
+                           final String tenant,
+                           final int priority)
+    {
+        return acquire(count, timeoutMs, tenant, priority, true);
+    }
+
+    /**
+     * Wait for one slice of a longer wait; the slice running out is not counted as a timeout
+     */
+    @Override
+    public boolean acquireSlice(final int count,
+                                final long sliceMs)
+    {
+        return acquire(count, sliceMs, null, 0, false);
+    }
+
+    private boolean acquire(final int count,
+                            final long timeoutMs,
+                            final String tenant,
+                            final int priority,
+                            final boolean countTimeout)
+    {
+        stats.requested();
+        if (tryTake(count))
+        {
+            return true;
+        }
+        if (timeoutMs == 0)
+        {
+            // A zero timeout only tries once and never joins the queue
+            return false;
+        }
+
+        final PermitWaiter waiter = new PermitWaiter(Thread.currentThread(), count, tenant, priority);
+        final boolean timed       = timeoutMs >= 0;
+        final long queuedAt       = System.nanoTime();
+        final long deadline       = timed ? queuedAt + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0L;
+        int woken                 = 0;   // Times unparked, to tell wakeups that found nothing apart
+
+        waiters.add(waiter);
+        stats.enqueued();
+        while (true)
+        {
+            // Only the head of the queue may take a permit
+            if (waiters.peek() == waiter && casDecrement(count))
+            {
+                waiters.remove(waiter, true);
+                stats.grantedFromQueue(count, queuedAt, woken);
+                signalNextIfAvailable();
+                return true;
+            }
+
+            if (Thread.currentThread().isInterrupted())
+            {
+                abandon(waiter);
+                stats.abandoned(woken, false);
+                return false;
+            }
+
+            if (timed)
+            {
+                long nanos = deadline - System.nanoTime();
+                if (nanos <= 0)
+                {
+                    abandon(waiter);
+                    stats.abandoned(woken, countTimeout);
+                    return false;
+                }
+                LockSupport.parkNanos(this, nanos);
+            }
+            else
+            {
+                LockSupport.park(this);
+            }
+            woken++;
+        }
+    }
+
+    /**
+     * Return a permit and wake the head waiter.
+     */
+    public void release()
+    {
+        release(1);
+    }
+
+    /**
+     * Return several permits and wake the head waiter
+     */
+    @Override
+    public void release(final int count)
+    {
+        permits.addAndGet(count);
+        stats.released(count);
+        signalHead();
+    }
+
+    /**
+     * Grow or shrink the number of permits at runtime.
+     * Shrinking never takes permits from holders: the available count may go
+     * negative, and new acquires wait until enough permits have been returned.
+     */
+    public void adjustPermits(final int delta)
+    {
+        permits.addAndGet(delta);
+        stats.adjusted(delta);
+        if (delta > 0)
+        {
+            signalHead();
+        }
+    }
+
+    /**
+     * Get the number of available permits (for monitoring)
+     */
+    @Override
+    public int availablePermits()
+    {
+        return permits.get();
+    }
+
+    /**
+     * Check whether any thread is queued for a permit
+     */
+    @Override
+    public boolean hasQueuedWaiters()
+    {
+        return !waiters.isEmpty();
+    }
+
+    /**
+     * Get the wait-queue statistics of this engine
+     */
+    @Override
+    public PermitStats getStats()
+    {
+        return stats;
+    }
+
+    private boolean casDecrement(final int count)
+    {
+        int available;
+        do
+        {
+            available = permits.get();
+            if (available < count)
+            {
+                return false;
+            }
+        } while (!permits.compareAndSet(available, available - count));
+        return true;
+    }
+
+    private void abandon(final PermitWaiter waiter)
+    {
+        waiters.remove(waiter, false);
+
+        // A release may have targeted us after we gave up, so pass it on
+        signalNextIfAvailable();
+    }
+
+    private void signalNextIfAvailable()
+    {
+        if (permits.get() > 0)
+        {
+            signalHead();
+        }
+    }
+
+    private void signalHead()
+    {
+        PermitWaiter head = waiters.peek();
+        if (head != null)
+        {
+            LockSupport.unpark(head.thread);
+        }
+    }
+}
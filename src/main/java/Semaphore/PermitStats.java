@@ -0,0 +1,222 @@
+package Semaphore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Wait-queue statistics of one {@link PermitEngine}.
+ *
+ * Tracks how many callers are queued now and at most, how long granted callers spent in
+ * the queue, how often a parked caller woke up and how often it found nothing to take,
+ * how many gave up at their timeout, and the permits in use integrated over time. All of
+ * it is kept in adders, atomics and a lock-free histogram, and an uncontended acquire or
+ * release only adds one counter update and a clock read, so it stays on in every run.
+ */
+public final class PermitStats
+{
+    private final long startNanos = System.nanoTime();
+    private final IntSupplier available;
+
+    private final AtomicInteger queueLength     = new AtomicInteger(0);
+    private final AtomicInteger peakQueueLength = new AtomicInteger(0);
+    private final LatencyHistogram queueTimeUs  = new LatencyHistogram();
+    private final LongAdder acquireCalls        = new LongAdder();
+    private final LongAdder releaseCalls        = new LongAdder();
+    private final LongAdder acquires            = new LongAdder();
+    private final LongAdder queuedAcquires      = new LongAdder();
+    private final LongAdder wakeups             = new LongAdder();
+    private final LongAdder futileWakeups       = new LongAdder();
+    private final LongAdder timeouts            = new LongAdder();
+
+    // Permits in use and permits in existence over time. Each adder holds the sum of
+    // -count*t for every take and +count*t for every return, so adding the current level
+    // times now gives the integral without any shared timestamp to update.
+    private final LongAdder usedIntegral     = new LongAdder();
+    private final LongAdder capacityIntegral = new LongAdder();
+    private final AtomicInteger capacity;
+
+    /**
+     * @param available reads the engine's free permits
+     */
+    PermitStats(final int permits,
+                final IntSupplier available)
+    {
+        this.capacity  = new AtomicInteger(permits);
+        this.available = available;
+    }
+
+    /**
+     * A caller asked for permits, whether or not it gets them
+     */
+    void requested()
+    {
+        acquireCalls.increment();
+    }
+
+    void acquired(final int count)
+    {
+        acquires.increment();
+        usedIntegral.add(-count * elapsedNanos());
+    }
+
+    void enqueued()
+    {
+        int length = queueLength.incrementAndGet();
+        peakQueueLength.accumulateAndGet(length, Math::max);
+    }
+
+    /**
+     * A queued caller got its permits
+     * @param woken times it was unparked before getting them
+     */
+    void grantedFromQueue(final int count,
+                          final long queuedAtNanos,
+                          final int woken)
+    {
+        queueLength.decrementAndGet();
+        queuedAcquires.increment();
+        queueTimeUs.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedAtNanos));
+        wakeups.add(woken);
+        futileWakeups.add(Math.max(0, woken - 1));
+        acquired(count);
+    }
+
+    /**
+     * A queued caller left without permits
+     * @param timedOut false if it was interrupted
+     */
+    void abandoned(final int woken,
+                   final boolean timedOut)
+    {
+        queueLength.decrementAndGet();
+        wakeups.add(woken);
+        futileWakeups.add(woken);
+        if (timedOut)
+        {
+            timeouts.increment();
+        }
+    }
+
+    void released(final int count)
+    {
+        releaseCalls.increment();
+        usedIntegral.add(count * elapsedNanos());
+    }
+
+    void adjusted(final int delta)
+    {
+        capacity.addAndGet(delta);
+        capacityIntegral.add(-delta * elapsedNanos());
+    }
+
+    /**
+     * Get the number of callers queued now
+     */
+    public int getQueueLength()
+    {
+        return queueLength.get();
+    }
+
+    public int getPeakQueueLength()
+    {
+        return peakQueueLength.get();
+    }
+
+    /**
+     * Get the time granted callers spent queued, in microseconds; callers served without queueing are not included
+     */
+    public LatencyHistogram getQueueTimeUs()
+    {
+        return queueTimeUs;
+    }
+
+    /**
+     * Get the acquire calls the engine has seen, granted or not; a batch is one call
+     */
+    public long getAcquireCalls()
+    {
+        return acquireCalls.sum();
+    }
+
+    /**
+     * Get the release calls the engine has seen; a batch is one call
+     */
+    public long getReleaseCalls()
+    {
+        return releaseCalls.sum();
+    }
+
+    public long getAcquires()
+    {
+        return acquires.sum();
+    }
+
+    /**
+     * Get the acquires that had to queue before being granted
+     */
+    public long getQueuedAcquires()
+    {
+        return queuedAcquires.sum();
+    }
+
+    public long getWakeups()
+    {
+        return wakeups.sum();
+    }
+
+    /**
+     * Get the wakeups after which the caller found nothing to take and parked again
+     */
+    public long getFutileWakeups()
+    {
+        return futileWakeups.sum();
+    }
+
+    public long getTimeouts()
+    {
+        return timeouts.sum();
+    }
+
+    public double getWakeupsPerAcquire()
+    {
+        long granted = acquires.sum();
+        return granted == 0 ? 0 : (double)wakeups.sum() / granted;
+    }
+
+    /**
+     * Get the share of queued waits that ended in a timeout
+     */
+    public double getTimeoutRate()
+    {
+        long timedOut = timeouts.sum();
+        long waits    = queuedAcquires.sum() + timedOut;
+        return waits == 0 ? 0 : (double)timedOut / waits;
+    }
+
+    /**
+     * Get the permits in use integrated over time since the engine was created, in permit-nanoseconds.
+     * The difference between two readings divided by the time between them is the average use in that window.
+     */
+    public long getPermitNanosInUse()
+    {
+        long now   = elapsedNanos();
+        long inUse = capacity.get() - available.getAsInt();
+        return usedIntegral.sum() + inUse * now;
+    }
+
+    /**
+     * Get the average share of permits in use since the engine was created
+     */
+    public double getUtilization()
+    {
+        long capacityNanos = capacityIntegral.sum() + capacity.get() * elapsedNanos();
+        return capacityNanos <= 0 ? 0 : (double)getPermitNanosInUse() / capacityNanos;
+    }
+
+    private long elapsedNanos()
+    {
+        return System.nanoTime() - startNanos;
+    }
+}
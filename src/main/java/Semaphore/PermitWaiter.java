@@ -0,0 +1,54 @@
+package Semaphore;
+
+/**
+ * One blocked acquire, as seen by a {@link WaitQueue}.
+ * The tenant is whoever the permits are for (a container or client id); queues that
+ * do not care about fairness or priority may ignore it.
+ */
+public final class PermitWaiter
+{
+    final Thread thread;
+    private final int count;
+    private final String tenant;
+    private final int priority;
+
+    // Bookkeeping for the queue the waiter sits in
+    long sequence;
+    double startTag;
+    double finishTag;
+
+    PermitWaiter(final Thread thread,
+                 final int count,
+                 final String tenant,
+                 final int priority)
+    {
+        this.thread   = thread;
+        this.count    = count;
+        this.tenant   = tenant;
+        this.priority = priority;
+    }
+
+    /**
+     * Get the number of permits requested
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Get the container or tenant id the permits are for, or null if unknown
+     */
+    public String getTenant()
+    {
+        return tenant;
+    }
+
+    /**
+     * Get the priority class; higher classes are more urgent
+     */
+    public int getPriority()
+    {
+        return priority;
+    }
+}
@@ -0,0 +1,76 @@
+package Semaphore;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Strict priority classes: the highest waiting class is always served first, in arrival
+ * order within the class. Lower classes can starve while higher ones keep the semaphore
+ * busy; use {@link WeightedFairWaitQueue} when every tenant must make progress.
+ */
+public class PriorityWaitQueue implements WaitQueue
+{
+    private final PriorityQueue<PermitWaiter> waiters = new PriorityQueue<>(
+            Comparator.comparingInt((PermitWaiter waiter) -> -waiter.getPriority())
+                    .thenComparingLong(waiter -> waiter.sequence));
+    private final AtomicInteger size = new AtomicInteger();
+    private final Lock lock          = new ReentrantLock();
+    private long nextSequence;
+
+    @Override
+    public void add(final PermitWaiter waiter)
+    {
+        lock.lock();
+        try
+        {
+            waiter.sequence = nextSequence++;
+            waiters.add(waiter);
+            size.incrementAndGet();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(final PermitWaiter waiter,
+                       final boolean granted)
+    {
+        lock.lock();
+        try
+        {
+            if (waiters.remove(waiter))
+            {
+                size.decrementAndGet();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PermitWaiter peek()
+    {
+        lock.lock();
+        try
+        {
+            return waiters.peek();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size.get() == 0;
+    }
+}
@@ -0,0 +1,35 @@
+package Semaphore;
+
+import java.util.Map;
+
+/**
+ * Which order semaphore waiters are served in
+ */
+public enum QueuePolicy
+{
+    /** Arrival order */
+    FIFO,
+
+    /** Highest priority class first, arrival order within a class */
+    PRIORITY,
+
+    /** Permits shared between tenants in proportion to their weights */
+    WEIGHTED_FAIR;
+
+    /**
+     * Create the wait queue for one semaphore
+     * @param weights per-tenant weights, only used by WEIGHTED_FAIR; others weigh 1
+     */
+    public WaitQueue newQueue(final Map<String, Integer> weights)
+    {
+        switch (this)
+        {
+            case PRIORITY:
+                return new PriorityWaitQueue();
+            case WEIGHTED_FAIR:
+                return new WeightedFairWaitQueue(weights, 1);
+            default:
+                return new FifoWaitQueue();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package Semaphore;
+
+import java.util.Arrays;
+
+/**
+ * Compares the wait for a permit of latency-sensitive and normal clients under each
+ * queueing policy, on the burst_test workload.
+ *
+ * A quarter of the clients are high priority: under PRIORITY they form their own class,
+ * under WEIGHTED_FAIR each of them gets a larger share than a normal client. FIFO is
+ * the baseline where everyone waits alike.
+ *
+ * Usage: java Semaphore.QueuePolicyReport [highPriorityClients] [highPriorityWeight]
+ */
+public class QueuePolicyReport
+{
+    public static void main(String[] args)
+    {
+        WorkLoadConfig burst    = WorkloadSimulation.burstTestConfig();
+        int highPriorityClients = args.length > 0 ? Integer.parseInt(args[0]) : burst.numClients / 4;
+        int highPriorityWeight  = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        ReportRunner.run("Wait Time By Priority Class (" + burst.testName + ")",
+                "Policy,Class,Clients,Waits,P50WaitMs,P90WaitMs,P99WaitMs,MaxWaitMs,DurationMs",
+                Arrays.asList(QueuePolicy.values()),
+                policy ->
+                {
+                    System.out.println("Running " + burst.testName + " with " + policy + " queueing...");
+                    SimulationResults results = new SimulationResults();
+                    WorkloadSimulation.runWorkload(burst.withQueuePolicy(policy, highPriorityClients, highPriorityWeight),
+                            true, results);
+                    return results;
+                },
+                (table, policy, results) ->
+                {
+                    writeRow(table, policy, "high", highPriorityClients, results.waitTimesUs[1], results.totalDurationMs);
+                    writeRow(table, policy, "normal", burst.numClients - highPriorityClients,
+                            results.waitTimesUs[0], results.totalDurationMs);
+                });
+    }
+
+    private static void writeRow(final ReportRunner.Table table,
+                                 final QueuePolicy policy,
+                                 final String priorityClass,
+                                 final int clients,
+                                 final LatencyHistogram waitTimesUs,
+                                 final long durationMs)
+    {
+        table.row(policy,
+                priorityClass,
+                clients,
+                waitTimesUs.getCount(),
+                waitTimesUs.valueAtPercentile(50) / 1000.0,
+                waitTimesUs.valueAtPercentile(90) / 1000.0,
+                waitTimesUs.valueAtPercentile(99) / 1000.0,
+                waitTimesUs.getMax() / 1000.0,
+                durationMs);
+    }
+}
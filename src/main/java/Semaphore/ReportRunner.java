@@ -0,0 +1,134 @@
+package Semaphore;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shared loop of the comparison reports: run every variant, add its rows to one CSV
+ * table and print the table under a heading once all runs are done.
+ *
+ * A report supplies only its header, its variants (usually one configuration per run)
+ * and how to turn a variant into rows, so runs and tables are built the same way everywhere.
+ */
+public final class ReportRunner
+{
+    /**
+     * Runs one variant, such as a simulation for one configuration
+     */
+    @FunctionalInterface
+    public interface Run<V, R, E extends Exception>
+    {
+        R run(V variant) throws E;
+    }
+
+    /**
+     * Turns a variant and the result of its run into table rows
+     */
+    @FunctionalInterface
+    public interface Row<V, R>
+    {
+        void write(Table table, V variant, R result);
+    }
+
+    /**
+     * Runs a variant and writes its rows in one step, for reports whose runs need more than one result
+     */
+    @FunctionalInterface
+    public interface Rows<V, E extends Exception>
+    {
+        void write(Table table, V variant) throws E;
+    }
+
+    /**
+     * Rows of one report, each a line of comma-separated columns
+     */
+    public static final class Table
+    {
+        private final StringBuilder text;
+
+        private Table(final String header)
+        {
+            this.text = new StringBuilder(header).append('\n');
+        }
+
+        public void row(final Object... columns)
+        {
+            text.append(ReportRunner.row(columns)).append('\n');
+        }
+
+        @Override
+        public String toString()
+        {
+            return text.toString();
+        }
+    }
+
+    private ReportRunner()
+    {
+    }
+
+    /**
+     * Run every variant, write a row from each result and print the table
+     */
+    public static <V, R, E extends Exception> void run(final String title,
+                                                       final String header,
+                                                       final Iterable<V> variants,
+                                                       final Run<V, R, E> run,
+                                                       final Row<V, R> row) throws E
+    {
+        run(title, header, variants, (Rows<V, E>)(table, variant) -> row.write(table, variant, run.run(variant)));
+    }
+
+    /**
+     * Let every variant run and write its own rows, then print the table
+     */
+    public static <V, E extends Exception> void run(final String title,
+                                                    final String header,
+                                                    final Iterable<V> variants,
+                                                    final Rows<V, E> rows) throws E
+    {
+        Table table = new Table(header);
+        for (final V variant : variants)
+        {
+            rows.write(table, variant);
+        }
+
+        System.out.println("\n==== " + title + " ====");
+        System.out.print(table);
+    }
+
+    /**
+     * Join columns into one CSV row
+     */
+    public static String row(final Object... columns)
+    {
+        StringBuilder row = new StringBuilder();
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (i > 0)
+            {
+                row.append(',');
+            }
+            row.append(columns[i]);
+        }
+        return row.toString();
+    }
+
+    /**
+     * Parse name=value arguments
+     */
+    public static Map<String, String> options(final String[] args)
+    {
+        Map<String, String> options = new HashMap<>();
+        for (final String arg : args)
+        {
+            int equals = arg.indexOf('=');
+            if (equals < 0)
+            {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        return options;
+    }
+}
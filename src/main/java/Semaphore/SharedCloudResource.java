@@ -1,5 +1,6 @@
 package Semaphore;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -8,13 +9,66 @@ import java.util.concurrent.atomic.AtomicInteger;
 class SharedCloudResource
 {
     private final int maxConcurrentUsers;
+    private final int capacity;
     private final AtomicInteger currentUsers = new AtomicInteger(0);
-    private final java.util.concurrent.Semaphore semaphore;
+    private final PermitBackend semaphore;
+    private final AdaptiveConcurrencyLimit limiter;
 
     public SharedCloudResource(final int maxConcurrentUsers)
     {
         this.maxConcurrentUsers = maxConcurrentUsers;
-        this.semaphore          = new java.util.concurrent.Semaphore(maxConcurrentUsers, true);
+        this.capacity           = 0;
+        this.semaphore          = new JdkSemaphoreStrategy.Fair().newPermits(null, maxConcurrentUsers, null);
+        this.limiter            = null;
+    }
+
+    /**
+     * Resource set up for a workload: its queueing policy, its capacity and, if enabled,
+     * a permit count that adapts to latency. Without a strategy, FIFO workloads use the
+     * JDK's fair semaphore as the results in Results/ did; only other queueing policies
+     * and the adaptive limit need a {@link PermitEngine}.
+     */
+    public SharedCloudResource(final WorkLoadConfig config)
+    {
+        if (config.syncStrategy != null && config.adaptiveLimit)
+        {
+            throw new IllegalArgumentException("The adaptive limit resizes a PermitEngine and cannot be combined " +
+                    "with strategy " + config.syncStrategy.getName());
+        }
+
+        this.maxConcurrentUsers = config.adaptiveLimit ? config.maxAdaptivePermits : config.semaphorePermits;
+        this.capacity           = config.resourceCapacity;
+        SyncStrategy strategy   = config.syncStrategy;
+        if (strategy == null && config.queuePolicy == QueuePolicy.FIFO && !config.adaptiveLimit)
+        {
+            strategy = new JdkSemaphoreStrategy.Fair();
+        }
+
+        if (strategy != null)
+        {
+            this.semaphore = strategy.newPermits(config.testName, config.semaphorePermits, config.newWaitQueue());
+            this.limiter   = null;
+        }
+        else
+        {
+            PermitEngine engine = new PermitEngine(config.semaphorePermits, config.newWaitQueue());
+            this.semaphore      = engine;
+            this.limiter        = config.adaptiveLimit
+                    ? new AdaptiveConcurrencyLimit(engine, config.semaphorePermits, 1, config.maxAdaptivePermits)
+                    : null;
+        }
+    }
+
+    /**
+     * Resource whose waiting clients are served in the order the given queue decides
+     */
+    public SharedCloudResource(final int maxConcurrentUsers,
+                               final WaitQueue waiters)
+    {
+        this.maxConcurrentUsers = maxConcurrentUsers;
+        this.capacity           = 0;
+        this.semaphore          = new PermitEngine(maxConcurrentUsers, waiters);
+        this.limiter            = null;
     }
 
     /**
@@ -22,11 +76,33 @@ class SharedCloudResource
      * @return true if no conflict occurred, false if conflict detected
      */
     public boolean accessWithSync(final long operationTimeMs)
+    {
+        return accessWithSync(operationTimeMs, null, 0, null);
+    }
+
+    /**
+     * Access the resource with synchronization on behalf of a tenant
+     * @param waitTimesUs where to record the time spent waiting for a permit, may be null
+     * @return true if no conflict occurred, false if conflict detected
+     */
+    public boolean accessWithSync(final long operationTimeMs,
+                                  final String tenant,
+                                  final int priority,
+                                  final LatencyHistogram waitTimesUs)
     {
         try
         {
             // Acquire semaphore (blocks until permit available)
-            semaphore.acquire();
+            long waitStart = System.nanoTime();
+            if (!semaphore.acquire(1, -1, tenant, priority))
+            {
+                // Interrupted while waiting; the interrupt flag is still set
+                return false;
+            }
+            if (waitTimesUs != null)
+            {
+                waitTimesUs.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - waitStart));
+            }
 
             try
             {
@@ -34,7 +110,12 @@ class SharedCloudResource
                 int users = currentUsers.incrementAndGet();
 
                 // Simulate database operation
-                Thread.sleep(operationTimeMs);
+                long operationStart = System.nanoTime();
+                Thread.sleep(slowedDown(operationTimeMs, users));
+                if (limiter != null)
+                {
+                    limiter.onSample(System.nanoTime() - operationStart, users);
+                }
 
                 // Check if we exceeded max concurrent users (should never happen with semaphore)
                 boolean conflict = users > maxConcurrentUsers;
@@ -45,7 +126,7 @@ class SharedCloudResource
             {
                 // Always decrement users and release semaphore
                 currentUsers.decrementAndGet();
-                semaphore.release();
+                semaphore.release(1);
             }
         }
         catch (final InterruptedException e)
@@ -67,7 +148,7 @@ class SharedCloudResource
             int users = currentUsers.incrementAndGet();
 
             // Simulate database operation
-            Thread.sleep(operationTimeMs);
+            Thread.sleep(slowedDown(operationTimeMs, users));
 
             // Check if we exceeded max concurrent users (will happen without semaphore)
             boolean conflict = users > maxConcurrentUsers;
@@ -83,4 +164,33 @@ class SharedCloudResource
             return false;
         }
     }
+
+    /**
+     * Get the number of permits in effect now
+     */
+    public int getPermitLimit()
+    {
+        return limiter != null ? limiter.getLimit() : maxConcurrentUsers;
+    }
+
+    /**
+     * Get the highest number of permits in effect during the run
+     */
+    public int getPeakPermitLimit()
+    {
+        return limiter != null ? limiter.getPeakLimit() : maxConcurrentUsers;
+    }
+
+    /**
+     * Operation time once the resource is past its capacity and work is shared between users
+     */
+    private long slowedDown(final long operationTimeMs,
+                            final int users)
+    {
+        if (capacity <= 0 || users <= capacity)
+        {
+            return operationTimeMs;
+        }
+        return operationTimeMs * users / capacity;
+    }
 }
@@ -1,28 +1,95 @@
 package Semaphore;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Results container for simulation metrics
  */
-class SimulationResults {
+public class SimulationResults {
     final AtomicInteger totalOperations = new AtomicInteger(0);
     final AtomicInteger conflictCount   = new AtomicInteger(0);
     final List<Long> responseTimes      = new ArrayList<>();
     long totalDurationMs                = 0;
+    int finalPermits                    = 0;
+    int peakPermits                     = 0;
+
+    // Time synchronized clients waited for a permit, per priority class (0 normal, 1 high)
+    final LatencyHistogram[] waitTimesUs = {new LatencyHistogram(), new LatencyHistogram()};
+
+    // Operations, conflicts and response time per 100 ms, to show how a burst builds up and drains
+    final TimeSeries timeSeries = new TimeSeries(100, 600, System::currentTimeMillis);
+
+    // A lock rather than a monitor so virtual-thread clients do not pin their carrier
+    private final Lock lock = new ReentrantLock();
 
     // Thread-safe addition of response time
-    public synchronized void addResponseTime(long time)
+    public void addResponseTime(long time)
     {
-        responseTimes.add(time);
+        lock.lock();
+        try
+        {
+            responseTimes.add(time);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the response time at the given percentile (0-100)
+     */
+    public long getResponseTimePercentile(final double percentile)
+    {
+        lock.lock();
+        try
+        {
+            if (responseTimes.isEmpty())
+            {
+                return 0;
+            }
+
+            List<Long> sorted = new ArrayList<>(responseTimes);
+            Collections.sort(sorted);
+            int rank = (int)Math.ceil(percentile / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1));
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public int getTotalOperations()
+    {
+        return totalOperations.get();
+    }
+
+    public int getConflictCount()
+    {
+        return conflictCount.get();
+    }
+
+    public long getTotalDurationMs()
+    {
+        return totalDurationMs;
+    }
+
+    public double getThroughputPerSecond()
+    {
+        return totalDurationMs > 0 ? totalOperations.get() * 1000.0 / totalDurationMs : 0;
     }
 
     // Calculate average response time
     public double getAverageResponseTime()
     {
-        synchronized (this)
+        lock.lock();
+        try
         {
             if (responseTimes.isEmpty())
             {
@@ -36,5 +103,9 @@ class SimulationResults {
             }
             return (double) sum / responseTimes.size();
         }
+        finally
+        {
+            lock.unlock();
+        }
     }
-}
\ No newline at end of file
+}
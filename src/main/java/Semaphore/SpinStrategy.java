@@ -0,0 +1,95 @@
+package Semaphore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Permits taken with a compare-and-set loop that never blocks.
+ *
+ * A caller that finds nothing free spins, then yields its CPU between attempts, so a
+ * permit is picked up the moment it is returned, but every waiter keeps a core busy
+ * and there is no queue order: whoever retries first wins.
+ */
+public class SpinStrategy implements SyncStrategy
+{
+    @Override
+    public String getName()
+    {
+        return "spin";
+    }
+
+    @Override
+    public PermitBackend newPermits(final String name,
+                                    final int permits,
+                                    final WaitQueue waiters)
+    {
+        return new Permits(permits);
+    }
+
+    private static final class Permits implements PermitBackend
+    {
+        private static final int spinsBeforeYield = 100;
+
+        private final AtomicInteger available;
+        private final AtomicInteger waiting = new AtomicInteger(0);
+
+        Permits(final int permits)
+        {
+            this.available = new AtomicInteger(permits);
+        }
+
+        @Override
+        public boolean acquire(final int count,
+                               final long timeoutMs)
+        {
+            long deadline = timeoutMs < 0 ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            int spins     = 0;
+            waiting.incrementAndGet();
+            try
+            {
+                while (true)
+                {
+                    int free = available.get();
+                    if (free >= count && available.compareAndSet(free, free - count))
+                    {
+                        return true;
+                    }
+                    if (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted())
+                    {
+                        return false;
+                    }
+                    if (++spins < spinsBeforeYield)
+                    {
+                        Thread.onSpinWait();
+                    }
+                    else
+                    {
+                        Thread.yield();
+                    }
+                }
+            }
+            finally
+            {
+                waiting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void release(final int count)
+        {
+            available.addAndGet(count);
+        }
+
+        @Override
+        public int availablePermits()
+        {
+            return available.get();
+        }
+
+        @Override
+        public boolean hasQueuedWaiters()
+        {
+            return waiting.get() > 0;
+        }
+    }
+}
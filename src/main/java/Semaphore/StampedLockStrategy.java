@@ -0,0 +1,132 @@
+package Semaphore;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Permits counted under a {@link StampedLock}.
+ *
+ * A caller reads the free count optimistically and only takes the write lock, by
+ * converting its read stamp, when enough permits are free, so a full resource is never
+ * contended for. StampedLock has no conditions to wait on, so callers that find nothing
+ * free poll with a growing park instead of being woken by a release.
+ */
+public class StampedLockStrategy implements SyncStrategy
+{
+    @Override
+    public String getName()
+    {
+        return "stamped-lock";
+    }
+
+    @Override
+    public PermitBackend newPermits(final String name,
+                                    final int permits,
+                                    final WaitQueue waiters)
+    {
+        return new Permits(permits);
+    }
+
+    private static final class Permits implements PermitBackend
+    {
+        private static final long minParkNanos = TimeUnit.MICROSECONDS.toNanos(50);
+        private static final long maxParkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final StampedLock lock      = new StampedLock();
+        private final AtomicInteger waiting = new AtomicInteger(0);
+        private int available;   // Guarded by lock
+
+        Permits(final int permits)
+        {
+            this.available = permits;
+        }
+
+        @Override
+        public boolean acquire(final int count,
+                               final long timeoutMs)
+        {
+            long deadline  = timeoutMs < 0 ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            long parkNanos = minParkNanos;
+            waiting.incrementAndGet();
+            try
+            {
+                while (true)
+                {
+                    long stamp = lock.tryOptimisticRead();
+                    int free   = available;
+                    if (free >= count)
+                    {
+                        long writeStamp = lock.tryConvertToWriteLock(stamp);
+                        if (writeStamp != 0)
+                        {
+                            available -= count;
+                            lock.unlockWrite(writeStamp);
+                            return true;
+                        }
+                        // Someone else changed the count first: read it again straight away
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    if (!lock.validate(stamp))
+                    {
+                        continue;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted())
+                    {
+                        return false;
+                    }
+                    LockSupport.parkNanos(Math.min(parkNanos, remaining));
+                    parkNanos = Math.min(parkNanos * 2, maxParkNanos);
+                }
+            }
+            finally
+            {
+                waiting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void release(final int count)
+        {
+            long stamp = lock.writeLock();
+            try
+            {
+                available += count;
+            }
+            finally
+            {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public int availablePermits()
+        {
+            long stamp = lock.tryOptimisticRead();
+            int free   = available;
+            if (lock.validate(stamp))
+            {
+                return free;
+            }
+            stamp = lock.readLock();
+            try
+            {
+                return available;
+            }
+            finally
+            {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public boolean hasQueuedWaiters()
+        {
+            return waiting.get() > 0;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package Semaphore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * A way of limiting how many callers use a resource at once.
+ *
+ * Both simulations take the permits of each resource from a strategy, so the same
+ * workload can be run against every one of them. Strategies are found with
+ * {@link ServiceLoader}: the built-in ones and the custom distributed semaphore, which
+ * lives outside this package, are listed in {@code META-INF/services/Semaphore.SyncStrategy},
+ * and further implementations on the class path are picked up the same way.
+ */
+public interface SyncStrategy
+{
+    /**
+     * Get the name the strategy is chosen by in configurations and reports
+     */
+    String getName();
+
+    /**
+     * Create the permits guarding one resource
+     * @param waiters order to serve queued callers in, used by strategies that keep their own queue
+     */
+    PermitBackend newPermits(String name, int permits, WaitQueue waiters);
+
+    /**
+     * Get every strategy on the class path, in the order they are listed
+     */
+    static List<SyncStrategy> available()
+    {
+        List<SyncStrategy> strategies = new ArrayList<>();
+        for (final SyncStrategy strategy : ServiceLoader.load(SyncStrategy.class))
+        {
+            strategies.add(strategy);
+        }
+        return strategies;
+    }
+
+    /**
+     * Get a strategy by name
+     * @throws IllegalArgumentException if no strategy has that name
+     */
+    static SyncStrategy forName(final String name)
+    {
+        List<String> names = new ArrayList<>();
+        for (final SyncStrategy strategy : available())
+        {
+            if (strategy.getName().equals(name))
+            {
+                return strategy;
+            }
+            names.add(strategy.getName());
+        }
+        throw new IllegalArgumentException("Unknown synchronization strategy " + name + ", expected one of " + names);
+    }
+}
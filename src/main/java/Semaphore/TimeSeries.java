@@ -0,0 +1,181 @@
+package Semaphore;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Completions, conflicts, timeouts and latency per fixed time window, kept in a ring.
+ *
+ * Whole-run averages hide ramp-up, collapse under a burst and recovery; one row per
+ * window shows them. The ring holds the most recent {@code maxWindows} windows, so memory
+ * stays bounded however long the run: a window's slot is reused once the ring wraps
+ * around, and earlier windows are dropped. Recording is lock-free: a thread that is the
+ * first to reach a new window swaps a fresh window into the slot with a CAS, and every
+ * counter is an adder or a lock-free histogram.
+ */
+public class TimeSeries
+{
+    public static final String csvHeader = "WindowStartMs,Completed,ThroughputPerSecond,Conflicts,Timeouts," +
+            "P50Ms,P90Ms,P99Ms,MaxMs";
+
+    private final long windowMs;
+    private final LongSupplier clockMs;
+    private final AtomicReferenceArray<Window> ring;
+    private volatile long startMs;
+
+    /**
+     * @param clockMs source of time in milliseconds (virtual in discrete-event runs)
+     */
+    public TimeSeries(final long windowMs,
+                      final int maxWindows,
+                      final LongSupplier clockMs)
+    {
+        if (windowMs < 1 || maxWindows < 1)
+        {
+            throw new IllegalArgumentException("Time series needs windows of at least 1 ms and at least one window, got " +
+                    maxWindows + " of " + windowMs + " ms");
+        }
+        this.windowMs = windowMs;
+        this.clockMs  = clockMs;
+        this.ring     = new AtomicReferenceArray<>(maxWindows);
+        this.startMs  = clockMs.getAsLong();
+    }
+
+    /**
+     * Count windows from now instead of from construction; call before anything is recorded
+     */
+    public void start()
+    {
+        startMs = clockMs.getAsLong();
+    }
+
+    /**
+     * Record a completed request and its latency in milliseconds
+     */
+    public void recordCompletion(final long latencyMs)
+    {
+        Window window = current();
+        if (window != null)
+        {
+            window.completed.increment();
+            window.latency.record(latencyMs);
+        }
+    }
+
+    public void recordConflict()
+    {
+        Window window = current();
+        if (window != null)
+        {
+            window.conflicts.increment();
+        }
+    }
+
+    public void recordTimeout()
+    {
+        Window window = current();
+        if (window != null)
+        {
+            window.timeouts.increment();
+        }
+    }
+
+    public long getWindowMs()
+    {
+        return windowMs;
+    }
+
+    /**
+     * Write one CSV row per retained window, oldest first, in the columns of {@link #csvHeader}.
+     * Windows in which nothing happened are written as zeros, so gaps show. A window that
+     * is still open gets its throughput over the time it has covered so far, not the full window.
+     * @param prefix written at the start of every row, may be empty
+     */
+    public void writeCsv(final Appendable out,
+                         final String prefix) throws IOException
+    {
+        long elapsedMs = clockMs.getAsLong() - startMs;
+        long last      = -1;
+        for (int i = 0; i < ring.length(); i++)
+        {
+            Window window = ring.get(i);
+            if (window != null)
+            {
+                last = Math.max(last, window.index);
+            }
+        }
+
+        for (long index = Math.max(0, last - ring.length() + 1); index <= last; index++)
+        {
+            Window window = ring.get(slot(index));
+            out.append(prefix).append(String.valueOf(index * windowMs)).append(',');
+            if (window == null || window.index != index)
+            {
+                out.append("0,0.0,0,0,0,0,0,0\n");
+                continue;
+            }
+
+            long completed = window.completed.sum();
+            long coveredMs = Math.max(1, Math.min(windowMs, elapsedMs - index * windowMs));
+            out.append(String.valueOf(completed)).append(',')
+                    .append(String.valueOf(completed * 1000.0 / coveredMs)).append(',')
+                    .append(String.valueOf(window.conflicts.sum())).append(',')
+                    .append(String.valueOf(window.timeouts.sum())).append(',')
+                    .append(String.valueOf(window.latency.valueAtPercentile(50))).append(',')
+                    .append(String.valueOf(window.latency.valueAtPercentile(90))).append(',')
+                    .append(String.valueOf(window.latency.valueAtPercentile(99))).append(',')
+                    .append(String.valueOf(window.latency.getMax())).append('\n');
+        }
+    }
+
+    /**
+     * Get the window for now, replacing the one a full ring ago in its slot
+     * @return null for a late record whose slot already holds a newer window
+     */
+    private Window current()
+    {
+        long index = Math.max(0, (clockMs.getAsLong() - startMs) / windowMs);
+        int slot   = slot(index);
+        while (true)
+        {
+            Window window = ring.get(slot);
+            if (window != null && window.index == index)
+            {
+                return window;
+            }
+            if (window != null && window.index > index)
+            {
+                return null;
+            }
+            Window fresh = new Window(index);
+            if (ring.compareAndSet(slot, window, fresh))
+            {
+                return fresh;
+            }
+        }
+    }
+
+    private int slot(final long index)
+    {
+        return (int)(index % ring.length());
+    }
+
+    /**
+     * Counts for one window
+     */
+    private static final class Window
+    {
+        final long index;
+        final LongAdder completed      = new LongAdder();
+        final LongAdder conflicts      = new LongAdder();
+        final LongAdder timeouts       = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        Window(final long index)
+        {
+            this.index = index;
+        }
+    }
+}
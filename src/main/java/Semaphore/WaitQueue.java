@@ -0,0 +1,29 @@
+package Semaphore;
+
+/**
+ * Order in which a {@link PermitEngine} grants permits to blocked acquires.
+ *
+ * The engine only lets the waiter at the head take permits, so the queue alone decides
+ * who goes next. Implementations must be thread-safe, and {@link #isEmpty} is called on
+ * every uncontended acquire, so it should not take a lock.
+ */
+public interface WaitQueue
+{
+    /**
+     * Add a waiter that could not get its permits right away
+     */
+    void add(PermitWaiter waiter);
+
+    /**
+     * Remove a waiter that got its permits, timed out or was interrupted
+     * @param granted true if the waiter got its permits
+     */
+    void remove(PermitWaiter waiter, boolean granted);
+
+    /**
+     * Get the waiter to be served next, or null when nobody waits
+     */
+    PermitWaiter peek();
+
+    boolean isEmpty();
+}
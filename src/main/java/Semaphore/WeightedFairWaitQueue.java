@@ -0,0 +1,133 @@
+package Semaphore;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Self-clocked weighted fair queuing keyed by tenant.
+ *
+ * Each waiter is stamped with a virtual finish time: it starts when its tenant's previous
+ * request finishes, or now if the tenant was idle, and lasts its permit count divided by
+ * the tenant's weight. Waiters are served in finish-time order and the virtual clock
+ * follows the finish time of the last waiter served. Over a busy period every tenant gets
+ * permits in proportion to its weight, however many requests it queues, and no tenant
+ * starves.
+ */
+public class WeightedFairWaitQueue implements WaitQueue
+{
+    private final Map<String, Integer> weights;
+    private final int defaultWeight;
+
+    private final PriorityQueue<PermitWaiter> waiters = new PriorityQueue<>(
+            Comparator.comparingDouble((PermitWaiter waiter) -> waiter.finishTag)
+                    .thenComparingLong(waiter -> waiter.sequence));
+    private final Map<String, Double> lastFinish = new HashMap<>();
+    private final AtomicInteger size             = new AtomicInteger();
+    private final Lock lock                      = new ReentrantLock();
+    private double virtualTime;
+    private long nextSequence;
+
+    /**
+     * Every tenant gets the same share
+     */
+    public WeightedFairWaitQueue()
+    {
+        this(Map.of(), 1);
+    }
+
+    /**
+     * @param weights share of each tenant; tenants not listed get the default weight
+     */
+    public WeightedFairWaitQueue(final Map<String, Integer> weights,
+                                 final int defaultWeight)
+    {
+        if (defaultWeight < 1 || weights.values().stream().anyMatch(weight -> weight < 1))
+        {
+            throw new IllegalArgumentException("Weights must be at least 1");
+        }
+        this.weights       = new HashMap<>(weights);
+        this.defaultWeight = defaultWeight;
+    }
+
+    @Override
+    public void add(final PermitWaiter waiter)
+    {
+        lock.lock();
+        try
+        {
+            String tenant    = waiter.getTenant();
+            int weight       = weights.getOrDefault(tenant, defaultWeight);
+            double start     = Math.max(virtualTime, lastFinish.getOrDefault(tenant, 0.0));
+            waiter.startTag  = start;
+            waiter.finishTag = start + (double)waiter.getCount() / weight;
+            waiter.sequence  = nextSequence++;
+            lastFinish.put(tenant, waiter.finishTag);
+            waiters.add(waiter);
+            size.incrementAndGet();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(final PermitWaiter waiter,
+                       final boolean granted)
+    {
+        lock.lock();
+        try
+        {
+            if (!waiters.remove(waiter))
+            {
+                return;
+            }
+            size.decrementAndGet();
+
+            if (granted)
+            {
+                virtualTime = Math.max(virtualTime, waiter.finishTag);
+            }
+            else if (lastFinish.getOrDefault(waiter.getTenant(), 0.0) == waiter.finishTag)
+            {
+                // Gave up without being served: do not charge the tenant for it
+                lastFinish.put(waiter.getTenant(), waiter.startTag);
+            }
+
+            // Once everyone is served, all tenants are idle and start afresh
+            if (waiters.isEmpty())
+            {
+                lastFinish.clear();
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PermitWaiter peek()
+    {
+        lock.lock();
+        try
+        {
+            return waiters.peek();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size.get() == 0;
+    }
+}
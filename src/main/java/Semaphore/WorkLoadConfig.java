@@ -1,5 +1,8 @@
 package Semaphore;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration for a workload simulation
  */
@@ -10,17 +13,143 @@ class WorkLoadConfig
     final int operationsPerClient;
     final int delayBetweenOperationsMs;
     final int semaphorePermits;
+    final ExecutionMode executionMode;
+    final int carrierThreads;
+
+    // Optional behaviour, only changed on copies made by the with... methods
+    QueuePolicy queuePolicy       = QueuePolicy.FIFO;
+    int highPriorityClients       = 0;       // Clients 0..n-1 are latency-sensitive
+    int highPriorityWeight        = 1;       // Their share under WEIGHTED_FAIR, others weigh 1
+    int resourceCapacity          = 0;       // Users the resource serves at full speed, 0 never slows down
+    boolean adaptiveLimit         = false;   // Let an AIMD limiter move the permit count with latency
+    int maxAdaptivePermits        = 0;       // Ceiling for the adaptive limit
+    ArrivalProcess arrivalProcess = ArrivalProcess.CLOSED;   // CONSTANT or POISSON send operations open loop
+    double targetOpsPerSecond     = 0;       // Open-loop arrival rate over all clients
+    SyncStrategy syncStrategy     = null;    // Where synchronized clients take permits, null picks jdk-fair for FIFO
 
     public WorkLoadConfig(final String testName,
                           final int numClients,
                           final int operationsPerClient,
                           final int delayBetweenOperationsMs,
                           final int semaphorePermits)
+    {
+        this(testName, numClients, operationsPerClient, delayBetweenOperationsMs, semaphorePermits,
+                ExecutionMode.PLATFORM, Runtime.getRuntime().availableProcessors());
+    }
+
+    public WorkLoadConfig(final String testName,
+                          final int numClients,
+                          final int operationsPerClient,
+                          final int delayBetweenOperationsMs,
+                          final int semaphorePermits,
+                          final ExecutionMode executionMode,
+                          final int carrierThreads)
     {
         this.testName                 = testName;
         this.numClients               = numClients;
         this.operationsPerClient      = operationsPerClient;
         this.delayBetweenOperationsMs = delayBetweenOperationsMs;
         this.semaphorePermits         = semaphorePermits;
+        this.executionMode            = executionMode;
+        this.carrierThreads           = carrierThreads;
+    }
+
+    /**
+     * Same workload with waiting clients served by the given policy
+     */
+    WorkLoadConfig withQueuePolicy(final QueuePolicy queuePolicy,
+                                   final int highPriorityClients,
+                                   final int highPriorityWeight)
+    {
+        WorkLoadConfig config      = copy();
+        config.queuePolicy         = queuePolicy;
+        config.highPriorityClients = highPriorityClients;
+        config.highPriorityWeight  = highPriorityWeight;
+        return config;
+    }
+
+    /**
+     * Same workload against a resource that slows down beyond the given number of users
+     */
+    WorkLoadConfig withResourceCapacity(final int resourceCapacity)
+    {
+        WorkLoadConfig config   = copy();
+        config.resourceCapacity = resourceCapacity;
+        return config;
+    }
+
+    /**
+     * Same workload with the permit count adapted to latency, starting from semaphorePermits
+     */
+    WorkLoadConfig withAdaptiveLimit(final int maxAdaptivePermits)
+    {
+        WorkLoadConfig config     = copy();
+        config.adaptiveLimit      = true;
+        config.maxAdaptivePermits = maxAdaptivePermits;
+        return config;
+    }
+
+    /**
+     * Same operations sent open loop at the given rate instead of by waiting clients
+     */
+    WorkLoadConfig withArrivalRate(final ArrivalProcess arrivalProcess,
+                                   final double targetOpsPerSecond)
+    {
+        WorkLoadConfig config     = copy();
+        config.arrivalProcess     = arrivalProcess;
+        config.targetOpsPerSecond = targetOpsPerSecond;
+        return config;
+    }
+
+    /**
+     * Same workload with synchronized clients taking their permits from the given strategy
+     */
+    WorkLoadConfig withStrategy(final SyncStrategy syncStrategy)
+    {
+        WorkLoadConfig config = copy();
+        config.syncStrategy   = syncStrategy;
+        return config;
+    }
+
+    /**
+     * Priority class of a client: 1 for the latency-sensitive ones, 0 for the rest
+     */
+    int priorityOf(final int clientId)
+    {
+        return clientId < highPriorityClients ? 1 : 0;
+    }
+
+    static String tenantOf(final int clientId)
+    {
+        return "client_" + clientId;
+    }
+
+    /**
+     * Create the wait queue for the shared resource
+     */
+    WaitQueue newWaitQueue()
+    {
+        Map<String, Integer> weights = new HashMap<>();
+        for (int i = 0; i < highPriorityClients; i++)
+        {
+            weights.put(tenantOf(i), highPriorityWeight);
+        }
+        return queuePolicy.newQueue(weights);
+    }
+
+    private WorkLoadConfig copy()
+    {
+        WorkLoadConfig config      = new WorkLoadConfig(testName, numClients, operationsPerClient,
+                delayBetweenOperationsMs, semaphorePermits, executionMode, carrierThreads);
+        config.queuePolicy         = queuePolicy;
+        config.highPriorityClients = highPriorityClients;
+        config.highPriorityWeight  = highPriorityWeight;
+        config.resourceCapacity    = resourceCapacity;
+        config.adaptiveLimit       = adaptiveLimit;
+        config.maxAdaptivePermits  = maxAdaptivePermits;
+        config.arrivalProcess      = arrivalProcess;
+        config.targetOpsPerSecond  = targetOpsPerSecond;
+        config.syncStrategy        = syncStrategy;
+        return config;
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This class simulates different workload scenarios to evaluate the effectiveness
@@ -24,6 +25,7 @@ public class WorkloadSimulation
         runHighConcurrencyTest();
         runBurstTest();
         runMixedWorkloadTest();
+        runOpenLoopTest();
 
         System.out.println("\nAll simulation tests completed. Results have been saved to CSV files.");
     }
@@ -34,15 +36,18 @@ public class WorkloadSimulation
     private static void runLowConcurrencyTest()
     {
         System.out.println("\nRunning Low Concurrency Test (10 concurrent clients)");
-        WorkLoadConfig config = new WorkLoadConfig(
+        runSimulation(lowConcurrencyConfig());
+    }
+
+    static WorkLoadConfig lowConcurrencyConfig()
+    {
+        return new WorkLoadConfig(
                 "low_concurrency_test",
                 10,    // 10 clients
                 5,     // 5 operations per client
                 100,   // 100ms between operations
                 3      // semaphore permits (max 3 concurrent accesses)
         );
-
-        runSimulation(config);
     }
 
     /**
@@ -51,15 +56,18 @@ public class WorkloadSimulation
     private static void runMediumConcurrencyTest()
     {
         System.out.println("\nRunning Medium Concurrency Test (25 concurrent clients)");
-        WorkLoadConfig config = new WorkLoadConfig(
+        runSimulation(mediumConcurrencyConfig());
+    }
+
+    static WorkLoadConfig mediumConcurrencyConfig()
+    {
+        return new WorkLoadConfig(
                 "medium_concurrency_test",
                 25,    // 25 clients
                 10,    // 10 operations per client
                 50,    // 50ms between operations
                 3      // semaphore permits
         );
-
-        runSimulation(config);
     }
 
     /**
@@ -68,15 +76,18 @@ public class WorkloadSimulation
     private static void runHighConcurrencyTest()
     {
         System.out.println("\nRunning High Concurrency Test (50 concurrent clients)");
-        WorkLoadConfig config = new WorkLoadConfig(
+        runSimulation(highConcurrencyConfig());
+    }
+
+    static WorkLoadConfig highConcurrencyConfig()
+    {
+        return new WorkLoadConfig(
                 "high_concurrency_test",
                 50,    // 50 clients
                 20,    // 20 operations per client
                 25,    // 25ms between operations
                 3      // semaphore permits
         );
-
-        runSimulation(config);
     }
 
     /**
@@ -85,15 +96,18 @@ public class WorkloadSimulation
     private static void runBurstTest()
     {
         System.out.println("\nRunning Burst Test (40 concurrent clients with 0ms delay)");
-        WorkLoadConfig config = new WorkLoadConfig(
+        runSimulation(burstTestConfig());
+    }
+
+    static WorkLoadConfig burstTestConfig()
+    {
+        return new WorkLoadConfig(
                 "burst_test",
                 40,    // 40 clients
                 5,     // 5 operations per client
                 0,     // 0ms between operations (burst)
                 3      // semaphore permits
         );
-
-        runSimulation(config);
     }
 
     /**
@@ -102,15 +116,66 @@ public class WorkloadSimulation
     private static void runMixedWorkloadTest()
     {
         System.out.println("\nRunning Mixed Workload Test (30 clients with mixed behavior)");
-        WorkLoadConfig config = new WorkLoadConfig(
+        runSimulation(mixedWorkloadConfig());
+    }
+
+    static WorkLoadConfig mixedWorkloadConfig()
+    {
+        return new WorkLoadConfig(
                 "mixed_workload_test",
                 30,    // 30 clients
                 15,    // 15 operations per client
                 -1,    // Mixed delays (-1 indicates random delays)
                 3      // semaphore permits
         );
+    }
+
+    /**
+     * Simulates clients that keep sending at a fixed average rate however slow the database gets
+     */
+    private static void runOpenLoopTest()
+    {
+        System.out.println("\nRunning Open-Loop Test (Poisson arrivals at 60 ops/sec over 30 clients)");
+        runSimulation(openLoopConfig());
+    }
+
+    static WorkLoadConfig openLoopConfig()
+    {
+        return new WorkLoadConfig(
+                "open_loop_test",
+                30,    // 30 clients
+                20,    // 20 operations per client
+                0,     // Delay unused: arrivals follow the schedule
+                3      // semaphore permits
+        ).withArrivalRate(ArrivalProcess.POISSON, 60);
+    }
 
-        runSimulation(config);
+    /**
+     * The workload scenarios, in the order main runs them
+     */
+    static List<WorkLoadConfig> scenarios()
+    {
+        return List.of(lowConcurrencyConfig(), mediumConcurrencyConfig(), highConcurrencyConfig(),
+                burstTestConfig(), mixedWorkloadConfig(), openLoopConfig());
+    }
+
+    /**
+     * Run one of the workload scenarios once, every client taking its permits from the given strategy
+     * @param testName name of one of the {@link #scenarios()}
+     */
+    public static SimulationResults runScenario(final String testName,
+                                                final SyncStrategy strategy)
+    {
+        for (final WorkLoadConfig config : scenarios())
+        {
+            if (config.testName.equals(testName))
+            {
+                SimulationResults results = new SimulationResults();
+                runWorkload(config.withStrategy(strategy), true, results);
+                return results;
+            }
+        }
+        throw new IllegalArgumentException("Unknown workload scenario " + testName);
     }
 
     /**
@@ -137,6 +202,11 @@ public class WorkloadSimulation
         System.out.println("      - Conflicts: " + withSyncResults.conflictCount +
                 " (" + (withSyncResults.conflictCount.get() * 100.0 / withSyncResults.totalOperations.get()) + "%)");
         System.out.println("      - Average Response Time: " + withSyncResults.getAverageResponseTime() + "ms");
+        if (config.highPriorityClients > 0)
+        {
+            printWaitTimes("High Priority", withSyncResults.waitTimesUs[1]);
+            printWaitTimes("Normal Priority", withSyncResults.waitTimesUs[0]);
+        }
 
         System.out.println("    * Without Synchronization:");
         System.out.println("      - Operations: " + withoutSyncResults.totalOperations);
@@ -148,39 +218,74 @@ public class WorkloadSimulation
         saveResultsToCSV(config.testName, withSyncResults, withoutSyncResults);
     }
 
+    private static void printWaitTimes(final String label,
+                                       final LatencyHistogram waitTimesUs)
+    {
+        System.out.println("      - " + label + " Wait (ms): p50=" + waitTimesUs.valueAtPercentile(50) / 1000.0 +
+                " p99=" + waitTimesUs.valueAtPercentile(99) / 1000.0 +
+                " max=" + waitTimesUs.getMax() / 1000.0);
+    }
+
     /**
      * Run a specific workload scenario
      */
-    private static void runWorkload(final WorkLoadConfig config,
-                                    final boolean useSync,
-                                    final SimulationResults results)
+    static void runWorkload(final WorkLoadConfig config,
+                            final boolean useSync,
+                            final SimulationResults results)
     {
         // Create shared resource and semaphore
-        SharedCloudResource resource = new SharedCloudResource(config.semaphorePermits);
+        SharedCloudResource resource = new SharedCloudResource(config);
 
-        // Create clients
+        // Create clients; open loop counts down once per operation instead of once per client
+        boolean openLoop             = config.arrivalProcess.isOpenLoop();
+        int operations               = config.numClients * config.operationsPerClient;
         List<DatabaseClient> clients = new ArrayList<>();
         CountDownLatch startLatch    = new CountDownLatch(1);
-        CountDownLatch finishLatch   = new CountDownLatch(config.numClients);
+        CountDownLatch finishLatch   = new CountDownLatch(openLoop ? operations : config.numClients);
+        ExecutorService executor     = config.executionMode.newExecutor(config.carrierThreads);
 
         for (int i = 0; i < config.numClients; i++)
         {
             DatabaseClient client = new DatabaseClient(
                     i, resource, config, useSync, results, startLatch, finishLatch);
             clients.add(client);
-            new Thread(client).start();
+            if (!openLoop)
+            {
+                executor.execute(client);
+            }
         }
 
         // Start all clients simultaneously
         long startTime = System.currentTimeMillis();
+        results.timeSeries.start();
         startLatch.countDown();
 
+        if (openLoop)
+        {
+            // The same operations, sent on schedule and handed to the clients in turn
+            OpenLoopGenerator generator = new OpenLoopGenerator(config.arrivalProcess, config.targetOpsPerSecond,
+                    System.currentTimeMillis());
+            generator.run(operations, Long.MAX_VALUE, executor, (sequence, intendedNanos) ->
+            {
+                try
+                {
+                    clients.get((int)(sequence % config.numClients)).runOperation(intendedNanos);
+                }
+                finally
+                {
+                    finishLatch.countDown();
+                }
+            });
+        }
+
         try
         {
             // Wait for all clients to complete
             finishLatch.await();
             long endTime = System.currentTimeMillis();
             results.totalDurationMs = endTime - startTime;
+            results.finalPermits    = resource.getPermitLimit();
+            results.peakPermits     = resource.getPeakPermitLimit();
 
         }
         catch (final InterruptedException e)
@@ -188,6 +293,10 @@ public class WorkloadSimulation
             System.err.println("Simulation interrupted: " + e.getMessage());
             Thread.currentThread().interrupt();
         }
+        finally
+        {
+            executor.shutdown();
+        }
     }
 
     /**
@@ -229,5 +338,19 @@ public class WorkloadSimulation
         {
             System.err.println("Error saving results: " + e.getMessage());
         }
+
+        // Both runs over time, one row per window
+        try (FileWriter writer = new FileWriter(testName + "_timeseries.csv"))
+        {
+            writer.write("Synchronization," + TimeSeries.csvHeader + "\n");
+            withSyncResults.timeSeries.writeCsv(writer, "true,");
+            withoutSyncResults.timeSeries.writeCsv(writer, "false,");
+
+            System.out.println("  - Time series saved to " + testName + "_timeseries.csv");
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error saving time series: " + e.getMessage());
+        }
     }
 }
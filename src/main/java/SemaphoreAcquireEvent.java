@@ -0,0 +1,41 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for one semaphore acquire; its duration is the time spent in the
+ * permit backend, so simulated network latency before the call is not included
+ */
+@Name("CloudSync.SemaphoreAcquire")
+@Label("Semaphore Acquire")
+@Category({"CloudSync", "Semaphore"})
+@Description("Wait for permits on a distributed semaphore")
+@StackTrace(false)
+class SemaphoreAcquireEvent extends Event
+{
+    @Label("Semaphore")
+    String semaphore;
+
+    @Label("Tenant")
+    @Description("Container the permits were taken for, if the caller said")
+    String tenant;
+
+    @Label("Permits")
+    int permits;
+
+    @Label("Acquired")
+    @Description("False if the wait timed out or was interrupted")
+    boolean acquired;
+
+    @Label("Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitNanos;
+
+    @Label("Available Permits")
+    @Description("Permits free once the wait ended, -1 if they are kept on a coordinator")
+    int availablePermits;
+}
@@ -0,0 +1,539 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for the central coordination service behind {@link DistributedSemaphore}.
+ *
+ * A single thread serves every connection through one selector, so the semaphore state
+ * needs no locking. Requests use {@link CoordinatorProtocol}; acquires that cannot be
+ * granted are queued in FIFO order per semaphore and answered later, when permits are
+ * released or their timeout runs out. Permits held by a connection that goes away are
+ * returned, as a real coordinator would do when a client session ends.
+ *
+ * Usage: java SemaphoreCoordinator [port]
+ * Prints "LISTENING port" once it accepts connections; port 0 picks a free port.
+ */
+public class SemaphoreCoordinator implements Runnable
+{
+    private static final int bufferSize = 64 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+
+    private final Map<String, Integer> semaphoreIds       = new HashMap<>();
+    private final List<CoordinatedSemaphore> semaphores   = new ArrayList<>();
+    private final PriorityQueue<PendingAcquire> deadlines =
+            new PriorityQueue<>((a, b) -> Long.compare(a.deadlineNanos, b.deadlineNanos));
+
+    // Connections with responses waiting to be written
+    private final Set<Connection> dirty = new LinkedHashSet<>();
+
+    private volatile boolean running = true;
+
+    public SemaphoreCoordinator(final int port) throws IOException
+    {
+        selector = Selector.open();
+        server   = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+
+        SemaphoreCoordinator coordinator = new SemaphoreCoordinator(port);
+        System.out.println("LISTENING " + coordinator.getPort());
+        System.out.flush();
+        coordinator.run();
+    }
+
+    public int getPort()
+    {
+        return server.socket().getLocalPort();
+    }
+
+    public void stop()
+    {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (running)
+            {
+                // Responses left over from a dropped connection must not wait for the next event
+                if (dirty.isEmpty())
+                {
+                    selector.select(selectTimeoutMs());
+                }
+                else
+                {
+                    selector.selectNow();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext())
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                    {
+                        continue;
+                    }
+                    if (key.isAcceptable())
+                    {
+                        accept();
+                    }
+                    else
+                    {
+                        Connection connection = (Connection)key.attachment();
+                        if (key.isReadable())
+                        {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable())
+                        {
+                            dirty.add(connection);
+                        }
+                    }
+                }
+
+                expireTimeouts();
+                flushDirty();
+            }
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error running semaphore coordinator: " + e.getMessage());
+        }
+        finally
+        {
+            try
+            {
+                for (final SelectionKey key : selector.keys())
+                {
+                    key.channel().close();
+                }
+                selector.close();
+            }
+            catch (final IOException e)
+            {
+                System.err.println("Error closing semaphore coordinator: " + e.getMessage());
+            }
+        }
+    }
+
+    private long selectTimeoutMs()
+    {
+        PendingAcquire next = deadlines.peek();
+        if (next == null)
+        {
+            return 0;   // Block until something arrives
+        }
+        long ms = TimeUnit.NANOSECONDS.toMillis(next.deadlineNanos - System.nanoTime());
+        return Math.max(1, ms + 1);
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+        {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Connection connection = new Connection(channel);
+        connection.key        = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private void read(final Connection connection)
+    {
+        int read;
+        try
+        {
+            read = connection.channel.read(connection.in);
+        }
+        catch (final IOException e)
+        {
+            read = -1;
+        }
+        if (read < 0)
+        {
+            close(connection);
+            return;
+        }
+
+        // Handle every complete frame; a partial one stays for the next read
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= 4)
+        {
+            int length = in.getInt(in.position());
+            if (length <= 0 || length > CoordinatorProtocol.maxFrameSize)
+            {
+                System.err.println("Error reading coordinator request: bad frame length " + length);
+                close(connection);
+                return;
+            }
+            if (in.remaining() < 4 + length)
+            {
+                break;
+            }
+            int frameEnd = in.position() + 4 + length;
+            int limit    = in.limit();
+            in.position(in.position() + 4).limit(frameEnd);
+            try
+            {
+                handle(connection, in);
+            }
+            catch (final BufferUnderflowException e)
+            {
+                System.err.println("Error reading coordinator request: truncated frame");
+                close(connection);
+                return;
+            }
+            in.limit(limit).position(frameEnd);
+        }
+        in.compact();
+    }
+
+    private void handle(final Connection connection,
+                        final ByteBuffer in)
+    {
+        byte op        = in.get();
+        long requestId = in.getLong();
+
+        switch (op)
+        {
+            case CoordinatorProtocol.opDeclare:
+            {
+                int permits  = in.getInt();
+                byte[] bytes = new byte[in.getShort()];
+                in.get(bytes);
+                respond(connection, requestId, CoordinatorProtocol.statusOk,
+                        declare(new String(bytes, StandardCharsets.UTF_8), permits));
+                break;
+            }
+
+            case CoordinatorProtocol.opAcquire:
+            {
+                CoordinatedSemaphore semaphore = lookup(in.getInt());
+                int count                      = in.getInt();
+                long timeoutMs                 = in.getLong();
+                if (semaphore == null || count < 1 || count > semaphore.maxPermits)
+                {
+                    respond(connection, requestId, CoordinatorProtocol.statusError, 0);
+                    break;
+                }
+                acquire(connection, requestId, semaphore, count, timeoutMs);
+                break;
+            }
+
+            case CoordinatorProtocol.opRelease:
+            {
+                CoordinatedSemaphore semaphore = lookup(in.getInt());
+                int count                      = in.getInt();
+                if (semaphore == null || count < 1 || connection.held(semaphore.id) < count)
+                {
+                    respond(connection, requestId, CoordinatorProtocol.statusError, 0);
+                    break;
+                }
+                connection.hold(semaphore.id, -count);
+                semaphore.permits += count;
+                grantWaiters(semaphore);
+                respond(connection, requestId, CoordinatorProtocol.statusOk, 0);
+                break;
+            }
+
+            case CoordinatorProtocol.opAvailable:
+            case CoordinatorProtocol.opQueued:
+            {
+                CoordinatedSemaphore semaphore = lookup(in.getInt());
+                if (semaphore == null)
+                {
+                    respond(connection, requestId, CoordinatorProtocol.statusError, 0);
+                    break;
+                }
+                respond(connection, requestId, CoordinatorProtocol.statusOk,
+                        op == CoordinatorProtocol.opAvailable ? semaphore.permits : semaphore.queue.size());
+                break;
+            }
+
+            default:
+                respond(connection, requestId, CoordinatorProtocol.statusError, 0);
+        }
+    }
+
+    /**
+     * Look up a semaphore by name, creating it on first use
+     */
+    private int declare(final String name,
+                        final int permits)
+    {
+        Integer id = semaphoreIds.get(name);
+        if (id == null)
+        {
+            id = semaphores.size();
+            semaphores.add(new CoordinatedSemaphore(id, permits));
+            semaphoreIds.put(name, id);
+        }
+        return id;
+    }
+
+    private CoordinatedSemaphore lookup(final int id)
+    {
+        return id >= 0 && id < semaphores.size() ? semaphores.get(id) : null;
+    }
+
+    private void acquire(final Connection connection,
+                         final long requestId,
+                         final CoordinatedSemaphore semaphore,
+                         final int count,
+                         final long timeoutMs)
+    {
+        // FIFO: only grant directly when nobody is queued
+        if (semaphore.queue.isEmpty() && semaphore.permits >= count)
+        {
+            semaphore.permits -= count;
+            connection.hold(semaphore.id, count);
+            respond(connection, requestId, CoordinatorProtocol.statusOk, 1);
+            return;
+        }
+        if (timeoutMs == 0)
+        {
+            respond(connection, requestId, CoordinatorProtocol.statusOk, 0);
+            return;
+        }
+
+        PendingAcquire pending = new PendingAcquire(connection, requestId, semaphore, count,
+                timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : Long.MAX_VALUE);
+        semaphore.queue.add(pending);
+        if (timeoutMs > 0)
+        {
+            deadlines.add(pending);
+        }
+    }
+
+    private void grantWaiters(final CoordinatedSemaphore semaphore)
+    {
+        // Hand permits to queued acquires in arrival order
+        while (!semaphore.queue.isEmpty() && semaphore.queue.peek().count <= semaphore.permits)
+        {
+            PendingAcquire next = semaphore.queue.poll();
+            next.done           = true;
+            semaphore.permits  -= next.count;
+            next.connection.hold(semaphore.id, next.count);
+            respond(next.connection, next.requestId, CoordinatorProtocol.statusOk, 1);
+        }
+    }
+
+    private void expireTimeouts()
+    {
+        long now = System.nanoTime();
+        while (!deadlines.isEmpty() && deadlines.peek().deadlineNanos - now <= 0)
+        {
+            PendingAcquire expired = deadlines.poll();
+            if (expired.done)
+            {
+                continue;
+            }
+            expired.done = true;
+            expired.semaphore.queue.remove(expired);
+            respond(expired.connection, expired.requestId, CoordinatorProtocol.statusOk, 0);
+
+            // A large request at the head may have been blocking smaller ones
+            grantWaiters(expired.semaphore);
+        }
+    }
+
+    private void respond(final Connection connection,
+                         final long requestId,
+                         final byte status,
+                         final int value)
+    {
+        if (!connection.channel.isOpen())
+        {
+            return;
+        }
+        if (connection.out.remaining() < CoordinatorProtocol.responseSize)
+        {
+            ByteBuffer grown = ByteBuffer.allocate(connection.out.capacity() * 2);
+            connection.out.flip();
+            grown.put(connection.out);
+            connection.out = grown;
+        }
+        CoordinatorProtocol.putResponse(connection.out, requestId, status, value);
+        dirty.add(connection);
+    }
+
+    private void flushDirty()
+    {
+        // Closing a connection below can queue responses for others, so work on a copy
+        Connection[] pending = dirty.toArray(new Connection[0]);
+        dirty.clear();
+        for (final Connection connection : pending)
+        {
+            if (!connection.channel.isOpen())
+            {
+                continue;
+            }
+            try
+            {
+                connection.out.flip();
+                connection.channel.write(connection.out);
+                boolean blocked = connection.out.hasRemaining();
+                connection.out.compact();
+
+                // Only ask for write readiness while the socket buffer is full
+                connection.key.interestOps(blocked
+                        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                        : SelectionKey.OP_READ);
+            }
+            catch (final IOException e)
+            {
+                close(connection);
+            }
+        }
+    }
+
+    private void close(final Connection connection)
+    {
+        try
+        {
+            connection.channel.close();
+        }
+        catch (final IOException e)
+        {
+            System.err.println("Error closing coordinator connection: " + e.getMessage());
+        }
+
+        // Drop the connection's queued acquires and give back what it still held
+        for (final CoordinatedSemaphore semaphore : semaphores)
+        {
+            Iterator<PendingAcquire> queued = semaphore.queue.iterator();
+            while (queued.hasNext())
+            {
+                PendingAcquire pending = queued.next();
+                if (pending.connection == connection)
+                {
+                    pending.done = true;
+                    queued.remove();
+                }
+            }
+            int held = connection.held(semaphore.id);
+            if (held > 0)
+            {
+                semaphore.permits += held;
+            }
+            grantWaiters(semaphore);
+        }
+    }
+
+    /**
+     * Permits and wait queue of one semaphore
+     */
+    private static final class CoordinatedSemaphore
+    {
+        final int id;
+        final int maxPermits;
+        final ArrayDeque<PendingAcquire> queue = new ArrayDeque<>();
+
+        int permits;
+
+        CoordinatedSemaphore(final int id,
+                             final int permits)
+        {
+            this.id         = id;
+            this.maxPermits = permits;
+            this.permits    = permits;
+        }
+    }
+
+    /**
+     * An acquire that is waiting for permits
+     */
+    private static final class PendingAcquire
+    {
+        final Connection connection;
+        final long requestId;
+        final CoordinatedSemaphore semaphore;
+        final int count;
+        final long deadlineNanos;
+
+        boolean done;
+
+        PendingAcquire(final Connection connection,
+                       final long requestId,
+                       final CoordinatedSemaphore semaphore,
+                       final int count,
+                       final long deadlineNanos)
+        {
+            this.connection    = connection;
+            this.requestId     = requestId;
+            this.semaphore     = semaphore;
+            this.count         = count;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * Buffers and held permits of one client connection
+     */
+    private static final class Connection
+    {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(bufferSize);
+
+        ByteBuffer out = ByteBuffer.allocate(bufferSize);
+        SelectionKey key;
+        int[] held     = new int[16];
+
+        Connection(final SocketChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        int held(final int id)
+        {
+            return id < held.length ? held[id] : 0;
+        }
+
+        void hold(final int id,
+                  final int count)
+        {
+            if (id >= held.length)
+            {
+                int[] grown = new int[Math.max(held.length * 2, id + 1)];
+                System.arraycopy(held, 0, grown, 0, held.length);
+                held = grown;
+            }
+            held[id] += count;
+        }
+    }
+}
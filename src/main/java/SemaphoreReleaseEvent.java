@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for permits returned to a semaphore
+ */
+@Name("CloudSync.SemaphoreRelease")
+@Label("Semaphore Release")
+@Category({"CloudSync", "Semaphore"})
+@Description("Permits returned to a distributed semaphore")
+@StackTrace(false)
+class SemaphoreReleaseEvent extends Event
+{
+    @Label("Semaphore")
+    String semaphore;
+
+    @Label("Tenant")
+    @Description("Container the permits were returned for, if the caller said")
+    String tenant;
+
+    @Label("Permits")
+    int permits;
+
+    @Label("Available Permits")
+    @Description("Permits free right after the release, before a waiter takes them; -1 if they are kept on a coordinator")
+    int availablePermits;
+}
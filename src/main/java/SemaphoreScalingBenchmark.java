@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures acquire/release throughput as the number of independent semaphores grows.
+ *
+ * Every resource gets its own semaphore and the same number of worker threads, so with
+ * per-instance permit engines the aggregate throughput should grow linearly with the
+ * resource count. Network latency simulation is disabled; each holder parks for a short
+ * fixed time to model work done while holding the permit.
+ *
+ * Usage: java SemaphoreScalingBenchmark [maxResources] [threadsPerResource] [seconds]
+ */
+public class SemaphoreScalingBenchmark
+{
+    private static final int permitsPerResource = 3;
+    private static final long holdNanos         = TimeUnit.MICROSECONDS.toNanos(200);
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int maxResources       = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int threadsPerResource = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int seconds            = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        System.out.println("Resources,Threads,OpsPerSecond,OpsPerSecondPerResource");
+        for (int resources = 1; resources <= maxResources; resources *= 2)
+        {
+            double opsPerSecond = run(resources, threadsPerResource, seconds);
+            System.out.println(resources + "," + (resources * threadsPerResource) + "," +
+                    String.format("%.0f", opsPerSecond) + "," +
+                    String.format("%.0f", opsPerSecond / resources));
+        }
+    }
+
+    private static double run(final int numResources,
+                              final int threadsPerResource,
+                              final int seconds) throws InterruptedException
+    {
+        List<DistributedSemaphore> semaphores = new ArrayList<>();
+        for (int i = 0; i < numResources; i++)
+        {
+            semaphores.add(new DistributedSemaphore(permitsPerResource, "sem_resource_" + i));
+        }
+
+        AtomicLong operations      = new AtomicLong();
+        CountDownLatch startLatch  = new CountDownLatch(1);
+        CountDownLatch finishLatch = new CountDownLatch(numResources * threadsPerResource);
+        long[] deadline            = new long[1];
+        List<Thread> threads       = new ArrayList<>();
+
+        for (final DistributedSemaphore semaphore : semaphores)
+        {
+            for (int t = 0; t < threadsPerResource; t++)
+            {
+                Thread thread = new Thread(() ->
+                {
+                    Random random = new Random();
+                    long ops      = 0;
+                    try
+                    {
+                        startLatch.await();
+                        while (System.nanoTime() < deadline[0])
+                        {
+                            if (semaphore.acquire(random, 0, 0, 1000))
+                            {
+                                LockSupport.parkNanos(holdNanos);
+                                semaphore.release(random, 0, 0);
+                                ops++;
+                            }
+                        }
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally
+                    {
+                        operations.addAndGet(ops);
+                        finishLatch.countDown();
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        long startTime = System.nanoTime();
+        deadline[0]    = startTime + TimeUnit.SECONDS.toNanos(seconds);
+        startLatch.countDown();
+        finishLatch.await();
+        long elapsed = System.nanoTime() - startTime;
+
+        return operations.get() * 1_000_000_000.0 / elapsed;
+    }
+}
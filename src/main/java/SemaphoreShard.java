@@ -0,0 +1,21 @@
+import Semaphore.PermitBackend;
+
+/**
+ * One partition of the semaphore coordination service.
+ * Semaphores are placed on shards by {@link ShardedSemaphores}.
+ */
+interface SemaphoreShard extends AutoCloseable
+{
+    /**
+     * Name used to place the shard on the hash ring
+     */
+    String getName();
+
+    /**
+     * Create a semaphore on this shard with all permits free
+     */
+    PermitBackend open(String semaphoreName, int permits);
+
+    @Override
+    void close();
+}
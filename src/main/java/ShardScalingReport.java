@@ -0,0 +1,160 @@
+import Semaphore.ReportRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures acquire throughput over many resources as the number of coordinator shards grows.
+ *
+ * Each shard is its own coordinator process, and semaphores are placed by consistent
+ * hashing on the resource id. Worker threads pick a random resource for every acquire and
+ * release. Network latency is not simulated; the cost is the real loopback round trip.
+ * In-use counts are tracked per resource, so any permit over-grant shows up as a violation.
+ * The last run adds a shard while the workers are running and reports how many semaphores
+ * moved.
+ *
+ * Usage: java ShardScalingReport [maxShards] [resources] [threads] [seconds]
+ */
+public class ShardScalingReport
+{
+    private static final int permitsPerResource = 3;
+
+    public static void main(String[] args) throws Exception
+    {
+        int maxShards = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int resources = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        int threads   = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds   = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        List<Layout> layouts = new ArrayList<>();
+        for (int shardCount = 1; shardCount <= maxShards; shardCount *= 2)
+        {
+            layouts.add(new Layout(shardCount, false));
+        }
+
+        // Same load while a shard joins half way through
+        layouts.add(new Layout(Math.max(1, maxShards / 2), true));
+
+        ReportRunner.run("Shard Scaling",
+                "Shards,Resources,Threads,OpsPerSecond,MinPerShard,MaxPerShard,Moved,Violations",
+                layouts,
+                (table, layout) -> run(table, layout.shards, resources, threads, seconds, layout.addShard));
+    }
+
+    private static void run(final ReportRunner.Table table,
+                            final int shardCount,
+                            final int numResources,
+                            final int threads,
+                            final int seconds,
+                            final boolean addShard) throws IOException, InterruptedException
+    {
+        List<SemaphoreShard> launched = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++)
+        {
+            launched.add(CoordinatorSemaphoreShard.launch("shard_" + i));
+        }
+
+        try (ShardedSemaphores shards = new ShardedSemaphores(launched))
+        {
+            List<DistributedSemaphore> semaphores = new ArrayList<>();
+            for (int i = 0; i < numResources; i++)
+            {
+                semaphores.add(shards.semaphore("resource_" + i, permitsPerResource));
+            }
+
+            AtomicIntegerArray inUse   = new AtomicIntegerArray(numResources);
+            AtomicLong operations      = new AtomicLong();
+            AtomicLong violations      = new AtomicLong();
+            CountDownLatch startLatch  = new CountDownLatch(1);
+            CountDownLatch finishLatch = new CountDownLatch(threads);
+            long[] deadline            = new long[1];
+
+            for (int t = 0; t < threads; t++)
+            {
+                Thread thread = new Thread(() ->
+                {
+                    Random random = new Random();
+                    long ops      = 0;
+                    try
+                    {
+                        startLatch.await();
+                        while (System.nanoTime() < deadline[0])
+                        {
+                            int index                      = random.nextInt(numResources);
+                            DistributedSemaphore semaphore = semaphores.get(index);
+                            if (semaphore.acquire(random, 0, 0, 1000))
+                            {
+                                if (inUse.incrementAndGet(index) > permitsPerResource)
+                                {
+                                    violations.incrementAndGet();
+                                }
+                                inUse.decrementAndGet(index);
+                                semaphore.release(random, 0, 0);
+                                ops++;
+                            }
+                        }
+                    }
+                    catch (final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally
+                    {
+                        operations.addAndGet(ops);
+                        finishLatch.countDown();
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+
+            long startTime = System.nanoTime();
+            deadline[0]    = startTime + TimeUnit.SECONDS.toNanos(seconds);
+            startLatch.countDown();
+
+            int moved = 0;
+            if (addShard)
+            {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(seconds) / 2);
+                moved = shards.addShard(CoordinatorSemaphoreShard.launch("shard_" + shardCount));
+            }
+
+            finishLatch.await();
+            long elapsed = System.nanoTime() - startTime;
+
+            Map<String, Integer> distribution = shards.distribution();
+            table.row(shards.shardCount(),
+                    numResources,
+                    threads,
+                    String.format("%.0f", operations.get() * 1_000_000_000.0 / elapsed),
+                    Collections.min(distribution.values()),
+                    Collections.max(distribution.values()),
+                    moved,
+                    violations.get());
+        }
+    }
+
+    /**
+     * Shards a run starts with, and whether one more joins during it
+     */
+    private static final class Layout
+    {
+        final int shards;
+        final boolean addShard;
+
+        Layout(final int shards,
+               final boolean addShard)
+        {
+            this.shards   = shards;
+            this.addShard = addShard;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+import Semaphore.PermitBackend;
+import Semaphore.PermitStats;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Permits of one semaphore on whichever shard currently owns it.
+ *
+ * Moving the semaphore never lets more than the permit count be in use, because every
+ * permit lives in exactly one place. The semaphore is created on the new shard with no
+ * free permits; permits that are free on the old shard are moved across right away, and
+ * every release goes to the new shard, so held permits follow as their holders finish.
+ * Containers still queued on the old shard are served first: while anyone waits there,
+ * releases go to them. Once the old shard has neither waiters nor free permits it is
+ * forgotten.
+ */
+class ShardedPermitBackend implements PermitBackend
+{
+    private static final long waitSliceMs = 100;
+
+    private final String name;
+    private final int permits;
+
+    private volatile SemaphoreShard shard;
+    private volatile PermitBackend current;
+
+    // Backends on shards the semaphore moved away from that may still have waiters or free permits
+    private final CopyOnWriteArrayList<PermitBackend> retired = new CopyOnWriteArrayList<>();
+    private int generation;
+
+    public ShardedPermitBackend(final String name,
+                                final int permits,
+                                final SemaphoreShard shard)
+    {
+        this.name    = name;
+        this.permits = permits;
+        this.shard   = shard;
+        this.current = shard.open(name, permits);
+    }
+
+    @Override
+    public boolean acquire(final int count,
+                           final long timeoutMs)
+    {
+        if (timeoutMs >= 0)
+        {
+            PermitBackend backend = current;
+            boolean acquired      = backend.acquire(count, timeoutMs);
+
+            // Waiting on a shard that lost the semaphore: pass on what we leave behind
+            if (backend != current)
+            {
+                drain(backend);
+            }
+            return acquired;
+        }
+
+        // Untimed waits go in slices, so a waiter left on a shard that lost the semaphore moves on
+        while (true)
+        {
+            PermitBackend backend = current;
+            boolean acquired      = backend.acquireSlice(count, waitSliceMs);
+            if (backend != current)
+            {
+                drain(backend);
+            }
+            if (acquired)
+            {
+                return true;
+            }
+            if (Thread.currentThread().isInterrupted())
+            {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void release(final int count)
+    {
+        for (final PermitBackend old : retired)
+        {
+            if (old.hasQueuedWaiters())
+            {
+                // Serve containers that queued before the move first
+                old.release(count);
+                drain(old);
+                return;
+            }
+        }
+        releaseToCurrent(count);
+    }
+
+    @Override
+    public int availablePermits()
+    {
+        int available = current.availablePermits();
+        for (final PermitBackend old : retired)
+        {
+            available += old.availablePermits();
+        }
+        return available;
+    }
+
+    @Override
+    public boolean hasQueuedWaiters()
+    {
+        for (final PermitBackend old : retired)
+        {
+            if (old.hasQueuedWaiters())
+            {
+                return true;
+            }
+        }
+        return current.hasQueuedWaiters();
+    }
+
+    @Override
+    public boolean isRemote()
+    {
+        return current.isRemote();
+    }
+
+    /**
+     * Get the statistics of the shard that owns the semaphore now; they start over when it moves
+     */
+    @Override
+    public PermitStats getStats()
+    {
+        return current.getStats();
+    }
+
+    /**
+     * Get the shard new acquires go to
+     */
+    public SemaphoreShard getShard()
+    {
+        return shard;
+    }
+
+    /**
+     * Move the semaphore to another shard while it stays in use
+     */
+    public synchronized void moveTo(final SemaphoreShard target)
+    {
+        if (target == shard)
+        {
+            return;
+        }
+
+        // A fresh name per move, since the target may still know an earlier one; start with nothing free
+        PermitBackend next = target.open(name + "@" + (++generation), permits);
+        next.acquire(permits, -1);
+
+        PermitBackend old = current;
+        retired.add(old);
+        current = next;
+        shard   = target;
+
+        drain(old);
+    }
+
+    private void releaseToCurrent(final int count)
+    {
+        PermitBackend backend = current;
+        backend.release(count);
+
+        // Raced with a move: the permits landed on the old shard
+        if (backend != current)
+        {
+            drain(backend);
+        }
+    }
+
+    /**
+     * Move free permits off a backend that is no longer current, unless someone waits for them there
+     */
+    private void drain(final PermitBackend old)
+    {
+        while (!old.hasQueuedWaiters() && old.acquire(1, 0))
+        {
+            releaseToCurrent(1);
+        }
+        if (!old.hasQueuedWaiters() && old.availablePermits() == 0)
+        {
+            retired.remove(old);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Semaphores partitioned across coordinator shards by consistent hashing on the resource id.
+ *
+ * With one coordinator every semaphore goes through the same place; spreading them over
+ * shards lets acquire throughput grow with the shard count. When a shard is added or
+ * removed only the semaphores whose owner changes on the ring are moved, using the
+ * hand-over in {@link ShardedPermitBackend}, so containers can keep working during the
+ * rebalance. A removed shard stays open until the service is closed, because holders
+ * may still return permits to it.
+ */
+class ShardedSemaphores implements AutoCloseable
+{
+    private final ConsistentHashRing<SemaphoreShard> ring = new ConsistentHashRing<>();
+    private final ConcurrentHashMap<String, ShardedPermitBackend> semaphores = new ConcurrentHashMap<>();
+    private final List<SemaphoreShard> allShards = new ArrayList<>();
+
+    public ShardedSemaphores(final List<? extends SemaphoreShard> shards)
+    {
+        for (final SemaphoreShard shard : shards)
+        {
+            ring.add(shard.getName(), shard);
+            allShards.add(shard);
+        }
+    }
+
+    /**
+     * Get the semaphore guarding a resource, creating it on the owning shard.
+     * Takes the lock a rebalance holds, so a new semaphore is never routed by a ring being replaced.
+     */
+    public synchronized DistributedSemaphore semaphore(final String resourceId,
+                                                       final int permits)
+    {
+        String name                  = "sem_" + resourceId;
+        ShardedPermitBackend backend = semaphores.computeIfAbsent(resourceId,
+                id -> new ShardedPermitBackend(name, permits, ring.route(id)));
+        return new DistributedSemaphore(permits, name, backend);
+    }
+
+    /**
+     * Add a shard and move the semaphores it now owns onto it
+     * @return the number of semaphores moved
+     */
+    public synchronized int addShard(final SemaphoreShard shard)
+    {
+        ring.add(shard.getName(), shard);
+        allShards.add(shard);
+        return rebalance();
+    }
+
+    /**
+     * Take a shard off the ring and move its semaphores to their new owners
+     * @return the number of semaphores moved
+     */
+    public synchronized int removeShard(final SemaphoreShard shard)
+    {
+        ring.remove(shard.getName());
+        return rebalance();
+    }
+
+    /**
+     * Count the semaphores owned by each shard on the ring
+     */
+    public synchronized Map<String, Integer> distribution()
+    {
+        Map<String, Integer> counts = new HashMap<>();
+        for (final SemaphoreShard shard : ring.shards())
+        {
+            counts.put(shard.getName(), 0);
+        }
+        for (final ShardedPermitBackend backend : semaphores.values())
+        {
+            counts.merge(backend.getShard().getName(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    public int shardCount()
+    {
+        return ring.size();
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        for (final SemaphoreShard shard : allShards)
+        {
+            shard.close();
+        }
+        allShards.clear();
+    }
+
+    private int rebalance()
+    {
+        int moved = 0;
+        for (final Map.Entry<String, ShardedPermitBackend> entry : semaphores.entrySet())
+        {
+            SemaphoreShard owner = ring.route(entry.getKey());
+            if (entry.getValue().getShard() != owner)
+            {
+                entry.getValue().moveTo(owner);
+                moved++;
+            }
+        }
+        return moved;
+    }
+}
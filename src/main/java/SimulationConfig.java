@@ -1,3 +1,7 @@
+import Semaphore.ArrivalProcess;
+import Semaphore.ExecutionMode;
+import Semaphore.QueuePolicy;
+
 /**
  * Configuration parameters for the simulation
  */
@@ -14,6 +18,40 @@ public class SimulationConfig
     int processingTimeStdDevMs    = 20;  // Standard deviation for processing time
     int requestRateMeanMs         = 200;      // Mean time between requests from a client
     int requestRateStdDevMs       = 100;    // Standard deviation for request rate
+    int batchSize                 = 1;       // Operations per access; >1 takes that many permits in one round trip
+    double readRatio              = 0.0;     // Share of accesses that are reads; 0 keeps one permit per access
+    int maxConcurrentReads        = 12;      // Permits per resource when reads and writes are told apart
+    int writePermits              = 0;       // Permits a write takes, 0 takes them all (exclusive writes)
+    int transactionSize           = 1;       // Resources a container takes at once; >1 runs all-or-nothing transactions
+    TransactionStrategy transactionStrategy = TransactionStrategy.ORDERED;   // How transactions avoid deadlock
+    int backoffBaseMs             = 5;       // First TRY_BACKOFF retry delay, doubled after every abort
+    int backoffMaxMs              = 160;     // Cap on the TRY_BACKOFF retry delay
+    boolean enableLeases          = false;   // Keep permits as client-side leases between accesses (sync only)
+    int leaseTtlMs                = 500;     // How long an unused lease stays valid
+    int leaseCheckIntervalMs      = 10;      // How often leases are renewed, expired or revoked
+    double resourceAffinity       = 0.0;     // Chance a container picks the resource it used last again
+    boolean remoteCoordinator     = false;   // Keep semaphores in a coordinator process over loopback TCP
+    int coordinatorPort           = 0;       // Port of a running coordinator, 0 launches one
+    int coordinatorShards         = 1;       // Coordinators semaphores are spread over by resource id
+    String syncStrategy           = "distributed";   // How permits are kept: distributed, jdk-fair, jdk-unfair, stamped-lock, spin or none
+    QueuePolicy queuePolicy       = QueuePolicy.FIFO;   // Order queued containers get permits in (in-process semaphores)
+    int highPriorityContainers    = 0;       // Containers 0..n-1 are latency-sensitive
+    int highPriorityWeight        = 4;       // Their share under WEIGHTED_FAIR, other containers weigh 1
+    ArrivalProcess arrivalProcess = ArrivalProcess.CLOSED;   // CONSTANT or POISSON send requests open loop
+    double targetOpsPerSecond     = 0;       // Open-loop arrival rate over all containers
     boolean enableLogging         = true;     // Enable detailed logging
     String metricsOutputFile      = "sync_off_simulation_metrics.csv";
+    boolean binaryMetrics         = false;   // Save metrics in the compact binary format instead of CSV
+    boolean streamMetrics         = false;   // Stream CSV logs to disk during the run instead of holding them
+    int metricsFlushIntervalMs    = 1000;    // How often streamed logs are flushed
+    int timeSeriesWindowMs        = 1000;    // Width of each window in the metrics time series
+    int timeSeriesWindows         = 600;     // Windows kept; older ones are dropped once the run is longer
+    boolean perContainerLatency   = false;   // Also keep latency percentiles per container (about 14 KB each)
+    boolean exposeMBeans          = false;   // Register resources, semaphores and metrics as JMX MBeans while running
+    int metricsHttpPort           = -1;      // Serve live metrics as text on this loopback port, 0 picks one, -1 off
+    String flightRecording        = null;    // Record the run with Flight Recorder into this .jfr file, null off
+    boolean discreteEvent         = false;   // Run on the virtual-clock event engine instead of threads
+    long randomSeed               = 0;       // Base seed for container RNGs, 0 seeds from the wall clock
+    ExecutionMode executionMode   = ExecutionMode.PLATFORM;   // Thread model used to run containers
+    int carrierThreads            = Runtime.getRuntime().availableProcessors(); // Carrier cap for VIRTUAL_BOUNDED
 }
@@ -0,0 +1,39 @@
+/**
+ * Class representing one scheduled event in the discrete-event simulation
+ */
+class SimulationEvent implements Comparable<SimulationEvent>
+{
+    static final int REQUEST           = 0;  // Container issues its next request
+    static final int SEMAPHORE_ARRIVE  = 1;  // Request reaches the semaphore (or the resource when unsynchronized)
+    static final int ACQUIRE_TIMEOUT   = 2;  // Queued acquire gives up
+    static final int PROCESSING_DONE   = 3;  // Container finished using the resource
+    static final int RELEASE_ARRIVE    = 4;  // Release reaches the semaphore
+    static final int RESPONSE_ARRIVE   = 5;  // Unsynchronized access completes
+
+    final long timeMs;
+    final long sequence;
+    final int type;
+    final int containerId;
+    final int attempt;
+
+    public SimulationEvent(final long timeMs,
+                           final long sequence,
+                           final int type,
+                           final int containerId,
+                           final int attempt)
+    {
+        this.timeMs      = timeMs;
+        this.sequence    = sequence;
+        this.type        = type;
+        this.containerId = containerId;
+        this.attempt     = attempt;
+    }
+
+    @Override
+    public int compareTo(final SimulationEvent other)
+    {
+        // Ties are broken by scheduling order so runs are deterministic
+        int byTime = Long.compare(timeMs, other.timeMs);
+        return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,98 @@
+import Semaphore.ReportRunner;
+import Semaphore.SimulationResults;
+import Semaphore.SyncStrategy;
+import Semaphore.WorkloadSimulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the same workloads against every synchronization strategy and prints one table.
+ *
+ * Each strategy drives a threaded cloud simulation, where every acquire and release also
+ * pays the simulated network round trip, and a workload scenario from the Semaphore
+ * package, where clients hit one shared resource directly. The "none" strategy never
+ * blocks, so its conflicts show what the others prevent.
+ *
+ * Usage: java StrategyComparison [strategies=distributed,jdk-fair,...] [scenario=burst_test]
+ *        [containers=20] [resources=5] [permits=3] [seconds=10]
+ */
+public class StrategyComparison
+{
+    public static void main(String[] args)
+    {
+        Map<String, String> options = ReportRunner.options(args);
+
+        SimulationConfig defaults = new SimulationConfig();
+        String scenario           = options.getOrDefault("scenario", "burst_test");
+        int containers            = Integer.parseInt(options.getOrDefault("containers", String.valueOf(defaults.numContainers)));
+        int numResources          = Integer.parseInt(options.getOrDefault("resources", String.valueOf(defaults.numResources)));
+        int permits               = Integer.parseInt(options.getOrDefault("permits", String.valueOf(defaults.maxConcurrentAccess)));
+        int seconds               = Integer.parseInt(options.getOrDefault("seconds", "10"));
+
+        List<SyncStrategy> strategies = new ArrayList<>();
+        if (options.containsKey("strategies"))
+        {
+            for (final String name : options.get("strategies").split(","))
+            {
+                strategies.add(SyncStrategy.forName(name.trim()));
+            }
+        }
+        else
+        {
+            strategies.addAll(SyncStrategy.available());
+        }
+
+        // The first run in a JVM pays for class loading and compilation; keep that out of the table
+        System.out.println("\nWarming up with " + strategies.get(0).getName());
+        runCloud(strategies.get(0), containers, numResources, permits, Math.min(seconds, 2));
+
+        ReportRunner.run("Synchronization Strategies",
+                "Strategy,Simulation,Operations,ThroughputPerSecond,P99Ms,Conflicts,Timeouts",
+                strategies,
+                (table, strategy) ->
+                {
+                    System.out.println("\nRunning " + strategy.getName() + " on the cloud simulation and " + scenario);
+
+                    MetricsCollector metrics = runCloud(strategy, containers, numResources, permits, seconds);
+                    table.row(strategy.getName(),
+                            "cloud",
+                            metrics.getTotalRequests(),
+                            String.format("%.1f", metrics.getThroughputPerSecond()),
+                            metrics.getP99TotalTimeMs(),
+                            metrics.getConflictCount(),
+                            metrics.getTimeoutCount());
+
+                    SimulationResults results = WorkloadSimulation.runScenario(scenario, strategy);
+                    table.row(strategy.getName(),
+                            scenario,
+                            results.getTotalOperations(),
+                            String.format("%.1f", results.getThroughputPerSecond()),
+                            results.getResponseTimePercentile(99),
+                            results.getConflictCount(),
+                            0);
+                });
+    }
+
+    /**
+     * Run the threaded cloud simulation with every container synchronizing through the strategy
+     */
+    private static MetricsCollector runCloud(final SyncStrategy strategy,
+                                             final int containers,
+                                             final int numResources,
+                                             final int permits,
+                                             final int seconds)
+    {
+        SimulationConfig config      = new SimulationConfig();
+        config.numContainers         = containers;
+        config.numResources          = numResources;
+        config.maxConcurrentAccess   = permits;
+        config.simulationTimeSeconds = seconds;
+        config.enableSynchronization = true;
+        config.syncStrategy          = strategy.getName();
+        config.enableLogging         = false;
+        config.metricsOutputFile     = "strategy_" + strategy.getName() + "_metrics.csv";
+        return CloudSimulation.simulate(config);
+    }
+}
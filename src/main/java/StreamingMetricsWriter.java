@@ -0,0 +1,325 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer that streams recorded events to disk while the simulation runs.
+ *
+ * Every flush interval it swaps each stripe's buffers for empty ones and appends the
+ * drained rows as CSV to part files next to the metrics file, one per log section.
+ * Rows are encoded straight into a reused direct buffer, so memory stays bounded by
+ * what is recorded between two flushes no matter how long the run lasts. When the run
+ * ends, {@link MetricsCollector#saveToFile} splices the part files into the usual layout.
+ *
+ * If a write fails, the part files are cut back to the end of the last complete flush and
+ * streaming stops: the rows of the failed flush stay in the stripes' drained buffers and
+ * later rows stay in memory, so the normal save path still writes every row.
+ */
+class StreamingMetricsWriter implements Runnable
+{
+    private static final int bufferSize = 64 * 1024;
+
+    private final MetricsStripe[] stripes;
+    private final ResourceIdTable resourceIds;
+    private final long flushIntervalNanos;
+
+    private final Path accessPart;
+    private final Path conflictPart;
+    private final Path timeoutPart;
+    private final FileChannel accessChannel;
+    private final FileChannel conflictChannel;
+    private final FileChannel timeoutChannel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+    private byte[][] resourceNames  = new byte[0][];
+
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+    private volatile boolean partsIncomplete;
+
+    public StreamingMetricsWriter(final String filename,
+                                  final MetricsStripe[] stripes,
+                                  final ResourceIdTable resourceIds,
+                                  final int flushIntervalMs) throws IOException
+    {
+        this.stripes            = stripes;
+        this.resourceIds        = resourceIds;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+
+        accessPart      = Paths.get(filename + ".access.part");
+        conflictPart    = Paths.get(filename + ".conflicts.part");
+        timeoutPart     = Paths.get(filename + ".timeouts.part");
+        accessChannel   = open(accessPart);
+        conflictChannel = open(conflictPart);
+        timeoutChannel  = open(timeoutPart);
+
+        thread = new Thread(this, "metrics-writer");
+        thread.setDaemon(true);
+    }
+
+    public void start()
+    {
+        thread.start();
+    }
+
+    @Override
+    public void run()
+    {
+        while (running)
+        {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            drain();
+        }
+    }
+
+    /**
+     * Stop the background thread and write out everything recorded so far
+     */
+    public void finish()
+    {
+        running = false;
+        LockSupport.unpark(thread);
+        try
+        {
+            thread.join();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+    }
+
+    /**
+     * Copy the streamed rows of each section to the target, then remove the part files
+     */
+    public void transferAccessLogs(final WritableByteChannel target) throws IOException
+    {
+        transfer(accessChannel, target);
+    }
+
+    public void transferConflictLogs(final WritableByteChannel target) throws IOException
+    {
+        transfer(conflictChannel, target);
+    }
+
+    public void transferTimeoutLogs(final WritableByteChannel target) throws IOException
+    {
+        transfer(timeoutChannel, target);
+    }
+
+    public void close() throws IOException
+    {
+        accessChannel.close();
+        conflictChannel.close();
+        timeoutChannel.close();
+        Files.deleteIfExists(accessPart);
+        Files.deleteIfExists(conflictPart);
+        Files.deleteIfExists(timeoutPart);
+    }
+
+    /**
+     * Get the write error that stopped streaming, if any happened in the background
+     */
+    public IOException getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Check whether the part files could not be cut back after a failure, so they may end mid-row
+     */
+    public boolean hasIncompleteParts()
+    {
+        return partsIncomplete;
+    }
+
+    /**
+     * Swap every stripe's buffers and write out the drained rows. The drained buffers are only
+     * emptied once the whole flush is written; after a failure nothing is swapped again.
+     */
+    private synchronized void drain()
+    {
+        if (failure != null)
+        {
+            return;
+        }
+
+        long accessSize   = 0;
+        long conflictSize = 0;
+        long timeoutSize  = 0;
+        try
+        {
+            accessSize   = accessChannel.size();
+            conflictSize = conflictChannel.size();
+            timeoutSize  = timeoutChannel.size();
+            for (final MetricsStripe stripe : stripes)
+            {
+                stripe.lock.lock();
+                try
+                {
+                    stripe.swapBuffers();
+                }
+                finally
+                {
+                    stripe.lock.unlock();
+                }
+
+                writeAccessLogs(stripe.drainedAccessLogs);
+                writeConflictLogs(stripe.drainedConflictLogs, conflictChannel);
+                writeConflictLogs(stripe.drainedTimeoutLogs, timeoutChannel);
+            }
+        }
+        catch (final IOException e)
+        {
+            failure = e;
+            buffer.clear();
+            System.err.println("Error streaming metrics to file, keeping the rest in memory: " + e.getMessage());
+
+            // Drop whatever part of this flush reached the files; its rows are still in the drained buffers
+            try
+            {
+                accessChannel.truncate(accessSize);
+                conflictChannel.truncate(conflictSize);
+                timeoutChannel.truncate(timeoutSize);
+            }
+            catch (final IOException truncateError)
+            {
+                partsIncomplete = true;
+            }
+            return;
+        }
+
+        for (final MetricsStripe stripe : stripes)
+        {
+            stripe.drainedAccessLogs.clear();
+            stripe.drainedConflictLogs.clear();
+            stripe.drainedTimeoutLogs.clear();
+        }
+    }
+
+    private void writeAccessLogs(final AccessLogStore logs) throws IOException
+    {
+        for (int row = 0; row < logs.size(); row++)
+        {
+            // Longest row: 6 numbers of up to 20 chars, an id, separators and newline
+            byte[] name = resourceName(logs.resourceIndex(row));
+            ensureSpace(accessChannel, 130 + name.length);
+            putNumber(logs.containerId(row));
+            buffer.put((byte)',');
+            buffer.put(name);
+            buffer.put((byte)',');
+            putNumber(logs.acquireTime(row));
+            buffer.put((byte)',');
+            putNumber(logs.processingTime(row));
+            buffer.put((byte)',');
+            putNumber(logs.totalTime(row));
+            buffer.put((byte)',');
+            putNumber(logs.startTime(row));
+            buffer.put((byte)'\n');
+        }
+        flush(accessChannel);
+    }
+
+    private void writeConflictLogs(final ConflictLogStore logs,
+                                   final FileChannel channel) throws IOException
+    {
+        for (int row = 0; row < logs.size(); row++)
+        {
+            byte[] name = resourceName(logs.resourceIndex(row));
+            ensureSpace(channel, 24 + name.length);
+            putNumber(logs.containerId(row));
+            buffer.put((byte)',');
+            buffer.put(name);
+            buffer.put((byte)'\n');
+        }
+        flush(channel);
+    }
+
+    private byte[] resourceName(final int index)
+    {
+        if (index >= resourceNames.length)
+        {
+            byte[][] grown = new byte[resourceIds.size()][];
+            System.arraycopy(resourceNames, 0, grown, 0, resourceNames.length);
+            for (int i = resourceNames.length; i < grown.length; i++)
+            {
+                grown[i] = resourceIds.name(i).getBytes(StandardCharsets.US_ASCII);
+            }
+            resourceNames = grown;
+        }
+        return resourceNames[index];
+    }
+
+    private void putNumber(final long value)
+    {
+        if (value < 0)
+        {
+            buffer.put((byte)'-');
+        }
+
+        // Write the digits in place without building a String
+        long remaining = Math.abs(value);
+        int start      = buffer.position();
+        do
+        {
+            buffer.put((byte)('0' + remaining % 10));
+            remaining /= 10;
+        } while (remaining > 0);
+
+        for (int left = start, right = buffer.position() - 1; left < right; left++, right--)
+        {
+            byte digit = buffer.get(left);
+            buffer.put(left, buffer.get(right));
+            buffer.put(right, digit);
+        }
+    }
+
+    private void ensureSpace(final FileChannel channel,
+                             final int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            flush(channel);
+        }
+    }
+
+    private void flush(final FileChannel channel) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void transfer(final FileChannel source,
+                                 final WritableByteChannel target) throws IOException
+    {
+        long size     = source.size();
+        long position = 0;
+        while (position < size)
+        {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    private static FileChannel open(final Path path) throws IOException
+    {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
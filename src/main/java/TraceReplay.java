@@ -0,0 +1,154 @@
+import Semaphore.ExecutionMode;
+import Semaphore.ReportRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a recorded access log against fresh resources, at recorded speed or faster.
+ *
+ * The trace is the "# Access Logs" section of a metrics file, a binary metrics log, or a
+ * production trace with the same columns. Replay is open loop: each request is issued at its recorded start time
+ * divided by the speed-up, whether or not earlier requests have finished, so a speed-up
+ * shows how the same traffic would behave if it arrived N times as fast. Each request
+ * keeps its recorded processing time; network latency and semaphore waits are simulated
+ * as in a normal run. Every replay saves its own metrics file, which is itself a trace.
+ *
+ * Usage: java TraceReplay [trace=file] [speed=1,10] [sync=true,false] [permits=n]
+ *        [think=200] [seed=1] [mode=VIRTUAL] [out=prefix]
+ */
+public class TraceReplay
+{
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        Map<String, String> options = ReportRunner.options(args);
+
+        String traceFile   = options.getOrDefault("trace", "Results/sync_on_simulation_metrics.csv");
+        String[] speeds    = options.getOrDefault("speed", "1,10").split(",");
+        String[] syncs     = options.getOrDefault("sync", "true,false").split(",");
+        int thinkTimeMs    = Integer.parseInt(options.getOrDefault("think", "200"));
+        long seed          = Long.parseLong(options.getOrDefault("seed", "1"));
+        ExecutionMode mode = ExecutionMode.valueOf(options.getOrDefault("mode", "VIRTUAL"));
+        String prefix      = options.getOrDefault("out", "replay");
+
+        AccessTrace trace = AccessTrace.load(traceFile, thinkTimeMs);
+        int permits       = Integer.parseInt(options.getOrDefault("permits",
+                String.valueOf(trace.maxConcurrentAccess > 0 ? trace.maxConcurrentAccess : 3)));
+        System.out.println("Loaded " + trace.size() + " requests spanning " + trace.spanMs() + " ms from " + traceFile +
+                (trace.rebuilt ? " (start times rebuilt with " + thinkTimeMs + " ms think time)" : ""));
+
+        List<Replay> replays = new ArrayList<>();
+        for (final String speed : speeds)
+        {
+            for (final String sync : syncs)
+            {
+                SimulationConfig config      = new SimulationConfig();
+                config.maxConcurrentAccess   = permits;
+                config.enableSynchronization = Boolean.parseBoolean(sync.trim());
+                config.executionMode         = mode;
+                config.metricsOutputFile     = prefix + "_" + speed.trim() + "x_sync_" +
+                        (config.enableSynchronization ? "on" : "off") + "_metrics.csv";
+                replays.add(new Replay(speed.trim(), config));
+            }
+        }
+
+        ReportRunner.run("Trace Replay",
+                "Speed,Sync,Permits,Requests,Successful,Conflicts,Timeouts," +
+                        "AvgAcquireMs,P99AcquireMs,AvgTotalMs,P99TotalMs,ReplayMs,MaxDispatchLagMs",
+                replays,
+                (table, run) ->
+                {
+                    SimulationConfig config  = run.config;
+                    MetricsCollector metrics = new MetricsCollector();
+                    long[] timing            = replay(trace, Double.parseDouble(run.speed), seed, config, metrics);
+                    metrics.saveToFile(config.metricsOutputFile, config);
+
+                    LatencyStats latency = metrics.getOverallLatency();
+                    table.row(run.speed,
+                            config.enableSynchronization,
+                            permits,
+                            metrics.getTotalRequests(),
+                            metrics.getSuccessfulRequests(),
+                            metrics.getConflictCount(),
+                            metrics.getTimeoutCount(),
+                            String.format("%.1f", latency.acquireTime.getMean()),
+                            latency.acquireTime.valueAtPercentile(99),
+                            String.format("%.1f", latency.totalTime.getMean()),
+                            latency.totalTime.valueAtPercentile(99),
+                            timing[0],
+                            timing[1]);
+                });
+    }
+
+    /**
+     * Issue every request of the trace at its scaled start time and wait for all of them
+     * @return the replay's wall time and the furthest any request was issued behind schedule, in ms
+     */
+    private static long[] replay(final AccessTrace trace,
+                                 final double speedUp,
+                                 final long seed,
+                                 final SimulationConfig config,
+                                 final MetricsCollector metrics) throws InterruptedException
+    {
+        Map<String, CloudResource> resources = new HashMap<>();
+        for (int i = 0; i < trace.size(); i++)
+        {
+            resources.computeIfAbsent(trace.resourceIds[i], id -> new CloudResource(id, config.maxConcurrentAccess));
+        }
+
+        ExecutorService executor = config.executionMode.newExecutor(config.carrierThreads);
+        long firstStart          = trace.size() > 0 ? trace.startTimes[0] : 0;
+        long maxLagNanos         = 0;
+        long replayStart         = System.nanoTime();
+        for (int i = 0; i < trace.size(); i++)
+        {
+            long due = replayStart + (long)((trace.startTimes[i] - firstStart) * 1_000_000 / speedUp);
+            long now = System.nanoTime();
+            while (now < due)
+            {
+                LockSupport.parkNanos(due - now);
+                now = System.nanoTime();
+            }
+            maxLagNanos = Math.max(maxLagNanos, now - due);
+
+            int request            = i;
+            CloudResource resource = resources.get(trace.resourceIds[i]);
+            executor.execute(() ->
+            {
+                // Seeded per request so a replay draws the same latencies whatever the thread timing
+                Random random = new Random(seed + request);
+                resource.replayAccess(trace.containerIds[request], trace.processingTimes[request],
+                        config.enableSynchronization, random, config, metrics);
+            });
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        return new long[] {
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart),
+                TimeUnit.NANOSECONDS.toMillis(maxLagNanos)};
+    }
+
+    /**
+     * One replay: the speed-up as given on the command line and the configuration to replay with
+     */
+    private static final class Replay
+    {
+        final String speed;
+        final SimulationConfig config;
+
+        Replay(final String speed,
+               final SimulationConfig config)
+        {
+            this.speed  = speed;
+            this.config = config;
+        }
+    }
+}
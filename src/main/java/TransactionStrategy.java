@@ -0,0 +1,19 @@
+/**
+ * How a container takes permits on several resources at once without deadlocking
+ */
+enum TransactionStrategy
+{
+    /**
+     * Acquire in one global order (by resource id), waiting for each permit.
+     * No two containers can each hold what the other waits for, so there is no
+     * deadlock, but permits already taken are held while waiting for the rest.
+     */
+    ORDERED,
+
+    /**
+     * Try every permit without waiting; if one is busy, give back all taken so far
+     * and retry after a randomised exponential backoff. Nothing is held while
+     * waiting, at the cost of aborted attempts.
+     */
+    TRY_BACKOFF
+}
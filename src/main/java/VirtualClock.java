@@ -0,0 +1,65 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock driven by the discrete-event scheduler instead of the wall clock.
+ * Time only moves when the simulation advances it.
+ */
+class VirtualClock extends Clock
+{
+    private final Instant origin;
+    private long nowMs;
+
+    public VirtualClock()
+    {
+        this.origin = Instant.EPOCH;
+        this.nowMs  = 0;
+    }
+
+    /**
+     * Move the clock forward to the given simulated time
+     */
+    public void advanceTo(final long timeMs)
+    {
+        if (timeMs < nowMs)
+        {
+            throw new IllegalArgumentException("Virtual time cannot move backwards: " + timeMs + " < " + nowMs);
+        }
+        nowMs = timeMs;
+    }
+
+    /**
+     * Get the simulated time in milliseconds since the start of the run
+     */
+    public long nowMs()
+    {
+        return nowMs;
+    }
+
+    @Override
+    public long millis()
+    {
+        return origin.toEpochMilli() + nowMs;
+    }
+
+    @Override
+    public Instant instant()
+    {
+        return origin.plusMillis(nowMs);
+    }
+
+    @Override
+    public ZoneId getZone()
+    {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(final ZoneId zone)
+    {
+        // The simulation only ever needs UTC instants
+        return this;
+    }
+}
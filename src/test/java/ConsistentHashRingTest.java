@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest
+{
+    private static final int keys = 20_000;
+
+    @Test
+    void addingAShardMovesAboutItsShareOfKeysAndOnlyToIt()
+    {
+        ConsistentHashRing<String> ring = ring(4);
+        Map<String, String> before      = owners(ring);
+
+        ring.add("shard_4", "shard_4");
+        int moved = 0;
+        for (final Map.Entry<String, String> entry : before.entrySet())
+        {
+            String owner = ring.route(entry.getKey());
+            if (!owner.equals(entry.getValue()))
+            {
+                assertEquals("shard_4", owner, "A key moved between shards that were already there");
+                moved++;
+            }
+        }
+
+        // The new shard should take about 1/5 of the keys
+        double share = (double)moved / keys;
+        assertTrue(share > 0.12 && share < 0.28, "Moved " + share + " of the keys");
+    }
+
+    @Test
+    void removingAShardOnlyMovesItsOwnKeys()
+    {
+        ConsistentHashRing<String> ring = ring(5);
+        Map<String, String> before      = owners(ring);
+
+        ring.remove("shard_2");
+        for (final Map.Entry<String, String> entry : before.entrySet())
+        {
+            if (!entry.getValue().equals("shard_2"))
+            {
+                assertEquals(entry.getValue(), ring.route(entry.getKey()));
+            }
+        }
+    }
+
+    @Test
+    void keysSpreadEvenlyOverShards()
+    {
+        ConsistentHashRing<String> ring = ring(4);
+        Map<String, Integer> counts     = new HashMap<>();
+        for (final String owner : owners(ring).values())
+        {
+            counts.merge(owner, 1, Integer::sum);
+        }
+        for (final int count : counts.values())
+        {
+            assertTrue(count > keys / 4 * 0.75 && count < keys / 4 * 1.25, "Uneven shard with " + count + " keys");
+        }
+    }
+
+    @Test
+    void emptyRingAndDuplicateShardsAreRejected()
+    {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        assertThrows(IllegalStateException.class, () -> ring.route("resource_1"));
+        ring.add("shard_0", "shard_0");
+        assertThrows(IllegalArgumentException.class, () -> ring.add("shard_0", "shard_0"));
+    }
+
+    private static ConsistentHashRing<String> ring(final int shards)
+    {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>();
+        for (int i = 0; i < shards; i++)
+        {
+            ring.add("shard_" + i, "shard_" + i);
+        }
+        return ring;
+    }
+
+    private static Map<String, String> owners(final ConsistentHashRing<String> ring)
+    {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < keys; i++)
+        {
+            String key = "resource_" + i;
+            owners.put(key, ring.route(key));
+        }
+        return owners;
+    }
+}
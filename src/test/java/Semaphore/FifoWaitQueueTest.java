@@ -0,0 +1,53 @@
+package Semaphore;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FifoWaitQueueTest
+{
+    @Test
+    void servesInArrivalOrderWhateverThePriority()
+    {
+        FifoWaitQueue queue = new FifoWaitQueue();
+        PermitWaiter first  = waiter(1, "a", 0);
+        PermitWaiter second = waiter(4, "b", 9);
+        PermitWaiter third  = waiter(1, "a", 5);
+        queue.add(first);
+        queue.add(second);
+        queue.add(third);
+
+        assertSame(first, queue.peek());
+        queue.remove(first, true);
+        assertSame(second, queue.peek());
+    }
+
+    @Test
+    void waiterGivingUpLeavesTheOthersInOrder()
+    {
+        FifoWaitQueue queue = new FifoWaitQueue();
+        PermitWaiter first  = waiter(1, "a", 0);
+        PermitWaiter second = waiter(1, "b", 0);
+        PermitWaiter third  = waiter(1, "c", 0);
+        queue.add(first);
+        queue.add(second);
+        queue.add(third);
+
+        queue.remove(second, false);
+        assertSame(first, queue.peek());
+        queue.remove(first, true);
+        assertSame(third, queue.peek());
+        queue.remove(third, true);
+        assertNull(queue.peek());
+        assertTrue(queue.isEmpty());
+    }
+
+    static PermitWaiter waiter(final int count,
+                               final String tenant,
+                               final int priority)
+    {
+        return new PermitWaiter(Thread.currentThread(), count, tenant, priority);
+    }
+}
@@ -0,0 +1,177 @@
+package Semaphore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PermitEngineTest
+{
+    @Test
+    void concurrentTimeoutsAndReleasesKeepEveryPermit() throws InterruptedException
+    {
+        PermitStress.run(new FifoWaitQueue());
+    }
+
+    @Test
+    void largeRequestIsNotStarvedBySingles() throws InterruptedException
+    {
+        PermitEngine engine = new PermitEngine(4);
+        AtomicBoolean stop  = new AtomicBoolean(false);
+
+        List<Thread> singles = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            Thread single = new Thread(() ->
+            {
+                while (!stop.get())
+                {
+                    if (engine.acquire(1, 100))
+                    {
+                        LockSupport.parkNanos(1_000_000);
+                        engine.release(1);
+                    }
+                }
+            });
+            singles.add(single);
+            single.start();
+        }
+        Thread.sleep(50);
+
+        // Arrivals cannot barge past a queued request, so the holders drain and it gets all four
+        boolean acquired = engine.acquire(4, 2_000);
+        stop.set(true);
+        if (acquired)
+        {
+            engine.release(4);
+        }
+        for (final Thread single : singles)
+        {
+            single.join(5_000);
+        }
+
+        assertTrue(acquired, "A request for every permit starved behind single-permit callers");
+        assertEquals(4, engine.availablePermits());
+    }
+
+    @Test
+    void multiPermitGrantPassesLeftoverPermitsOn() throws InterruptedException
+    {
+        PermitEngine engine = new PermitEngine(0);
+        Waiter pair         = Waiter.start(engine, 2, 5_000);
+        awaitQueueLength(engine, 1);
+        Waiter single       = Waiter.start(engine, 1, 5_000);
+        awaitQueueLength(engine, 2);
+
+        // One release wakes only the head; it must hand the permit it did not need to the next waiter
+        engine.release(3);
+
+        assertTrue(pair.await());
+        assertTrue(single.await());
+        assertEquals(0, engine.availablePermits());
+        assertFalse(engine.hasQueuedWaiters());
+    }
+
+    @Test
+    void headGivingUpPassesPermitsToTheNextWaiter() throws InterruptedException
+    {
+        PermitEngine engine = new PermitEngine(0);
+        Waiter pair         = Waiter.start(engine, 2, 100);
+        awaitQueueLength(engine, 1);
+        Waiter single       = Waiter.start(engine, 1, 5_000);
+        awaitQueueLength(engine, 2);
+
+        // Not enough for the head, and the single may not overtake it until it times out
+        engine.release(1);
+
+        assertFalse(pair.await());
+        assertTrue(single.await());
+        assertEquals(0, engine.availablePermits());
+        assertEquals(1, engine.getStats().getTimeouts());
+    }
+
+    @Test
+    void shrinkingBelowHeldPermitsMakesAcquiresWait() throws InterruptedException
+    {
+        PermitEngine engine = new PermitEngine(2);
+        assertTrue(engine.acquire(2, 0));
+
+        engine.adjustPermits(-1);
+        assertEquals(-1, engine.availablePermits());
+
+        Waiter waiter = Waiter.start(engine, 1, 5_000);
+        awaitQueueLength(engine, 1);
+
+        engine.release(1);
+        assertEquals(0, engine.availablePermits());
+        Thread.sleep(50);
+        assertTrue(engine.hasQueuedWaiters(), "Granted a permit the shrunk engine does not have");
+
+        engine.release(1);
+        assertTrue(waiter.await());
+        assertEquals(0, engine.availablePermits());
+    }
+
+    @Test
+    void statsCountEveryCallOnce()
+    {
+        PermitEngine engine = new PermitEngine(2);
+        assertTrue(engine.acquire(2, 0));
+        assertFalse(engine.acquire(1, 0));
+        engine.release(2);
+
+        PermitStats stats = engine.getStats();
+        assertEquals(2, stats.getAcquireCalls());
+        assertEquals(1, stats.getReleaseCalls());
+        assertEquals(1, stats.getAcquires());
+    }
+
+    private static void awaitQueueLength(final PermitEngine engine,
+                                         final int length) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (engine.getStats().getQueueLength() < length)
+        {
+            assertTrue(System.nanoTime() < deadline, "Waiter never queued");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * An acquire running on its own thread
+     */
+    private static final class Waiter
+    {
+        private final Thread thread;
+        private volatile boolean acquired;
+
+        private Waiter(final PermitEngine engine,
+                       final int count,
+                       final long timeoutMs)
+        {
+            thread = new Thread(() -> acquired = engine.acquire(count, timeoutMs));
+        }
+
+        static Waiter start(final PermitEngine engine,
+                            final int count,
+                            final long timeoutMs)
+        {
+            Waiter waiter = new Waiter(engine, count, timeoutMs);
+            waiter.thread.start();
+            return waiter;
+        }
+
+        boolean await() throws InterruptedException
+        {
+            thread.join(10_000);
+            assertFalse(thread.isAlive(), "Acquire never returned");
+            return acquired;
+        }
+    }
+}
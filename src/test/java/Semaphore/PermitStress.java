@@ -0,0 +1,77 @@
+package Semaphore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers an engine with short timed acquires of one or two permits and checks that no
+ * permit is ever handed out twice or lost, whichever queue orders the waiters
+ */
+final class PermitStress
+{
+    private static final int permits    = 3;
+    private static final int threads    = 24;
+    private static final int iterations = 400;
+
+    private PermitStress()
+    {
+    }
+
+    static void run(final WaitQueue waiters) throws InterruptedException
+    {
+        PermitEngine engine      = new PermitEngine(permits, waiters);
+        AtomicInteger inUse      = new AtomicInteger(0);
+        AtomicBoolean overbooked = new AtomicBoolean(false);
+        AtomicInteger granted    = new AtomicInteger(0);
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            String tenant = "tenant_" + (t % 4);
+            int priority  = t % 2;
+            Thread worker = new Thread(() ->
+            {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < iterations; i++)
+                {
+                    int count = 1 + random.nextInt(2);
+                    if (!engine.acquire(count, random.nextInt(3), tenant, priority))
+                    {
+                        continue;
+                    }
+                    granted.incrementAndGet();
+                    if (inUse.addAndGet(count) > permits)
+                    {
+                        overbooked.set(true);
+                    }
+                    LockSupport.parkNanos(50_000);
+                    inUse.addAndGet(-count);
+                    engine.release(count);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (final Thread worker : workers)
+        {
+            worker.join(60_000);
+            assertFalse(worker.isAlive(), "Worker still waiting for permits");
+        }
+
+        PermitStats stats = engine.getStats();
+        assertFalse(overbooked.get(), "More permits in use than the engine holds");
+        assertEquals(permits, engine.availablePermits(), "Permits lost or duplicated");
+        assertFalse(engine.hasQueuedWaiters());
+        assertEquals(0, stats.getQueueLength());
+        assertEquals(granted.get(), stats.getAcquires());
+        assertTrue(stats.getTimeouts() > 0, "No acquire timed out, so abandonment was not exercised");
+    }
+}
@@ -0,0 +1,36 @@
+package Semaphore;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriorityWaitQueueTest
+{
+    @Test
+    void servesHigherClassesFirstAndArrivalOrderWithinAClass()
+    {
+        PriorityWaitQueue queue = new PriorityWaitQueue();
+        PermitWaiter lowFirst   = FifoWaitQueueTest.waiter(1, "a", 0);
+        PermitWaiter highFirst  = FifoWaitQueueTest.waiter(1, "b", 1);
+        PermitWaiter lowSecond  = FifoWaitQueueTest.waiter(1, "c", 0);
+        PermitWaiter highSecond = FifoWaitQueueTest.waiter(1, "d", 1);
+        queue.add(lowFirst);
+        queue.add(highFirst);
+        queue.add(lowSecond);
+        queue.add(highSecond);
+
+        for (final PermitWaiter expected : new PermitWaiter[] {highFirst, highSecond, lowFirst, lowSecond})
+        {
+            assertSame(expected, queue.peek());
+            queue.remove(expected, true);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void concurrentTimeoutsAndReleasesKeepEveryPermit() throws InterruptedException
+    {
+        PermitStress.run(new PriorityWaitQueue());
+    }
+}
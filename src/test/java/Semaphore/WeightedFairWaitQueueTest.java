@@ -0,0 +1,81 @@
+package Semaphore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedFairWaitQueueTest
+{
+    @Test
+    void busyTenantsAreServedInProportionToTheirWeights()
+    {
+        WeightedFairWaitQueue queue = new WeightedFairWaitQueue(Map.of("heavy", 2), 1);
+        for (int i = 0; i < 12; i++)
+        {
+            queue.add(FifoWaitQueueTest.waiter(1, "heavy", 0));
+        }
+        for (int i = 0; i < 12; i++)
+        {
+            queue.add(FifoWaitQueueTest.waiter(1, "light", 0));
+        }
+
+        // The light tenant queued last but still gets one grant in three
+        int heavy = 0;
+        for (int served = 0; served < 9; served++)
+        {
+            PermitWaiter next = queue.peek();
+            if (next.getTenant().equals("heavy"))
+            {
+                heavy++;
+            }
+            queue.remove(next, true);
+        }
+        assertEquals(6, heavy);
+    }
+
+    @Test
+    void tenantIsNotChargedForAWaitItGaveUp()
+    {
+        WeightedFairWaitQueue queue = new WeightedFairWaitQueue();
+        queue.add(FifoWaitQueueTest.waiter(1, "other", 0));
+
+        PermitWaiter abandoned = FifoWaitQueueTest.waiter(4, "a", 0);
+        queue.add(abandoned);
+        queue.remove(abandoned, false);
+
+        PermitWaiter retry = FifoWaitQueueTest.waiter(4, "a", 0);
+        queue.add(retry);
+        assertEquals(abandoned.finishTag, retry.finishTag);
+    }
+
+    @Test
+    void weightsMustBePositive()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new WeightedFairWaitQueue(Map.of("a", 0), 1));
+        assertThrows(IllegalArgumentException.class, () -> new WeightedFairWaitQueue(Map.of(), 0));
+    }
+
+    @Test
+    void concurrentTimeoutsAndReleasesKeepEveryPermit() throws InterruptedException
+    {
+        PermitStress.run(new WeightedFairWaitQueue());
+    }
+
+    @Test
+    void emptiedQueueStartsEveryTenantAfresh()
+    {
+        WeightedFairWaitQueue queue = new WeightedFairWaitQueue();
+        PermitWaiter first          = FifoWaitQueueTest.waiter(3, "a", 0);
+        queue.add(first);
+        queue.remove(first, true);
+        assertTrue(queue.isEmpty());
+
+        PermitWaiter next = FifoWaitQueueTest.waiter(1, "b", 0);
+        queue.add(next);
+        assertEquals(first.finishTag, next.startTag);
+    }
+}